@@ -0,0 +1,41 @@
+package es.bocm.numbot.arranque;
+
+import es.bocm.numbot.entities.FestivoDao;
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ajuste de las secuencias de identificadores durante el despliegue, antes de atender peticiones.
+ * <p>
+ * Ver {@link FestivoDao#alinearSecuenciaId()}. Si falla, se registra el error y el despliegue continúa: solo afecta a
+ * la creación de festivos.
+ */
+@Startup
+@Singleton
+public class AjusteSecuencias {
+    private static final Logger log = LoggerFactory.getLogger(AjusteSecuencias.class);
+
+    @Inject
+    FestivoDao festDao;
+
+    /**
+     * Ajusta las secuencias. Cada ajuste se hace en su propia transacción.
+     */
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    void ajustar() {
+        log.info("Inicia ajuste de secuencias de identificadores");
+        try {
+            festDao.alinearSecuenciaId();
+            log.info("Finaliza ajuste de secuencias de identificadores");
+        } catch (Exception e) {
+            log.error("Finaliza ajuste de secuencias de identificadores con error", e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package es.bocm.numbot.arranque;
+
+import es.bocm.numbot.cache.DatosAnnoCache;
+import es.bocm.numbot.calculations.CalcUtils;
+import es.bocm.numbot.calculations.CalcularNumBot;
+import es.bocm.numbot.calculations.MultiYearCalendar;
+import es.bocm.numbot.calculations.YearCalendar;
+import es.bocm.numbot.entities.NumeroBoletinDao;
+import es.bocm.numbot.rest.numbot.NumbotResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.*;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+
+import static es.bocm.numbot.rest.RestUtils.serializarJson;
+
+/**
+ * Calentamiento del servicio tras el despliegue.
+ * <p>
+ * Carga en la caché los festivos, extraordinarios y calendarios del año anterior, el actual y el siguiente, y ejecuta
+ * varias veces los cálculos y la serialización JSON, para que las primeras peticiones no paguen la inicialización de
+ * Hibernate, las consultas en frío ni el código aún sin compilar por el JIT.
+ * <p>
+ * Se hace en segundo plano, con un temporizador, para no retrasar el despliegue. Hasta que termina,
+ * {@link #estaPreparado()} devuelve false. Si falla, se registra el error y se da por terminado igualmente: el servicio
+ * funciona sin calentamiento, solo que más lento al principio.
+ */
+@Startup
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class Calentamiento {
+    private static final Logger log = LoggerFactory.getLogger(Calentamiento.class);
+
+    @Inject
+    DatosAnnoCache cache;
+
+    @Inject
+    NumeroBoletinDao numerosDao;
+
+    @Resource
+    TimerService timerService;
+
+    private volatile boolean preparado = false;
+
+    /**
+     * Programa el calentamiento para que empiece en cuanto termine el despliegue.
+     */
+    @PostConstruct
+    void programar() {
+        log.info("Programando calentamiento del servicio");
+        timerService.createSingleActionTimer(0, new TimerConfig(null, false));
+    }
+
+    /**
+     * Ejecuta el calentamiento.
+     */
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    void calentar() {
+        calentar(LocalDate.now().getYear());
+    }
+
+    /**
+     * Ejecuta el calentamiento para un año y los adyacentes.
+     *
+     * @param annoActual el año actual.
+     */
+    void calentar(int annoActual) {
+        log.info("Inicia calentamiento del servicio para los años {} a {}", annoActual - 1, annoActual + 1);
+        long inicio = System.nanoTime();
+        try {
+            for (int anno = annoActual - 1; anno <= annoActual + 1; anno++) {
+                cache.getFestivos(anno);
+                cache.getExtraordinarios(anno);
+                cache.getCalendario(anno);
+            }
+            numerosDao.buscarPorFecha(LocalDate.now());
+            int suma = ejercitarCalculos(annoActual);
+            log.info("Finaliza calentamiento del servicio en {} ms (control {})",
+                    (System.nanoTime() - inicio) / 1_000_000, suma);
+        } catch (Exception e) {
+            log.error("Finaliza calentamiento del servicio con error. Se continúa sin calentamiento", e);
+        } finally {
+            preparado = true;
+        }
+    }
+
+    /**
+     * Ejecuta los cálculos y la serialización de todos los días de un año, con los datos ya cargados en la caché.
+     *
+     * @param anno el año.
+     * @return una suma de los resultados, para que el JIT no descarte los cálculos.
+     */
+    private int ejercitarCalculos(int anno) {
+        MultiYearCalendar calendarios = new MultiYearCalendar(cache::getCalendario);
+        int suma = 0;
+        for (LocalDate fecha = LocalDate.of(anno, 1, 1); fecha.getYear() == anno; fecha = fecha.plusDays(1)) {
+            int numBot = calendarios.getNumBot(fecha);
+            int numBotsEnFestivoSeguidos = calendarios.numBotsEnFestivoSeguidos(fecha);
+            suma += numBot + numBotsEnFestivoSeguidos;
+            suma += CalcularNumBot.getNumBot(fecha, cache.getExtraordinarios(anno));
+            suma += CalcUtils.numBotsEnFestivoSeguidos(fecha, cache.getFestivos(anno));
+            suma += serializarJson(new NumbotResponse(Integer.toString(numBot),
+                    Integer.toString(numBotsEnFestivoSeguidos))).length;
+        }
+        return suma;
+    }
+
+    /**
+     * Comprueba si ha terminado el calentamiento.
+     *
+     * @return true si ha terminado, con éxito o no, false si aún está en curso.
+     */
+    public boolean estaPreparado() {
+        return preparado;
+    }
+}
@@ -0,0 +1,66 @@
+package es.bocm.numbot.arranque;
+
+import es.bocm.numbot.entities.FestivoDao;
+import es.bocm.numbot.entities.NumeroBoletin;
+import es.bocm.numbot.entities.NumeroBoletinDao;
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+
+/**
+ * Relleno de la tabla de números de Boletín ({@link NumeroBoletin}) durante el despliegue, antes de atender peticiones.
+ * <p>
+ * Se recalculan los números de todos los años con festivos establecidos, desde el 1 de enero. En las BBDD creadas
+ * antes de la tabla la llena, y en el resto corrige las filas que no estén al día. Como solo se escriben las filas que
+ * cambian, en un arranque normal no se escribe nada.
+ * <p>
+ * Si falla un año, se registra el error y se continúa con el siguiente: para las fechas sin fila, el número se calcula
+ * en el momento de la consulta.
+ */
+@Startup
+@Singleton
+public class RellenoNumerosBoletin {
+    private static final Logger log = LoggerFactory.getLogger(RellenoNumerosBoletin.class);
+
+    @Inject
+    FestivoDao festDao;
+
+    @Inject
+    NumeroBoletinDao numerosDao;
+
+    /**
+     * Rellena la tabla. Cada año se recalcula en su propia transacción.
+     */
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    void rellenar() {
+        log.info("Inicia relleno de la tabla de números de Boletín");
+        List<Integer> annos;
+        try {
+            annos = festDao.buscarAnnosConFestivos();
+        } catch (Exception e) {
+            log.error("Finaliza relleno de la tabla de números de Boletín con error", e);
+            return;
+        }
+        int errores = 0;
+        for (int anno : annos) {
+            try {
+                numerosDao.recalcularDesde(LocalDate.of(anno, Month.JANUARY, 1));
+            } catch (Exception e) {
+                errores++;
+                log.error("Error en el relleno de la tabla de números de Boletín para el año {}", anno, e);
+            }
+        }
+        log.info("Finaliza relleno de la tabla de números de Boletín para {} años, {} de ellos con error",
+                annos.size(), errores);
+    }
+}
@@ -0,0 +1,166 @@
+package es.bocm.numbot.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Caché de valores indexados por año, con un número máximo de años y caducidad.
+ * <p>
+ * Cuando se supera el número máximo de años se descarta el menos usado recientemente. Los valores se cargan fuera del
+ * bloqueo, y una carga que empezó antes de una invalidación no se guarda, para no volver a poner en la caché datos
+ * anteriores a una modificación.
+ *
+ * @param <V> el tipo de los valores.
+ */
+final class CacheAnual<V> {
+    /**
+     * Valor guardado junto con el instante en que se cargó.
+     */
+    private record Entrada<V>(V valor, long cargada) {
+    }
+
+    /**
+     * Tiempo, en nanosegundos, tras el que caduca un valor. Cero o negativo si no caducan.
+     */
+    private final long expiracionNanos;
+
+    /**
+     * Reloj en nanosegundos, con la semántica de {@link System#nanoTime()}.
+     */
+    private final LongSupplier reloj;
+
+    /**
+     * Valores guardados, en orden de acceso.
+     */
+    private final LinkedHashMap<Integer, Entrada<V>> entradas;
+
+    /**
+     * Contador de invalidaciones, para detectar cargas que empezaron antes de una invalidación.
+     */
+    private long generacion = 0;
+
+    /**
+     * Contadores de consultas servidas desde la caché, de cargas y de valores cargados que se han guardado.
+     */
+    private long aciertos = 0;
+    private long fallos = 0;
+    private long guardados = 0;
+
+    /**
+     * Crea una caché vacía.
+     *
+     * @param maxAnnos el número máximo de años que se guardan.
+     * @param expiracion el tiempo tras el que caduca un valor. Cero o negativo si no caducan.
+     * @param reloj reloj en nanosegundos, con la semántica de {@link System#nanoTime()}.
+     */
+    CacheAnual(int maxAnnos, Duration expiracion, LongSupplier reloj) {
+        this.expiracionNanos = expiracion.toNanos();
+        this.reloj = reloj;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entrada<V>> eldest) {
+                return size() > maxAnnos;
+            }
+        };
+    }
+
+    /**
+     * Obtiene el valor de un año, cargándolo si no está en la caché o ha caducado.
+     *
+     * @param anno el año.
+     * @param cargador función que carga el valor de un año.
+     * @return el valor del año.
+     */
+    V obtener(int anno, IntFunction<V> cargador) {
+        return obtener(anno, cargador, (anterior, nuevo) -> {
+        });
+    }
+
+    /**
+     * Obtiene el valor de un año, cargándolo si no está en la caché o ha caducado, y avisa cuando se vuelve a cargar
+     * un valor caducado, para que se pueda comparar con el nuevo.
+     *
+     * @param anno el año.
+     * @param cargador función que carga el valor de un año.
+     * @param alRecargar función a la que se pasan el valor caducado y el nuevo, antes de guardar este.
+     * @return el valor del año.
+     */
+    V obtener(int anno, IntFunction<V> cargador, BiConsumer<V, V> alRecargar) {
+        long generacionCarga;
+        V caducado;
+        synchronized (this) {
+            Entrada<V> entrada = entradas.get(anno);
+            if (entrada != null && !haCaducado(entrada)) {
+                aciertos++;
+                return entrada.valor();
+            }
+            fallos++;
+            caducado = entrada != null ? entrada.valor() : null;
+            generacionCarga = generacion;
+        }
+        V valor = cargador.apply(anno);
+        if (caducado != null) {
+            alRecargar.accept(caducado, valor);
+        }
+        synchronized (this) {
+            if (generacionCarga == generacion) {
+                entradas.put(anno, new Entrada<>(valor, reloj.getAsLong()));
+                guardados++;
+            }
+        }
+        return valor;
+    }
+
+    /**
+     * Comprueba si el valor de un año está en la caché y no ha caducado, es decir, si obtenerlo no lo cargaría.
+     *
+     * @param anno el año.
+     * @return true si el valor está en la caché, false en caso contrario.
+     */
+    synchronized boolean contiene(int anno) {
+        Entrada<V> entrada = entradas.get(anno);
+        return entrada != null && !haCaducado(entrada);
+    }
+
+    /**
+     * Descarta el valor de un año.
+     *
+     * @param anno el año.
+     */
+    synchronized void invalidar(int anno) {
+        entradas.remove(anno);
+        generacion++;
+    }
+
+    /**
+     * Obtiene el número de años guardados, incluidos los caducados que aún no se han descartado.
+     *
+     * @return el número de años guardados.
+     */
+    synchronized int tamanno() {
+        return entradas.size();
+    }
+
+    /**
+     * Obtiene las estadísticas de uso de la caché desde que se creó.
+     *
+     * @return las estadísticas.
+     */
+    synchronized EstadisticasRegion estadisticas() {
+        return new EstadisticasRegion(aciertos, fallos, guardados, entradas.size());
+    }
+
+    /**
+     * Comprueba si una entrada ha caducado.
+     *
+     * @param entrada la entrada.
+     * @return true si ha caducado, false en caso contrario.
+     */
+    private boolean haCaducado(Entrada<V> entrada) {
+        return expiracionNanos > 0 && reloj.getAsLong() - entrada.cargada() >= expiracionNanos;
+    }
+}
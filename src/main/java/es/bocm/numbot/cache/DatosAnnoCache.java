@@ -0,0 +1,324 @@
+package es.bocm.numbot.cache;
+
+import es.bocm.numbot.calculations.YearCalendar;
+import es.bocm.numbot.entities.*;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caché en memoria, por año, de los festivos, los boletines extraordinarios y los calendarios de publicación.
+ * <p>
+ * Estos datos cambian pocas veces al año, así que se evita consultar la BBDD en cada petición. Los festivos y los
+ * extraordinarios de un año se leen juntos, con una sola consulta ({@link DatosAnnoDao#buscarPorAnno(int)}). Cuando un
+ * DAO modifica los datos de un año lanza un evento {@link DatosAnnoModificados}, y la caché descarta ese año en cuanto
+ * se confirma la transacción, de forma que tras una escritura correcta no se leen datos antiguos.
+ * <p>
+ * También lleva la versión de los datos de cada año ({@link VersionAnno}), calculada a partir de su contenido al
+ * leerlos, que permite responder a peticiones condicionales sin consultar la BBDD mientras los datos estén en la
+ * caché. Cuando los datos de un año caducan y al volver a leerlos han cambiado, porque se modificaron desde fuera del
+ * servicio, también se descartan sus calendarios y respuestas.
+ * <p>
+ * Guarda además las respuestas ya serializadas de cada año, para servir las consultas repetidas sin volver a
+ * serializarlas, también comprimidas, para no volver a comprimirlas.
+ * <p>
+ * Se configura con las propiedades de sistema:
+ * <ul>
+ *     <li>{@value #PROPIEDAD_MAX_ANNOS}: número máximo de años guardados. Por defecto, {@value #MAX_ANNOS}.</li>
+ *     <li>{@value #PROPIEDAD_EXPIRACION}: minutos tras los que se vuelve a consultar la BBDD aunque no haya habido
+ *     modificaciones, por si se modifica desde fuera del servicio. Cero para no caducar nunca. Por defecto,
+ *     {@value #EXPIRACION_MINUTOS}.</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class DatosAnnoCache {
+    private static final Logger log = LoggerFactory.getLogger(DatosAnnoCache.class);
+
+    public static final String PROPIEDAD_MAX_ANNOS = "numbot.cache.max-annos";
+    public static final String PROPIEDAD_EXPIRACION = "numbot.cache.expiracion-minutos";
+    private static final int MAX_ANNOS = 32;
+    private static final long EXPIRACION_MINUTOS = 60;
+
+    private DatosAnnoDao datosDao;
+
+    /**
+     * Datos de un año junto con su versión, que se guardan y caducan a la vez.
+     */
+    private record DatosVersionados(DatosAnno datos, VersionAnno version) {
+    }
+
+    private CacheAnual<DatosVersionados> datos;
+
+    private CacheAnual<YearCalendar> calendarios;
+
+    private CacheAnual<byte[]> festivosSerializados;
+
+    private CacheAnual<byte[]> extraordinariosSerializados;
+
+    private CacheAnual<byte[]> festivosComprimidos;
+
+    private CacheAnual<byte[]> extraordinariosComprimidos;
+
+    /**
+     * Última versión leída de cada año, para conservar su fecha de modificación cuando se vuelven a leer los mismos
+     * datos.
+     */
+    private final Map<Integer, VersionAnno> versiones = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor necesario para que CDI pueda crear el proxy del bean. No usar.
+     */
+    protected DatosAnnoCache() {
+    }
+
+    /**
+     * Crea la caché, vacía.
+     *
+     * @param datosDao DAO con el que se cargan los festivos y los boletines extraordinarios.
+     */
+    @Inject
+    public DatosAnnoCache(DatosAnnoDao datosDao) {
+        this(datosDao, Integer.getInteger(PROPIEDAD_MAX_ANNOS, MAX_ANNOS),
+                Duration.ofMinutes(Long.getLong(PROPIEDAD_EXPIRACION, EXPIRACION_MINUTOS)), System::nanoTime);
+    }
+
+    /**
+     * Crea la caché, vacía, con la configuración y el reloj indicados.
+     *
+     * @param datosDao DAO con el que se cargan los festivos y los boletines extraordinarios.
+     * @param maxAnnos el número máximo de años guardados.
+     * @param expiracion el tiempo tras el que se vuelve a consultar la BBDD. Cero para no caducar nunca.
+     * @param reloj reloj en nanosegundos, con la semántica de {@link System#nanoTime()}.
+     */
+    DatosAnnoCache(DatosAnnoDao datosDao, int maxAnnos, Duration expiracion, LongSupplier reloj) {
+        this.datosDao = datosDao;
+        log.info("Creando caché de datos por año con un máximo de {} años y expiración de {}", maxAnnos, expiracion);
+        this.datos = new CacheAnual<>(maxAnnos, expiracion, reloj);
+        this.calendarios = new CacheAnual<>(maxAnnos, expiracion, reloj);
+        this.festivosSerializados = new CacheAnual<>(maxAnnos, expiracion, reloj);
+        this.extraordinariosSerializados = new CacheAnual<>(maxAnnos, expiracion, reloj);
+        this.festivosComprimidos = new CacheAnual<>(maxAnnos, expiracion, reloj);
+        this.extraordinariosComprimidos = new CacheAnual<>(maxAnnos, expiracion, reloj);
+    }
+
+    /**
+     * Obtiene los festivos y los boletines extraordinarios de un año. Ver {@link DatosAnnoDao#buscarPorAnno(int)}.
+     *
+     * @param anno el año.
+     * @return los datos del año.
+     */
+    public DatosAnno getDatos(int anno) {
+        return getDatosVersionados(anno).datos();
+    }
+
+    /**
+     * Obtiene los datos de un año junto con su versión, leyéndolos de la BBDD si no están en la caché o han caducado.
+     *
+     * @param anno el año.
+     * @return los datos del año y su versión.
+     */
+    private DatosVersionados getDatosVersionados(int anno) {
+        return datos.obtener(anno, a -> {
+            log.debug("Cargando en caché los festivos y extraordinarios del año {}", a);
+            DatosAnno datosAnno = datosDao.buscarPorAnno(a);
+            return new DatosVersionados(datosAnno, leerVersion(datosAnno));
+        }, this::comprobarRecarga);
+    }
+
+    /**
+     * Obtiene la versión de unos datos recién leídos. Si tienen la misma huella que la última versión leída del año,
+     * se conserva esa versión, con su fecha de modificación.
+     *
+     * @param datosAnno los datos.
+     * @return la versión de los datos.
+     */
+    private VersionAnno leerVersion(DatosAnno datosAnno) {
+        String huella = datosAnno.huella();
+        return versiones.compute(datosAnno.anno(), (a, version) -> version != null && version.huella().equals(huella)
+                ? version
+                : new VersionAnno(a, huella, Instant.now().truncatedTo(ChronoUnit.SECONDS)));
+    }
+
+    /**
+     * Compara la versión de los datos caducados de un año con la de los que se acaban de volver a leer. Si ha cambiado,
+     * los datos se han modificado desde fuera del servicio: se descartan los calendarios y las respuestas del año.
+     *
+     * @param caducados los datos caducados.
+     * @param nuevos los datos leídos de nuevo.
+     */
+    private void comprobarRecarga(DatosVersionados caducados, DatosVersionados nuevos) {
+        if (caducados.version().huella().equals(nuevos.version().huella())) {
+            return;
+        }
+        int anno = nuevos.datos().anno();
+        log.info("Los datos del año {} han cambiado fuera del servicio", anno);
+        calendarios.invalidar(anno);
+        festivosSerializados.invalidar(anno);
+        festivosComprimidos.invalidar(anno);
+        extraordinariosSerializados.invalidar(anno);
+        extraordinariosComprimidos.invalidar(anno);
+    }
+
+    /**
+     * Comprueba si los festivos y extraordinarios de un año están en la caché, de forma que obtenerlos, o el
+     * calendario o las respuestas serializadas del año, no consulta la BBDD.
+     *
+     * @param anno el año.
+     * @return true si los datos del año están en la caché, false en caso contrario.
+     */
+    public boolean estaCargado(int anno) {
+        return datos.contiene(anno);
+    }
+
+    /**
+     * Obtiene los festivos de un año.
+     *
+     * @param anno el año.
+     * @return los festivos del año, en una lista no modificable.
+     */
+    public List<Festivo> getFestivos(int anno) {
+        return getDatos(anno).festivos();
+    }
+
+    /**
+     * Obtiene los boletines extraordinarios de un año.
+     *
+     * @param anno el año.
+     * @return los boletines extraordinarios del año, en una lista no modificable.
+     */
+    public List<Extraordinario> getExtraordinarios(int anno) {
+        return getDatos(anno).extraordinarios();
+    }
+
+    /**
+     * Obtiene el calendario de publicación de un año, creado a partir de sus extraordinarios y festivos.
+     *
+     * @param anno el año.
+     * @return el calendario del año.
+     */
+    public YearCalendar getCalendario(int anno) {
+        return calendarios.obtener(anno, a -> {
+            DatosAnno datosAnno = getDatos(a);
+            return YearCalendar.of(a, datosAnno.extraordinarios(), datosAnno.festivos());
+        });
+    }
+
+    /**
+     * Obtiene los festivos de un año ya serializados, serializándolos solo la primera vez o tras una modificación.
+     *
+     * @param anno el año.
+     * @param serializador función que serializa los festivos del año.
+     * @return los festivos serializados. Se comparten entre peticiones, así que no se deben modificar.
+     */
+    public byte[] getFestivosSerializados(int anno, Function<List<Festivo>, byte[]> serializador) {
+        return festivosSerializados.obtener(anno, a -> serializador.apply(getFestivos(a)));
+    }
+
+    /**
+     * Obtiene los boletines extraordinarios de un año ya serializados, serializándolos solo la primera vez o tras una
+     * modificación.
+     *
+     * @param anno el año.
+     * @param serializador función que serializa los boletines extraordinarios del año.
+     * @return los boletines extraordinarios serializados. Se comparten entre peticiones, así que no se deben
+     * modificar.
+     */
+    public byte[] getExtraordinariosSerializados(int anno, Function<List<Extraordinario>, byte[]> serializador) {
+        return extraordinariosSerializados.obtener(anno, a -> serializador.apply(getExtraordinarios(a)));
+    }
+
+    /**
+     * Obtiene los festivos de un año ya serializados y comprimidos, comprimiéndolos solo la primera vez o tras una
+     * modificación. Ver {@link #getFestivosSerializados(int, Function)}.
+     *
+     * @param anno el año.
+     * @param serializador función que serializa los festivos del año.
+     * @param compresor función que comprime los festivos serializados.
+     * @return los festivos serializados y comprimidos. Se comparten entre peticiones, así que no se deben modificar.
+     */
+    public byte[] getFestivosComprimidos(int anno, Function<List<Festivo>, byte[]> serializador,
+                                         UnaryOperator<byte[]> compresor) {
+        return festivosComprimidos.obtener(anno, a -> compresor.apply(getFestivosSerializados(a, serializador)));
+    }
+
+    /**
+     * Obtiene los boletines extraordinarios de un año ya serializados y comprimidos, comprimiéndolos solo la primera
+     * vez o tras una modificación. Ver {@link #getExtraordinariosSerializados(int, Function)}.
+     *
+     * @param anno el año.
+     * @param serializador función que serializa los boletines extraordinarios del año.
+     * @param compresor función que comprime los boletines extraordinarios serializados.
+     * @return los boletines extraordinarios serializados y comprimidos. Se comparten entre peticiones, así que no se
+     * deben modificar.
+     */
+    public byte[] getExtraordinariosComprimidos(int anno, Function<List<Extraordinario>, byte[]> serializador,
+                                                UnaryOperator<byte[]> compresor) {
+        return extraordinariosComprimidos.obtener(anno,
+                a -> compresor.apply(getExtraordinariosSerializados(a, serializador)));
+    }
+
+    /**
+     * Obtiene la versión de los datos de un año. Como la versión se guarda con los datos, solo consulta la BBDD si no
+     * están en la caché o han caducado, también cuando solo llegan peticiones condicionales.
+     *
+     * @param anno el año.
+     * @return la versión de los datos del año.
+     */
+    public VersionAnno getVersion(int anno) {
+        return getDatosVersionados(anno).version();
+    }
+
+    /**
+     * Obtiene las estadísticas de uso de cada región de la caché, desde el arranque del servicio.
+     *
+     * @return las estadísticas, por nombre de región.
+     */
+    public Map<String, EstadisticasRegion> getEstadisticas() {
+        Map<String, EstadisticasRegion> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("datos", datos.estadisticas());
+        estadisticas.put("calendarios", calendarios.estadisticas());
+        estadisticas.put("festivos-serializados", festivosSerializados.estadisticas());
+        estadisticas.put("extraordinarios-serializados", extraordinariosSerializados.estadisticas());
+        estadisticas.put("festivos-comprimidos", festivosComprimidos.estadisticas());
+        estadisticas.put("extraordinarios-comprimidos", extraordinariosComprimidos.estadisticas());
+        return estadisticas;
+    }
+
+    /**
+     * Descarta los datos de un año cuando se confirma la transacción en que se modificaron. La siguiente lectura
+     * calcula la versión nueva a partir de los datos guardados.
+     *
+     * @param evento el evento de modificación.
+     */
+    public void onDatosAnnoModificados(@Observes(during = TransactionPhase.AFTER_SUCCESS)
+                                       DatosAnnoModificados evento) {
+        log.info("Descartando de la caché los datos del año {} por modificación de {}", evento.anno(),
+                evento.tipo());
+        datos.invalidar(evento.anno());
+        switch (evento.tipo()) {
+            case FESTIVOS -> {
+                festivosSerializados.invalidar(evento.anno());
+                festivosComprimidos.invalidar(evento.anno());
+            }
+            case EXTRAORDINARIOS -> {
+                extraordinariosSerializados.invalidar(evento.anno());
+                extraordinariosComprimidos.invalidar(evento.anno());
+            }
+        }
+        calendarios.invalidar(evento.anno());
+    }
+}
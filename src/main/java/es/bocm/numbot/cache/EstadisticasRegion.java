@@ -0,0 +1,13 @@
+package es.bocm.numbot.cache;
+
+/**
+ * Estadísticas de uso de una de las regiones de {@link DatosAnnoCache}, desde el arranque del servicio.
+ *
+ * @param aciertos número de consultas servidas desde la caché.
+ * @param fallos número de consultas que han tenido que cargar el valor, por no estar o haber caducado.
+ * @param guardados número de valores cargados que se han guardado. Es menor que los fallos cuando la carga coincide
+ *                  con una modificación del año.
+ * @param elementos número de años guardados en este momento.
+ */
+public record EstadisticasRegion(long aciertos, long fallos, long guardados, int elementos) {
+}
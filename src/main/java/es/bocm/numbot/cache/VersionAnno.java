@@ -0,0 +1,27 @@
+package es.bocm.numbot.cache;
+
+import java.time.Instant;
+
+/**
+ * Versión de los datos (festivos y boletines extraordinarios) de un año, que cambia cada vez que se modifican, desde
+ * el servicio o desde fuera de él.
+ * <p>
+ * Se identifica por la huella del contenido ({@link es.bocm.numbot.entities.DatosAnno#huella()}), así que la etiqueta
+ * es la misma en todos los nodos y tras reiniciar el servicio mientras no cambien los datos guardados. La fecha de
+ * modificación, en cambio, no se guarda en la BBDD: es el instante en que el nodo leyó por primera vez ese contenido.
+ *
+ * @param anno el año.
+ * @param huella huella del contenido de los datos del año.
+ * @param modificado instante en que se leyó por primera vez este contenido. Con precisión de segundos, como las fechas
+ *                   HTTP.
+ */
+public record VersionAnno(int anno, String huella, Instant modificado) {
+    /**
+     * Obtiene una etiqueta que identifica la versión, para usarla como ETag.
+     *
+     * @return la etiqueta.
+     */
+    public String etiqueta() {
+        return anno + "-" + huella;
+    }
+}
@@ -16,6 +16,23 @@ import java.util.Set;
 public final class CalcUtils {
     private static final Logger log = LoggerFactory.getLogger(CalcUtils.class);
 
+    /**
+     * Primer año cubierto por la tabla precalculada de Viernes Santo.
+     */
+    public static final int ANNO_MINIMO_TABLA = 0;
+
+    /**
+     * Último año cubierto por la tabla precalculada de Viernes Santo. Es el mayor año que se puede expresar con el
+     * formato YYYY que aceptan los endpoints.
+     */
+    public static final int ANNO_MAXIMO_TABLA = 9999;
+
+    /**
+     * Día epoch del Viernes Santo de cada año entre {@link #ANNO_MINIMO_TABLA} y {@link #ANNO_MAXIMO_TABLA}, indexado
+     * por año menos {@link #ANNO_MINIMO_TABLA}. Se calcula una sola vez al cargar la clase y no se modifica después.
+     */
+    private static final int[] VIERNES_SANTO = calcularTablaViernesSanto();
+
     private CalcUtils() {
         throw new AssertionError("Clase de utilidades. No instanciar.");
     }
@@ -23,13 +40,27 @@ public final class CalcUtils {
     /**
      * Calcula la fecha del domingo de Pascua para un año determinado.
      *
-     * Se utiliza el algoritmo de Gauss.
+     * Para los años entre {@link #ANNO_MINIMO_TABLA} y {@link #ANNO_MAXIMO_TABLA} se consulta la tabla precalculada;
+     * para el resto se utiliza el algoritmo de Gauss.
      *
      * @param year el año para el que se calcula el domingo de Pascua.
      * @return la fecha del domingo de Pascua para el año indicado.
      */
     public static LocalDate getEasterSundayDate(int year) {
-        log.debug("Inicia cálculo del domingo de Pascua para el año {}", year);
+        if (estaEnTabla(year)) {
+            return LocalDate.ofEpochDay(VIERNES_SANTO[year - ANNO_MINIMO_TABLA] + 2L);
+        }
+        log.debug("Calculando el domingo de Pascua para el año {}, fuera de la tabla precalculada", year);
+        return calcularDomingoPascua(year);
+    }
+
+    /**
+     * Calcula la fecha del domingo de Pascua para un año determinado con el algoritmo de Gauss.
+     *
+     * @param year el año para el que se calcula el domingo de Pascua.
+     * @return la fecha del domingo de Pascua para el año indicado.
+     */
+    private static LocalDate calcularDomingoPascua(int year) {
         int a = year % 19,
                 b = year / 100,
                 c = year % 100,
@@ -44,28 +75,58 @@ public final class CalcUtils {
                 month = (h - m + r + 90) / 25,
                 day = (h - m + r + month + 19) % 32;
 
-        LocalDate easterSunday = LocalDate.of(year, month, day);
-        log.debug("Finaliza cálculo del domingo de Pascua para el año {} con resultado {}", year, easterSunday);
-        return easterSunday;
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Calcula la tabla de días epoch de Viernes Santo. Ver {@link #VIERNES_SANTO}.
+     *
+     * @return la tabla.
+     */
+    private static int[] calcularTablaViernesSanto() {
+        int[] viernesSanto = new int[ANNO_MAXIMO_TABLA - ANNO_MINIMO_TABLA + 1];
+        for (int anno = ANNO_MINIMO_TABLA; anno <= ANNO_MAXIMO_TABLA; anno++) {
+            viernesSanto[anno - ANNO_MINIMO_TABLA] = (int) calcularDomingoPascua(anno).toEpochDay() - 2;
+        }
+        return viernesSanto;
+    }
+
+    /**
+     * Comprueba si un año está cubierto por la tabla precalculada de Viernes Santo.
+     *
+     * @param anno el año a comprobar.
+     * @return true si está en la tabla, false en caso contrario.
+     */
+    private static boolean estaEnTabla(int anno) {
+        return anno >= ANNO_MINIMO_TABLA && anno <= ANNO_MAXIMO_TABLA;
     }
 
     /**
      * Obtiene las tres fechas en que no se publica el boletín, aparte de los domingos, para un año determinado.
      *
-     * Las fechas son el uno de enero, el veinticinco de diciembre y el Viernes Santo.
+     * Las fechas son el uno de enero, el veinticinco de diciembre y el Viernes Santo, que se toma de la tabla
+     * precalculada, como en {@link #esFechaSinBoletin(LocalDate)}.
      *
      * @param anno año para el que se quieren obtener las fechas.
      * @return las fechas en que no se publica el boletín ese año.
      */
     public static Set<LocalDate> fechasSinBoletin(int anno) {
-        log.debug("Inicia obtención de fechas en que no se publica el boletín para el año {}", anno);
-        final LocalDate unoEnero = LocalDate.of(anno, Month.JANUARY, 1);
-        final LocalDate veinticincoDiciembre = LocalDate.of(anno, Month.DECEMBER, 25);
-        final LocalDate viernesSanto = getEasterSundayDate(anno).minusDays(2);
-        Set<LocalDate> fechasSinBoletin = Set.of(unoEnero, veinticincoDiciembre, viernesSanto);
-        log.debug("Finaliza obtención de fechas en que no se publica el boletín para el año {} con resultado {}",
-                anno, fechasSinBoletin);
-        return fechasSinBoletin;
+        return Set.of(LocalDate.of(anno, Month.JANUARY, 1), LocalDate.of(anno, Month.DECEMBER, 25),
+                getViernesSanto(anno));
+    }
+
+    /**
+     * Obtiene la fecha del Viernes Santo de un año. Para los años entre {@link #ANNO_MINIMO_TABLA} y
+     * {@link #ANNO_MAXIMO_TABLA} se consulta la tabla precalculada; para el resto se utiliza el algoritmo de Gauss.
+     *
+     * @param anno el año.
+     * @return la fecha del Viernes Santo.
+     */
+    private static LocalDate getViernesSanto(int anno) {
+        if (estaEnTabla(anno)) {
+            return LocalDate.ofEpochDay(VIERNES_SANTO[anno - ANNO_MINIMO_TABLA]);
+        }
+        return calcularDomingoPascua(anno).minusDays(2);
     }
 
     /**
@@ -103,14 +164,95 @@ public final class CalcUtils {
         return numBotsEnFestivoSeguidos;
     }
 
+    /**
+     * Variante de {@link #numBotsEnFestivoSeguidos(LocalDate, Collection)} que trabaja con días epoch y máscaras de
+     * bits, sin crear objetos.
+     * <p>
+     * El bit {@code i} de cada máscara corresponde al día epoch {@code epochDayInicio + i}. Los bits posteriores al
+     * último día cubierto por las máscaras deben estar a cero.
+     *
+     * @param epochDay el día epoch a partir del cual se quieren calcular los días no laborales con Boletín seguidos.
+     * @param epochDayInicio el día epoch que corresponde al primer bit de las máscaras.
+     * @param laborables máscara de días laborales: de lunes a viernes, excepto festivos y fechas sin boletín.
+     * @param conBoletin máscara de días en que se publica Boletín ordinario: todos salvo domingos y fechas sin boletín.
+     * @return número de boletines seguidos que se publican en día no laboral, a partir del día siguiente de la fecha.
+     * Si las máscaras terminan antes de llegar a un día laboral, devuelve {@code -1 - n}, siendo {@code n} el número
+     * de boletines contados hasta el final de las máscaras.
+     */
+    public static int numBotsEnFestivoSeguidos(int epochDay, int epochDayInicio, long[] laborables,
+                                               long[] conBoletin) {
+        final int desde = epochDay - epochDayInicio + 1;
+        if (desde < 0) {
+            throw new IllegalArgumentException("El día " + epochDay + " es anterior al inicio de las máscaras");
+        }
+        final int siguienteLaborable = siguienteBitActivo(laborables, desde);
+        final int hasta = siguienteLaborable < 0 ? laborables.length * Long.SIZE : siguienteLaborable;
+        final int numBotsEnFestivoSeguidos = contarBitsActivos(conBoletin, desde, hasta);
+        return siguienteLaborable < 0 ? -1 - numBotsEnFestivoSeguidos : numBotsEnFestivoSeguidos;
+    }
+
+    /**
+     * Busca el primer bit activo de una máscara a partir de una posición, incluida.
+     *
+     * @param mascara la máscara de bits.
+     * @param desde la posición a partir de la cual buscar.
+     * @return la posición del primer bit activo, o -1 si no hay ninguno.
+     */
+    private static int siguienteBitActivo(long[] mascara, int desde) {
+        int palabra = desde / Long.SIZE;
+        if (palabra >= mascara.length) {
+            return -1;
+        }
+        long bits = mascara[palabra] & (-1L << desde);
+        while (bits == 0) {
+            if (++palabra == mascara.length) {
+                return -1;
+            }
+            bits = mascara[palabra];
+        }
+        return palabra * Long.SIZE + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Cuenta los bits activos de una máscara en un rango de posiciones.
+     *
+     * @param mascara la máscara de bits.
+     * @param desde la primera posición del rango, incluida.
+     * @param hasta la última posición del rango, excluida.
+     * @return el número de bits activos en el rango.
+     */
+    private static int contarBitsActivos(long[] mascara, int desde, int hasta) {
+        int total = 0;
+        for (int i = desde; i < hasta; ) {
+            int palabra = i / Long.SIZE;
+            int finPalabra = Math.min(hasta, (palabra + 1) * Long.SIZE);
+            long bits = mascara[palabra] & (-1L << i);
+            if (finPalabra % Long.SIZE != 0) {
+                bits &= (1L << finPalabra) - 1;
+            }
+            total += Long.bitCount(bits);
+            i = finPalabra;
+        }
+        return total;
+    }
+
     /**
      * Comprueba si una fecha es un día sin publicación de Boletín, sin tener en cuenta los domingos.
+     * <p>
+     * Para los años de la tabla precalculada es una comprobación en tiempo constante que no crea objetos.
      *
      * @param fecha la fecha que se quiere comprobar.
      * @return true si es fecha sin boletín, false en caso contrario.
      */
     public static boolean esFechaSinBoletin(LocalDate fecha) {
-        return CalcUtils.fechasSinBoletin(fecha.getYear()).contains(fecha);
+        if (fecha.getDayOfYear() == 1 || (fecha.getMonth() == Month.DECEMBER && fecha.getDayOfMonth() == 25)) {
+            return true;
+        }
+        final int anno = fecha.getYear();
+        if (estaEnTabla(anno)) {
+            return fecha.toEpochDay() == VIERNES_SANTO[anno - ANNO_MINIMO_TABLA];
+        }
+        return fecha.equals(calcularDomingoPascua(anno).minusDays(2));
     }
 
     /**
@@ -24,7 +24,8 @@ public final class CalcularNumBot {
      *
      * @param fecha la fecha para la que se quiere obtener el número de Boletín.
      * @param numExtMismoAnnoAntesOIgualFecha el número total de boletines extraordinarios que ha habido antes o en el
-     *                                        mismo día durante ese año.
+     *                                        mismo día durante ese año. Se puede obtener directamente de la BBDD con
+     *                                        {@link es.bocm.numbot.entities.ExtraordinarioDao#sumarNumerosHasta}.
      * @return el número de Boletín.
      */
     public static int getNumBot(LocalDate fecha, int numExtMismoAnnoAntesOIgualFecha) {
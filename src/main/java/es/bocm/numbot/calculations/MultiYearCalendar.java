@@ -0,0 +1,119 @@
+package es.bocm.numbot.calculations;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Vista de varios años de calendarios de publicación ({@link YearCalendar}).
+ * <p>
+ * Los calendarios se cargan bajo demanda, solo cuando se necesitan, y se guardan para no volver a cargarlos. Así, el
+ * cálculo de boletines seguidos en día no laboral continúa sin cortes en el año siguiente, con sus festivos, pero el
+ * año siguiente solo se carga cuando el recorrido pasa del 31 de diciembre.
+ * <p>
+ * Se puede usar desde varios hilos a la vez.
+ */
+public final class MultiYearCalendar {
+    private static final Logger log = LoggerFactory.getLogger(MultiYearCalendar.class);
+
+    /**
+     * Función que crea el calendario de un año a partir de sus festivos y extraordinarios.
+     */
+    private final IntFunction<YearCalendar> cargador;
+
+    /**
+     * Calendarios ya cargados, por año.
+     */
+    private final Map<Integer, YearCalendar> calendarios = new ConcurrentHashMap<>();
+
+    /**
+     * Crea una vista de varios años.
+     *
+     * @param cargador función que crea el calendario de un año. Se llama como mucho una vez por año y vista, así que
+     *                 para no consultar la BBDD en cada petición que pasa del 31 de diciembre debe ser compartida entre
+     *                 peticiones, como {@link es.bocm.numbot.cache.DatosAnnoCache#getCalendario(int)}.
+     */
+    public MultiYearCalendar(IntFunction<YearCalendar> cargador) {
+        this.cargador = cargador;
+    }
+
+    /**
+     * Obtiene el calendario de un año, cargándolo si no se había cargado ya.
+     *
+     * @param anno el año.
+     * @return el calendario del año.
+     */
+    public YearCalendar getCalendario(int anno) {
+        return calendarios.computeIfAbsent(anno, a -> {
+            log.debug("Cargando el calendario de publicación del año {}", a);
+            return cargador.apply(a);
+        });
+    }
+
+    /**
+     * Obtiene el número de Boletín que corresponde a una fecha. Ver {@link YearCalendar#getNumBot(LocalDate)}.
+     *
+     * @param fecha la fecha para la que se quiere obtener el número de Boletín.
+     * @return el número de Boletín.
+     */
+    public int getNumBot(LocalDate fecha) {
+        return getCalendario(fecha.getYear()).getNumBot(fecha);
+    }
+
+    /**
+     * Calcula, a partir de una fecha, el número de boletines seguidos que se publican en día no laboral. Ver
+     * {@link CalcUtils#numBotsEnFestivoSeguidos(LocalDate, java.util.Collection)}.
+     * <p>
+     * Si el recorrido pasa del 31 de diciembre, continúa en el año siguiente teniendo en cuenta sus festivos.
+     *
+     * @param fecha la fecha a partir de la cual se quieren calcular los días no laborales con Boletín seguidos.
+     * @return número de boletines seguidos que se publican en día no laboral, a partir del día siguiente de la fecha.
+     */
+    public int numBotsEnFestivoSeguidos(LocalDate fecha) {
+        int anno = fecha.getYear();
+        int epochDay = (int) fecha.toEpochDay();
+        int numBotsEnFestivoSeguidos = 0;
+        int resultadoAnno = getCalendario(anno).numBotsEnFestivoSeguidosEnAnno(epochDay);
+        while (resultadoAnno < 0) {
+            numBotsEnFestivoSeguidos += -1 - resultadoAnno;
+            anno++;
+            // El recorrido continúa desde el día anterior al 1 de enero del año siguiente.
+            epochDay = (int) LocalDate.of(anno, 1, 1).toEpochDay() - 1;
+            resultadoAnno = getCalendario(anno).numBotsEnFestivoSeguidosEnAnno(epochDay);
+        }
+        return numBotsEnFestivoSeguidos + resultadoAnno;
+    }
+
+    /**
+     * Comprueba si el cálculo de boletines seguidos en día no laboral a partir de una fecha necesita el calendario del
+     * año siguiente.
+     *
+     * @param fecha la fecha.
+     * @return true si el recorrido pasa del 31 de diciembre, false en caso contrario.
+     */
+    public boolean necesitaAnnoSiguiente(LocalDate fecha) {
+        return getCalendario(fecha.getYear()).numBotsEnFestivoSeguidosEnAnno((int) fecha.toEpochDay()) < 0;
+    }
+
+    /**
+     * Busca el último día laboral anterior a una fecha, que puede estar en el año anterior. Ver
+     * {@link YearCalendar#esLaborable(LocalDate)}.
+     * <p>
+     * Un cambio en una fecha solo puede afectar al cálculo de boletines seguidos en día no laboral desde ese día
+     * laboral en adelante, porque los recorridos que empiezan antes terminan, como muy tarde, en él.
+     *
+     * @param fecha la fecha.
+     * @return el último día laboral anterior a la fecha.
+     */
+    public LocalDate ultimoDiaLaborableAntesDe(LocalDate fecha) {
+        LocalDate dia = fecha.minusDays(1);
+        while (!getCalendario(dia.getYear()).esLaborable(dia)) {
+            dia = dia.minusDays(1);
+        }
+        return dia;
+    }
+}
@@ -0,0 +1,294 @@
+package es.bocm.numbot.calculations;
+
+import es.bocm.numbot.entities.Extraordinario;
+import es.bocm.numbot.entities.ExtraordinarioDia;
+import es.bocm.numbot.entities.Festivo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Calendario de publicación precalculado para un año.
+ * <p>
+ * Guarda, para cada día del año, el número de Boletín que le corresponde teniendo en cuenta domingos, fechas sin
+ * boletín y boletines extraordinarios, de forma que obtener el número de una fecha es una única lectura de un array.
+ * Los resultados coinciden con los de {@link CalcularNumBot#getNumBot(LocalDate, Collection)}.
+ * <p>
+ * También guarda, como máscaras de bits, los días laborales y los días con Boletín ordinario del año, que se usan para
+ * calcular el número de boletines seguidos en día no laboral sin recorrer la colección de festivos. Como ese recorrido
+ * puede continuar en el año siguiente, se hace a través de {@link MultiYearCalendar}.
+ * <p>
+ * Es inmutable y, por tanto, se puede compartir entre hilos.
+ */
+public final class YearCalendar {
+    private static final Logger log = LoggerFactory.getLogger(YearCalendar.class);
+
+    /**
+     * El año del calendario.
+     */
+    private final int anno;
+
+    /**
+     * Número de Boletín para cada día del año, indexado por día del año empezando en cero.
+     */
+    private final int[] numBots;
+
+    /**
+     * Número de boletines publicados desde el 1 de enero hasta cada día del año, ambos incluidos, contando los
+     * extraordinarios. Es creciente, lo que permite buscar la fecha de un número de Boletín por búsqueda binaria.
+     */
+    private final int[] publicados;
+
+    /**
+     * Día epoch del 1 de enero del año, que corresponde al primer bit de las máscaras.
+     */
+    private final int epochDayUnoEnero;
+
+    /**
+     * Máscara de días laborales del año. Ver {@link CalcUtils#numBotsEnFestivoSeguidos(int, int, long[], long[])}.
+     */
+    private final long[] laborables;
+
+    /**
+     * Máscara de días del año con Boletín ordinario. Ver
+     * {@link CalcUtils#numBotsEnFestivoSeguidos(int, int, long[], long[])}.
+     */
+    private final long[] conBoletin;
+
+    /**
+     * Si se proporcionaron festivos del año al crear el calendario.
+     */
+    private final boolean tieneFestivos;
+
+    private YearCalendar(int anno, int[] numBots, int[] publicados, int epochDayUnoEnero, long[] laborables,
+                         long[] conBoletin, boolean tieneFestivos) {
+        this.anno = anno;
+        this.numBots = numBots;
+        this.publicados = publicados;
+        this.epochDayUnoEnero = epochDayUnoEnero;
+        this.laborables = laborables;
+        this.conBoletin = conBoletin;
+        this.tieneFestivos = tieneFestivos;
+    }
+
+    /**
+     * Crea el calendario de publicación de un año.
+     *
+     * @param anno el año del calendario.
+     * @param extraordinariosAnno los boletines extraordinarios habidos durante el año. Se ignoran los de otros años.
+     * @param festivosAnno los festivos del año. Se ignoran los de otros años.
+     * @return el calendario del año.
+     */
+    public static YearCalendar of(int anno, Collection<Extraordinario> extraordinariosAnno,
+                                  Collection<Festivo> festivosAnno) {
+        int[] extPorDia = new int[Year.of(anno).length()];
+        for (Extraordinario ext : extraordinariosAnno) {
+            if (ext.getFecha().getYear() == anno) {
+                extPorDia[ext.getFecha().getDayOfYear() - 1] += ext.getNumero();
+            }
+        }
+        return of(anno, extPorDia, festivosAnno);
+    }
+
+    /**
+     * Crea el calendario de publicación de un año a partir de la proyección de sus boletines extraordinarios, sin
+     * necesidad de cargar las entidades.
+     *
+     * @param anno el año del calendario.
+     * @param extraordinariosAnno el día y número de los boletines extraordinarios habidos durante el año. Se ignoran
+     *                            los de otros años.
+     * @param festivosAnno los festivos del año. Se ignoran los de otros años.
+     * @return el calendario del año.
+     */
+    public static YearCalendar ofNumeros(int anno, Collection<ExtraordinarioDia> extraordinariosAnno,
+                                         Collection<Festivo> festivosAnno) {
+        int[] extPorDia = new int[Year.of(anno).length()];
+        int epochDayUnoEnero = (int) LocalDate.of(anno, Month.JANUARY, 1).toEpochDay();
+        for (ExtraordinarioDia ext : extraordinariosAnno) {
+            int indice = ext.epochDay() - epochDayUnoEnero;
+            if (indice >= 0 && indice < extPorDia.length) {
+                extPorDia[indice] += ext.numero();
+            }
+        }
+        return of(anno, extPorDia, festivosAnno);
+    }
+
+    /**
+     * Crea el calendario de publicación de un año.
+     *
+     * @param anno el año del calendario.
+     * @param extPorDia el número de boletines extraordinarios de cada día del año, empezando en cero.
+     * @param festivosAnno los festivos del año. Se ignoran los de otros años.
+     * @return el calendario del año.
+     */
+    private static YearCalendar of(int anno, int[] extPorDia, Collection<Festivo> festivosAnno) {
+        log.debug("Inicia creación del calendario de publicación para el año {}", anno);
+        final LocalDate unoEnero = LocalDate.of(anno, Month.JANUARY, 1);
+        final int numDias = extPorDia.length;
+
+        boolean[] sinBoletinPorDia = new boolean[numDias];
+        for (LocalDate fechaSinBoletin : CalcUtils.fechasSinBoletin(anno)) {
+            sinBoletinPorDia[fechaSinBoletin.getDayOfYear() - 1] = true;
+        }
+
+        boolean[] festivoPorDia = new boolean[numDias];
+        boolean tieneFestivos = false;
+        for (Festivo festivo : festivosAnno) {
+            if (festivo.getFecha().getYear() == anno) {
+                festivoPorDia[festivo.getFecha().getDayOfYear() - 1] = true;
+                tieneFestivos = true;
+            }
+        }
+
+        int[] numBots = new int[numDias];
+        int[] publicadosPorDia = new int[numDias];
+        long[] laborables = new long[(numDias + Long.SIZE - 1) / Long.SIZE];
+        long[] conBoletin = new long[laborables.length];
+        int publicados = 0;
+        // Día de la semana ISO: 1 (lunes) a 7 (domingo). Se avanza a mano para no crear fechas en cada iteración.
+        int diaSemana = unoEnero.getDayOfWeek().getValue();
+        for (int i = 0; i < numDias; i++) {
+            boolean domingo = diaSemana == DayOfWeek.SUNDAY.getValue();
+            boolean sinBoletin = !domingo && sinBoletinPorDia[i];
+            if (!domingo && !sinBoletin) {
+                publicados++;
+                conBoletin[i / Long.SIZE] |= 1L << i;
+                if (diaSemana != DayOfWeek.SATURDAY.getValue() && !festivoPorDia[i]) {
+                    laborables[i / Long.SIZE] |= 1L << i;
+                }
+            }
+            publicados += extPorDia[i];
+            publicadosPorDia[i] = publicados;
+            // Un día sin boletín que no es domingo toma el número del siguiente boletín ordinario.
+            numBots[i] = sinBoletin ? publicados + 1 : publicados;
+            diaSemana = diaSemana % 7 + 1;
+        }
+        log.debug("Finaliza creación del calendario de publicación para el año {}", anno);
+        return new YearCalendar(anno, numBots, publicadosPorDia, (int) unoEnero.toEpochDay(), laborables,
+                conBoletin, tieneFestivos);
+    }
+
+    /**
+     * Obtiene el número de Boletín que corresponde a una fecha del año del calendario.
+     *
+     * @param fecha la fecha para la que se quiere obtener el número de Boletín.
+     * @return el número de Boletín.
+     * @throws IllegalArgumentException si la fecha no pertenece al año del calendario.
+     */
+    public int getNumBot(LocalDate fecha) {
+        return numBots[indiceDe(fecha)];
+    }
+
+    /**
+     * Obtiene el número de boletines, ordinarios y extraordinarios, que se publican en una fecha del año del
+     * calendario.
+     *
+     * @param fecha la fecha.
+     * @return el número de boletines publicados ese día, cero si no hay publicación.
+     * @throws IllegalArgumentException si la fecha no pertenece al año del calendario.
+     */
+    public int getNumBotsPublicados(LocalDate fecha) {
+        int indice = indiceDe(fecha);
+        return indice == 0 ? publicados[0] : publicados[indice] - publicados[indice - 1];
+    }
+
+    /**
+     * Obtiene el número del último Boletín publicado hasta una fecha del año del calendario, incluida.
+     * <p>
+     * Coincide con {@link #getNumBot(LocalDate)} salvo en las fechas sin boletín que no caen en domingo.
+     *
+     * @param fecha la fecha.
+     * @return el número del último Boletín publicado hasta la fecha, o cero si aún no se ha publicado ninguno.
+     * @throws IllegalArgumentException si la fecha no pertenece al año del calendario.
+     */
+    public int getUltimoNumBotPublicado(LocalDate fecha) {
+        return publicados[indiceDe(fecha)];
+    }
+
+    /**
+     * Obtiene la fecha en que se publicó un número de Boletín del año del calendario.
+     * <p>
+     * Los días con boletines extraordinarios tienen varios números; para cualquiera de ellos se devuelve ese día.
+     *
+     * @param numBot el número de Boletín.
+     * @return Optional con la fecha de publicación, o vacío si ese número no se publica en el año.
+     */
+    public Optional<LocalDate> getFecha(int numBot) {
+        if (numBot < 1 || numBot > publicados[publicados.length - 1]) {
+            return Optional.empty();
+        }
+        int desde = 0;
+        int hasta = publicados.length - 1;
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (publicados[medio] < numBot) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return Optional.of(LocalDate.ofEpochDay((long) epochDayUnoEnero + desde));
+    }
+
+    /**
+     * Calcula, a partir de un día, el número de boletines seguidos que se publican en día no laboral dentro del año del
+     * calendario. Ver {@link CalcUtils#numBotsEnFestivoSeguidos(int, int, long[], long[])}.
+     * <p>
+     * Para continuar en este año un recorrido que viene del año anterior, se pasa el día epoch del 31 de diciembre
+     * del año anterior.
+     *
+     * @param epochDay el día epoch a partir del cual se quieren calcular los días no laborales con Boletín seguidos.
+     * @return número de boletines seguidos que se publican en día no laboral, a partir del día siguiente. Si se llega
+     * al final del año sin encontrar un día laboral, devuelve {@code -1 - n}, siendo {@code n} los boletines contados
+     * hasta el 31 de diciembre.
+     */
+    int numBotsEnFestivoSeguidosEnAnno(int epochDay) {
+        return CalcUtils.numBotsEnFestivoSeguidos(epochDay, epochDayUnoEnero, laborables, conBoletin);
+    }
+
+    /**
+     * Comprueba si una fecha del año del calendario es día laboral con Boletín ordinario, es decir, un día que corta
+     * el recorrido de boletines seguidos en día no laboral.
+     *
+     * @param fecha la fecha.
+     * @return true si es día laboral con Boletín ordinario, false en caso contrario.
+     * @throws IllegalArgumentException si la fecha no pertenece al año del calendario.
+     */
+    public boolean esLaborable(LocalDate fecha) {
+        int indice = indiceDe(fecha);
+        return (laborables[indice / Long.SIZE] & 1L << indice) != 0;
+    }
+
+    /**
+     * Comprueba si se proporcionaron festivos al crear el calendario.
+     *
+     * @return true si el calendario tiene algún festivo, false en caso contrario.
+     */
+    public boolean tieneFestivos() {
+        return tieneFestivos;
+    }
+
+    /**
+     * Obtiene la posición de una fecha en los arrays del calendario.
+     *
+     * @param fecha la fecha.
+     * @return la posición, empezando en cero para el 1 de enero.
+     * @throws IllegalArgumentException si la fecha no pertenece al año del calendario.
+     */
+    private int indiceDe(LocalDate fecha) {
+        if (fecha.getYear() != anno) {
+            throw new IllegalArgumentException("La fecha " + fecha + " no pertenece al año " + anno);
+        }
+        return fecha.getDayOfYear() - 1;
+    }
+
+    public int getAnno() {
+        return anno;
+    }
+}
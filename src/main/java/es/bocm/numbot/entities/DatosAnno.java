@@ -0,0 +1,79 @@
+package es.bocm.numbot.entities;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Festivos y boletines extraordinarios de un año, leídos juntos de la BBDD.
+ * <p>
+ * Es inmutable: las listas se copian al crearlo y no se pueden modificar.
+ *
+ * @param anno el año.
+ * @param festivos los festivos del año.
+ * @param extraordinarios los boletines extraordinarios del año.
+ */
+public record DatosAnno(int anno, List<Festivo> festivos, List<Extraordinario> extraordinarios) {
+    public DatosAnno {
+        festivos = List.copyOf(festivos);
+        extraordinarios = List.copyOf(extraordinarios);
+    }
+
+    /**
+     * Comprueba si otros datos tienen el mismo año, festivos y boletines extraordinarios, sin tener en cuenta el orden
+     * ni los ids.
+     *
+     * @param otros los otros datos.
+     * @return true si tienen el mismo contenido, false en caso contrario.
+     */
+    public boolean mismoContenido(DatosAnno otros) {
+        return anno == otros.anno
+                && festivos.size() == otros.festivos.size()
+                && extraordinarios.size() == otros.extraordinarios.size()
+                && contenido(festivos, Festivo::toMap).equals(contenido(otros.festivos, Festivo::toMap))
+                && contenido(extraordinarios, Extraordinario::toMap)
+                .equals(contenido(otros.extraordinarios, Extraordinario::toMap));
+    }
+
+    /**
+     * Obtiene una huella del contenido: un resumen SHA-256 de los festivos y boletines extraordinarios, sin tener en
+     * cuenta el orden ni los ids. Solo depende de los datos guardados en la BBDD, así que es la misma en todos los
+     * nodos y tras reiniciar el servicio.
+     *
+     * @return la huella, en Base64 para URL y sin relleno.
+     */
+    public String huella() {
+        MessageDigest resumen;
+        try {
+            resumen = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Todas las JVM deben admitir SHA-256", e);
+        }
+        Stream.concat(lineas("festivo", festivos, Festivo::toMap),
+                        lineas("extraordinario", extraordinarios, Extraordinario::toMap))
+                .sorted()
+                .forEach(linea -> resumen.update((linea + '\n').getBytes(StandardCharsets.UTF_8)));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(resumen.digest(), 12));
+    }
+
+    private static <T> Stream<String> lineas(String tipo, Collection<T> elementos,
+                                             Function<T, Map<String, String>> mapa) {
+        // El orden de Map.of cambia entre ejecuciones de la JVM, así que se ordenan las claves.
+        return elementos.stream().map(e -> tipo + new TreeMap<>(mapa.apply(e)));
+    }
+
+    private static <T> Set<Map<String, String>> contenido(Collection<T> elementos,
+                                                         Function<T, Map<String, String>> mapa) {
+        return elementos.stream().map(mapa).collect(Collectors.toSet());
+    }
+}
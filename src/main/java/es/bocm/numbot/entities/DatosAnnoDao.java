@@ -0,0 +1,76 @@
+package es.bocm.numbot.entities;
+
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DAO para leer juntos los datos de un año ({@link DatosAnno}).
+ * <p>
+ * Es el camino de lectura de las peticiones GET: no participa en transacciones JTA y devuelve objetos que Hibernate no
+ * gestiona, así que no hay volcado ni comprobación de cambios al terminar.
+ * <p>
+ * No se usa la caché de segundo nivel de Hibernate: delante está {@link es.bocm.numbot.cache.DatosAnnoCache}, que
+ * guarda los datos de cada año y solo llama a este DAO tras una modificación o cuando caducan.
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class DatosAnnoDao {
+    private static final Logger log = LoggerFactory.getLogger(DatosAnnoDao.class);
+
+    /**
+     * Consulta los festivos y los boletines extraordinarios de un rango de fechas a la vez. Cada fila indica en la
+     * primera columna si es un festivo (F) o un Extraordinario (E).
+     */
+    private static final String CONSULTA_DATOS_ANNO =
+            "select 'F', fecha, descripcion, 0 from festivos where fecha >= ?1 and fecha < ?2 " +
+            "union all " +
+            "select 'E', fecha, null, numero from extraordinarios where fecha >= ?1 and fecha < ?2";
+
+    @PersistenceContext(unitName = "pu-numbot")
+    private EntityManager em;
+
+    /**
+     * Busca los festivos y los boletines extraordinarios de un año.
+     * <p>
+     * Se leen con una única consulta, en un solo viaje a la BBDD y sin transacción. Los objetos devueltos se crean a
+     * partir de las columnas leídas, sin id, y no están asociados a ningún contexto de persistencia: son solo valores
+     * para los cálculos y las respuestas, y no se pueden usar para modificar la BBDD. No se vuelven a validar, como
+     * tampoco lo hace Hibernate al cargar entidades: una fila antigua que no cumpla las reglas actuales se devuelve
+     * tal cual en lugar de impedir leer el año.
+     *
+     * @param anno año para el que buscar los datos.
+     * @return los festivos y boletines extraordinarios del año.
+     */
+    public DatosAnno buscarPorAnno(int anno) {
+        log.debug("Inicia búsqueda de festivos y extraordinarios para el año {}", anno);
+        @SuppressWarnings("unchecked")
+        List<Object[]> filas = em.createNativeQuery(CONSULTA_DATOS_ANNO)
+                .setParameter(1, LocalDate.of(anno, Month.JANUARY, 1))
+                .setParameter(2, LocalDate.of(anno + 1, Month.JANUARY, 1))
+                .getResultList();
+        List<Festivo> festivos = new ArrayList<>();
+        List<Extraordinario> extraordinarios = new ArrayList<>();
+        for (Object[] fila : filas) {
+            LocalDate fecha = ((Date) fila[1]).toLocalDate();
+            if ("F".equals(String.valueOf(fila[0]))) {
+                festivos.add(Festivo.leido(fecha, (String) fila[2]));
+            } else {
+                extraordinarios.add(Extraordinario.leido(fecha, ((Number) fila[3]).intValue()));
+            }
+        }
+        DatosAnno datos = new DatosAnno(anno, festivos, extraordinarios);
+        log.debug("Finaliza búsqueda de festivos y extraordinarios para el año {} con resultado:\n{}", anno, datos);
+        return datos;
+    }
+}
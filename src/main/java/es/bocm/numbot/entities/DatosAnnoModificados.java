@@ -0,0 +1,30 @@
+package es.bocm.numbot.entities;
+
+import java.time.LocalDate;
+
+/**
+ * Evento CDI que lanzan los DAO cuando modifican en la BBDD los datos de un año.
+ *
+ * @param anno el año modificado.
+ * @param tipo el tipo de datos modificados.
+ * @param desde la primera fecha modificada del año. Los datos anteriores a ella no han cambiado.
+ */
+public record DatosAnnoModificados(int anno, Tipo tipo, LocalDate desde) {
+    /**
+     * Tipos de datos que se guardan por año.
+     */
+    public enum Tipo {
+        FESTIVOS,
+        EXTRAORDINARIOS
+    }
+
+    /**
+     * Crea un evento de modificación de todo el año.
+     *
+     * @param anno el año modificado.
+     * @param tipo el tipo de datos modificados.
+     */
+    public DatosAnnoModificados(int anno, Tipo tipo) {
+        this(anno, tipo, LocalDate.of(anno, 1, 1));
+    }
+}
@@ -10,9 +10,16 @@ import java.util.Map;
  * Representa el número de boletines extraordiarios publicados en una fecha determinada.
  */
 @Entity
-@Table(name = "extraordinarios")
-@NamedQuery(name="Extraordinario.buscarPorAnno", query="select e from Extraordinario e where YEAR(e.fecha) = :anno")
+@Table(name = "extraordinarios",
+        indexes = @Index(name = "idx_extraordinarios_fecha", columnList = "fecha", unique = true))
+@NamedQuery(name="Extraordinario.buscarPorAnno",
+        query="select e from Extraordinario e where e.fecha >= :inicio and e.fecha < :fin")
 public class Extraordinario {
+    /**
+     * Formato de la fecha en las respuestas del recurso REST. Es inmutable, así que se comparte.
+     */
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("MM-dd");
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     @Column(name = "id", nullable = false)
@@ -21,7 +28,7 @@ public class Extraordinario {
     /**
      * Fecha de los boletines extraordinarios.
      */
-    @Column(name = "FECHA", nullable = false, unique = true)
+    @Column(name = "FECHA", nullable = false)
     private LocalDate fecha;
 
     /**
@@ -53,14 +60,29 @@ public class Extraordinario {
         this.numero = numero;
     }
 
+    /**
+     * Crea un Extraordinario leído de la BBDD, sin id y sin validar, como los que carga Hibernate: los datos guardados
+     * se devuelven tal cual aunque no cumplan las reglas de {@link #Extraordinario(Long, LocalDate, int)}. Ver
+     * {@link DatosAnnoDao#buscarPorAnno(int)}.
+     *
+     * @param fecha la fecha.
+     * @param numero el número de boletines extraordinarios.
+     * @return el Extraordinario.
+     */
+    static Extraordinario leido(LocalDate fecha, int numero) {
+        Extraordinario extraordinario = new Extraordinario();
+        extraordinario.fecha = fecha;
+        extraordinario.numero = numero;
+        return extraordinario;
+    }
+
     /**
      * Obtiene la información del objeto en formato adecuado para las respuestas del recurso REST.
      *
      * @return la información del objeto.
      */
     public Map<String, String> toMap() {
-        DateTimeFormatter formmater = DateTimeFormatter.ofPattern("MM-dd");
-        return Map.of("numero", Integer.toString(this.numero), "fecha", this.fecha.format(formmater));
+        return Map.of("numero", Integer.toString(this.numero), "fecha", this.fecha.format(FORMATO_FECHA));
     }
 
     public LocalDate getFecha() {
@@ -1,15 +1,24 @@
 package es.bocm.numbot.entities;
 
 import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.time.LocalDate;
+import java.time.Month;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 /**
  * DAO para la entidad {@link Extraordinario}
@@ -21,6 +30,20 @@ public class ExtraordinarioDao {
     @PersistenceContext(unitName = "pu-numbot")
     private EntityManager em;
 
+    @Inject
+    private Event<DatosAnnoModificados> eventos;
+
+    /**
+     * Sentencia que crea o actualiza el número de boletines extraordinarios de una fecha. Solo modifica la fila si el
+     * número cambia, así que el recuento de filas modificadas indica si ha habido cambios. El id se obtiene de la
+     * misma secuencia que usa Hibernate para la entidad.
+     */
+    private static final String MERGE_EXTRAORDINARIO = "merge into extraordinarios e " +
+            "using (values (cast(? as date), cast(? as integer))) as v (fecha, numero) on e.fecha = v.fecha " +
+            "when matched and e.numero <> v.numero then update set e.numero = v.numero " +
+            "when not matched then insert (id, fecha, numero) " +
+            "values (next value for hibernate_sequence, v.fecha, v.numero)";
+
     /**
      * Busca un Extraordinario en una fecha determinada.
      *
@@ -52,19 +75,101 @@ public class ExtraordinarioDao {
         log.debug("Inicia búsqueda de extraordinarios para el año {}", anno);
         List<Extraordinario> extraordinarios =
                 em.createNamedQuery("Extraordinario.buscarPorAnno", Extraordinario.class)
-                        .setParameter("anno", anno)
+                        .setParameter("inicio", LocalDate.of(anno, Month.JANUARY, 1))
+                        .setParameter("fin", LocalDate.of(anno + 1, Month.JANUARY, 1))
                         .getResultList();
         log.debug("Finaliza búsqueda de extraordinarios para el año {} con resultado:\n{}", anno, extraordinarios);
         return extraordinarios;
     }
 
+    /**
+     * Busca el día y el número de todos los boletines extraordinarios de un año, sin crear las entidades.
+     *
+     * @param anno año para el que buscar los boletines.
+     * @return día y número de los boletines extraordinarios del año indicado.
+     */
+    public List<ExtraordinarioDia> buscarNumerosPorAnno(int anno) {
+        log.debug("Inicia búsqueda de números de extraordinarios para el año {}", anno);
+        List<ExtraordinarioDia> numeros = em.createQuery("select new es.bocm.numbot.entities.ExtraordinarioDia(" +
+                        "e.fecha, e.numero) from Extraordinario e where e.fecha >= :inicio and e.fecha < :fin",
+                        ExtraordinarioDia.class)
+                .setParameter("inicio", LocalDate.of(anno, Month.JANUARY, 1))
+                .setParameter("fin", LocalDate.of(anno + 1, Month.JANUARY, 1))
+                .getResultList();
+        log.debug("Finaliza búsqueda de números de extraordinarios para el año {} con resultado:\n{}", anno, numeros);
+        return numeros;
+    }
+
+    /**
+     * Suma en la BBDD el número de boletines extraordinarios publicados en el año de una fecha hasta esa fecha,
+     * incluida. Ver {@link es.bocm.numbot.calculations.CalcularNumBot#getNumBot(LocalDate, int)}.
+     *
+     * @param fecha la fecha.
+     * @return el número de boletines extraordinarios publicados desde el 1 de enero hasta la fecha.
+     */
+    public int sumarNumerosHasta(LocalDate fecha) {
+        log.debug("Inicia suma de extraordinarios hasta la fecha {}", fecha);
+        long suma = em.createQuery("select coalesce(sum(e.numero), 0) from Extraordinario e " +
+                        "where e.fecha >= :inicio and e.fecha <= :fecha", Long.class)
+                .setParameter("inicio", LocalDate.of(fecha.getYear(), Month.JANUARY, 1))
+                .setParameter("fecha", fecha)
+                .getSingleResult();
+        log.debug("Finaliza suma de extraordinarios hasta la fecha {} con resultado {}", fecha, suma);
+        return (int) suma;
+    }
+
     /**
      * Crea o actualiza en la BBDD un Extraordinario.
+     * <p>
+     * Se notifica la modificación con un evento {@link DatosAnnoModificados}.
      *
      * @param extraordinario Extraordinario a crear o actualizar.
      */
     public void crearOActualizar(Extraordinario extraordinario) {
         log.debug("Creando o actualizando Extraordinario {}", extraordinario);
         em.merge(extraordinario);
+        eventos.fire(new DatosAnnoModificados(extraordinario.getFecha().getYear(),
+                DatosAnnoModificados.Tipo.EXTRAORDINARIOS, extraordinario.getFecha()));
+    }
+
+    /**
+     * Crea o actualiza en la BBDD los boletines extraordinarios de un año.
+     * <p>
+     * Se hace con una única sentencia MERGE nativa, enviada en un lote JDBC con una fila por fecha, así que cuesta un
+     * solo viaje a la BBDD sea cual sea el número de fechas. Las fechas del año que no se incluyen no cambian.
+     * <p>
+     * Si hay cambios, se notifican con un evento {@link DatosAnnoModificados} a partir de la primera fecha cambiada.
+     *
+     * @param anno el año.
+     * @param extraordinarios boletines extraordinarios a crear o actualizar. Todos deben ser del año.
+     * @return todos los boletines extraordinarios del año tras la actualización.
+     * @throws IllegalArgumentException si algún Extraordinario no es del año.
+     */
+    public List<Extraordinario> crearOActualizarAnno(int anno, Collection<Extraordinario> extraordinarios) {
+        log.debug("Creando o actualizando los extraordinarios del año {}:\n{}", anno, extraordinarios);
+        if (extraordinarios.stream().anyMatch(e -> e.getFecha().getYear() != anno)) {
+            throw new IllegalArgumentException("Todos los extraordinarios deben ser del año " + anno);
+        }
+        List<Extraordinario> lista = List.copyOf(extraordinarios);
+        int[] modificadas = em.unwrap(Session.class).doReturningWork(conexion -> {
+            try (PreparedStatement merge = conexion.prepareStatement(MERGE_EXTRAORDINARIO)) {
+                for (Extraordinario ext : lista) {
+                    merge.setDate(1, Date.valueOf(ext.getFecha()));
+                    merge.setInt(2, ext.getNumero());
+                    merge.addBatch();
+                }
+                return merge.executeBatch();
+            }
+        });
+        Optional<LocalDate> desde = IntStream.range(0, modificadas.length)
+                .filter(i -> modificadas[i] != 0)
+                .mapToObj(i -> lista.get(i).getFecha())
+                .min(Comparator.naturalOrder());
+        if (desde.isPresent()) {
+                eventos.fire(new DatosAnnoModificados(anno, DatosAnnoModificados.Tipo.EXTRAORDINARIOS, desde.get()));
+        } else {
+            log.debug("Los extraordinarios del año {} no cambian", anno);
+        }
+        return buscarExtraordinariosPorAnno(anno);
     }
 }
@@ -0,0 +1,22 @@
+package es.bocm.numbot.entities;
+
+import java.time.LocalDate;
+
+/**
+ * Proyección ligera de un {@link Extraordinario}: solo el día y el número de boletines extraordinarios, sin crear la
+ * entidad.
+ *
+ * @param epochDay el día epoch de la fecha de los boletines extraordinarios.
+ * @param numero el número de boletines extraordinarios publicados ese día.
+ */
+public record ExtraordinarioDia(int epochDay, int numero) {
+    /**
+     * Crea la proyección a partir de una fecha. Lo usa la consulta de {@link ExtraordinarioDao}.
+     *
+     * @param fecha la fecha de los boletines extraordinarios.
+     * @param numero el número de boletines extraordinarios publicados ese día.
+     */
+    public ExtraordinarioDia(LocalDate fecha, int numero) {
+        this((int) fecha.toEpochDay(), numero);
+    }
+}
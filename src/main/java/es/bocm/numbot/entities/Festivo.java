@@ -16,20 +16,33 @@ import java.util.Map;
  * Para no confundir los cálculos, no debe ser sábado, ni domingo, ni fecha en la que no se publica el Boletín.
  */
 @Entity
-@Table(name = "festivos")
-@NamedQuery(name="Festivo.buscarPorAnno", query="select f from Festivo f where YEAR(f.fecha) = :anno")
+@Table(name = "festivos",
+        indexes = @Index(name = "idx_festivos_fecha", columnList = "fecha", unique = true))
+@NamedQuery(name="Festivo.buscarPorAnno",
+        query="select f from Festivo f where f.fecha >= :inicio and f.fecha < :fin")
 public class Festivo {
     private static final Logger log = LoggerFactory.getLogger(Festivo.class);
 
+    /**
+     * Formato de la fecha en las respuestas del recurso REST. Es inmutable, así que se comparte.
+     */
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("MM-dd");
+
+    /**
+     * Secuencia de la que se obtienen los identificadores, reservados en bloques para insertar en lotes.
+     */
+    static final String SECUENCIA_ID = "festivos_seq";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = SECUENCIA_ID)
+    @SequenceGenerator(name = SECUENCIA_ID, sequenceName = SECUENCIA_ID, allocationSize = 50)
     @Column(name = "id", nullable = false)
     private Long id;
 
     /**
      * La fecha del día festivo.
      */
-    @Column(name = "fecha", nullable = false, unique = true)
+    @Column(name = "fecha", nullable = false)
     private LocalDate fecha;
 
     /**
@@ -64,6 +77,22 @@ public class Festivo {
         log.debug("Finaliza creación de entidad Festivo");
     }
 
+    /**
+     * Crea un festivo leído de la BBDD, sin id y sin validar, como los que carga Hibernate: los datos guardados se
+     * devuelven tal cual aunque no cumplan las reglas de {@link #Festivo(Long, LocalDate, String)}. Ver
+     * {@link DatosAnnoDao#buscarPorAnno(int)}.
+     *
+     * @param fecha la fecha del día festivo.
+     * @param descripcion la descripción del día festivo.
+     * @return el festivo.
+     */
+    static Festivo leido(LocalDate fecha, String descripcion) {
+        Festivo festivo = new Festivo();
+        festivo.fecha = fecha;
+        festivo.descripcion = descripcion;
+        return festivo;
+    }
+
     /**
      * Obtiene la información del objeto en formato adecuado para las respuestas del recurso REST.
      *
@@ -71,14 +100,28 @@ public class Festivo {
      */
     public Map<String, String> toMap() {
         log.debug("Inicia obtención de información de entidad Festivo con formato para respuesta REST.");
-        DateTimeFormatter formmater = DateTimeFormatter.ofPattern("MM-dd");
         Map<String, String> mapa = Map.of("descripcion", this.descripcion, "fecha",
-                this.fecha.format(formmater));
+                this.fecha.format(FORMATO_FECHA));
         log.debug("Finaliza obtención de información de entidad Festivo con formato para respuesta REST " +
                 "con resultado\n{}", mapa);
         return mapa;
     }
 
+    /**
+     * Copia en este festivo la descripción de otro de la misma fecha, si es distinta.
+     *
+     * @param otro el festivo con la descripción nueva.
+     * @return true si la descripción ha cambiado, false en caso contrario.
+     */
+    public boolean actualizar(Festivo otro) {
+        boolean cambia = !descripcion.equals(otro.descripcion);
+        if (cambia) {
+            log.debug("Actualizando la descripción del festivo {} a {}", fecha, otro.descripcion);
+            descripcion = otro.descripcion;
+        }
+        return cambia;
+    }
+
     public LocalDate getFecha() {
         return fecha;
     }
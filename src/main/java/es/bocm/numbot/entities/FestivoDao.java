@@ -1,13 +1,22 @@
 package es.bocm.numbot.entities;
 
 import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * DAO para la entidad {@link Festivo}
@@ -19,6 +28,9 @@ public class FestivoDao {
     @PersistenceContext(unitName = "pu-numbot")
     private EntityManager em;
 
+    @Inject
+    private Event<DatosAnnoModificados> eventos;
+
     /**
      * Busca todos los festivos para un año determinado.
      *
@@ -29,29 +41,89 @@ public class FestivoDao {
         log.debug("Inicia búsqueda de festivos para el año {}", anno);
         List<Festivo> festivos =
             em.createNamedQuery("Festivo.buscarPorAnno", Festivo.class)
-                .setParameter("anno", anno)
+                .setParameter("inicio", LocalDate.of(anno, Month.JANUARY, 1))
+                .setParameter("fin", LocalDate.of(anno + 1, Month.JANUARY, 1))
                 .getResultList();
         log.debug("Finaliza búsqueda de festivos para el año {} con resultado:\n{}", anno, festivos);
         return festivos;
     }
 
     /**
-     * Borra en la BBDD todos los festivos proporcionados.
+     * Busca los años que tienen festivos establecidos.
      *
-     * @param festivos festivos a borrar.
+     * @return los años, en orden.
      */
-    public void borrarFestivos(Collection<Festivo> festivos) {
-        log.debug("Borrando los festivos:\n{}", festivos);
-        festivos.forEach(f -> em.remove(em.merge(f)));
+    public List<Integer> buscarAnnosConFestivos() {
+        log.debug("Inicia búsqueda de años con festivos");
+        List<Integer> annos = em.createQuery("select distinct year(f.fecha) from Festivo f order by year(f.fecha)",
+                Integer.class).getResultList();
+        log.debug("Finaliza búsqueda de años con festivos con resultado {}", annos);
+        return annos;
     }
 
     /**
-     * Crea en la BBDD todos los festivos proporcionados.
+     * Sustituye en la BBDD los festivos de un año por los proporcionados.
+     * <p>
+     * Se comparan con los guardados por fecha, y solo se escriben las diferencias: se crean los festivos de fechas
+     * nuevas, se borran los de fechas que ya no están y se actualiza la descripción de los que la cambian. Las
+     * escrituras se envían en lotes JDBC (ver hibernate.jdbc.batch_size en persistence.xml), y los identificadores se
+     * reservan de la secuencia de cincuenta en cincuenta.
+     * <p>
+     * Si hay cambios, se notifican con un evento {@link DatosAnnoModificados} a partir de la primera fecha cambiada.
+     * Si el año pasa de no tener festivos a tenerlos, o al revés, el evento es de todo el año: los números de Boletín
+     * de los años sin festivos no se calculan, así que cambian también los de las fechas anteriores al primer
+     * festivo. Si no hay cambios, no se escribe nada ni se lanza el evento, así que no cambia la versión de los datos
+     * del año.
      *
-     * @param festivos festivos a crear.
+     * @param anno el año.
+     * @param festivos festivos nuevos del año.
+     * @return true si ha cambiado algún festivo, false en caso contrario.
+     */
+    public boolean reemplazarFestivos(int anno, Collection<Festivo> festivos) {
+        log.debug("Reemplazando los festivos del año {} por:\n{}", anno, festivos);
+        Map<LocalDate, Festivo> existentes = buscarFestivosPorAnno(anno).stream()
+                .collect(Collectors.toMap(Festivo::getFecha, Function.identity()));
+        boolean cambiaTenerFestivos = existentes.isEmpty() != festivos.isEmpty();
+        List<LocalDate> cambiadas = new ArrayList<>();
+        for (Festivo festivo : festivos) {
+            Festivo existente = existentes.remove(festivo.getFecha());
+            if (existente == null) {
+                em.persist(festivo);
+                cambiadas.add(festivo.getFecha());
+            } else if (existente.actualizar(festivo)) {
+                cambiadas.add(festivo.getFecha());
+            }
+        }
+        existentes.values().forEach(em::remove);
+        cambiadas.addAll(existentes.keySet());
+        if (cambiadas.isEmpty()) {
+            log.debug("Los festivos del año {} no cambian", anno);
+            return false;
+        }
+        em.flush();
+        log.debug("Cambiados {} festivos del año {}, {} de ellos borrados", cambiadas.size(), anno,
+                existentes.size());
+        eventos.fire(cambiaTenerFestivos
+                ? new DatosAnnoModificados(anno, DatosAnnoModificados.Tipo.FESTIVOS)
+                : new DatosAnnoModificados(anno, DatosAnnoModificados.Tipo.FESTIVOS, Collections.min(cambiadas)));
+        return true;
+    }
+
+    /**
+     * Ajusta la secuencia de identificadores de festivos para que siga al mayor identificador existente.
+     * <p>
+     * Es necesario una vez, en las BBDD creadas antes de usar la secuencia propia {@value Festivo#SECUENCIA_ID}, cuyos
+     * festivos tienen identificadores de la secuencia común de Hibernate.
      */
-    public void crearFestivos(Collection<Festivo> festivos) {
-        log.debug("Creando los festivos:\n{}", festivos);
-        festivos.forEach(f -> em.merge(f));
+    public void alinearSecuenciaId() {
+        long maxId = em.createQuery("select coalesce(max(f.id), 0) from Festivo f", Long.class).getSingleResult();
+        Object siguiente = em.createNativeQuery("select next_value from information_schema.sequences " +
+                        "where sequence_name = upper('" + Festivo.SECUENCIA_ID + "')")
+                .getSingleResult();
+        if (Long.parseLong(String.valueOf(siguiente)) <= maxId) {
+            log.info("Ajustando la secuencia {} para que empiece en {}", Festivo.SECUENCIA_ID, maxId + 1);
+            em.createNativeQuery("alter sequence " + Festivo.SECUENCIA_ID + " restart with " + (maxId + 1))
+                    .executeUpdate();
+        }
     }
 }
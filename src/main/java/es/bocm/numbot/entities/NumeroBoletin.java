@@ -0,0 +1,103 @@
+package es.bocm.numbot.entities;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * Números de Boletín publicados en una fecha, ya calculados.
+ * <p>
+ * La tabla tiene una fila por cada fecha con publicación de los años con festivos establecidos, y la mantiene
+ * {@link NumeroBoletinDao} cada vez que se modifican los festivos o los boletines extraordinarios. Así, consultar el
+ * número de una fecha es una lectura por clave primaria, y otras herramientas que accedan a la BBDD pueden consultar
+ * la numeración directamente.
+ */
+@Entity
+@Table(name = "numeros_boletin")
+@NamedQuery(name = "NumeroBoletin.buscarEntreFechas",
+        query = "select n from NumeroBoletin n where n.fecha >= :desde and n.fecha <= :hasta")
+public class NumeroBoletin {
+    /**
+     * Fecha de publicación.
+     */
+    @Id
+    @Column(name = "fecha", nullable = false)
+    private LocalDate fecha;
+
+    /**
+     * Número del primer Boletín publicado en la fecha.
+     */
+    @Column(name = "primer_numero", nullable = false)
+    private int primerNumero;
+
+    /**
+     * Número del último Boletín publicado en la fecha. Es el número que corresponde a la fecha.
+     */
+    @Column(name = "ultimo_numero", nullable = false)
+    private int ultimoNumero;
+
+    /**
+     * Número de boletines seguidos que se publican en día no laboral a partir del día siguiente.
+     */
+    @Column(name = "en_no_laboral_seguidos", nullable = false)
+    private int numBotsEnNoLaboralSeguidos;
+
+    public NumeroBoletin() {
+    }
+
+    /**
+     * Crea un objeto NumeroBoletin.
+     *
+     * @param fecha la fecha de publicación.
+     * @param primerNumero el número del primer Boletín publicado en la fecha.
+     * @param ultimoNumero el número del último Boletín publicado en la fecha.
+     * @param numBotsEnNoLaboralSeguidos el número de boletines seguidos que se publican en día no laboral a partir
+     *                                   del día siguiente.
+     */
+    public NumeroBoletin(LocalDate fecha, int primerNumero, int ultimoNumero, int numBotsEnNoLaboralSeguidos) {
+        if (fecha == null) {
+            throw new IllegalArgumentException("La fecha no puede ser nula");
+        }
+        if (primerNumero < 1 || ultimoNumero < primerNumero) {
+            throw new IllegalArgumentException("Números de Boletín no válidos: " + primerNumero + " - " +
+                    ultimoNumero);
+        }
+        this.fecha = fecha;
+        this.primerNumero = primerNumero;
+        this.ultimoNumero = ultimoNumero;
+        this.numBotsEnNoLaboralSeguidos = numBotsEnNoLaboralSeguidos;
+    }
+
+    /**
+     * Copia los números de otro objeto de la misma fecha.
+     *
+     * @param otro el objeto del que copiar los números.
+     * @return true si ha cambiado algún número, false en caso contrario.
+     */
+    public boolean actualizar(NumeroBoletin otro) {
+        boolean cambia = primerNumero != otro.primerNumero || ultimoNumero != otro.ultimoNumero ||
+                numBotsEnNoLaboralSeguidos != otro.numBotsEnNoLaboralSeguidos;
+        if (cambia) {
+            primerNumero = otro.primerNumero;
+            ultimoNumero = otro.ultimoNumero;
+            numBotsEnNoLaboralSeguidos = otro.numBotsEnNoLaboralSeguidos;
+        }
+        return cambia;
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public int getPrimerNumero() {
+        return primerNumero;
+    }
+
+    public int getUltimoNumero() {
+        return ultimoNumero;
+    }
+
+    public int getNumBotsEnNoLaboralSeguidos() {
+        return numBotsEnNoLaboralSeguidos;
+    }
+}
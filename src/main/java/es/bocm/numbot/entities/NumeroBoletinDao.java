@@ -0,0 +1,138 @@
+package es.bocm.numbot.entities;
+
+import es.bocm.numbot.calculations.MultiYearCalendar;
+import es.bocm.numbot.calculations.YearCalendar;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * DAO para la entidad {@link NumeroBoletin}
+ */
+@Stateless
+public class NumeroBoletinDao {
+    private static final Logger log = LoggerFactory.getLogger(NumeroBoletinDao.class);
+
+    @PersistenceContext(unitName = "pu-numbot")
+    private EntityManager em;
+
+    @Inject
+    private FestivoDao festDao;
+
+    @Inject
+    private ExtraordinarioDao extDao;
+
+    /**
+     * Busca los números de Boletín publicados en una fecha.
+     * <p>
+     * Es el camino de lectura de las peticiones GET: se hace sin transacción, así que el objeto devuelto no está
+     * asociado a ningún contexto de persistencia.
+     *
+     * @param fecha la fecha.
+     * @return Optional con los números de Boletín de la fecha, o vacío si no hay fila para ella: la fecha no tiene
+     * publicación, el año no tiene festivos establecidos, o su número de Boletín no es el último publicado.
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public Optional<NumeroBoletin> buscarPorFecha(LocalDate fecha) {
+        log.debug("Inicia búsqueda de números de Boletín para la fecha {}", fecha);
+        Optional<NumeroBoletin> numeroBoletin = Optional.ofNullable(em.find(NumeroBoletin.class, fecha));
+        log.debug("Finaliza búsqueda de números de Boletín para la fecha {} con resultado {}", fecha, numeroBoletin);
+        return numeroBoletin;
+    }
+
+    /**
+     * Recalcula los números de Boletín cuando se modifican los datos de un año, dentro de la misma transacción que la
+     * modificación.
+     *
+     * @param evento el evento de modificación.
+     */
+    public void onDatosAnnoModificados(@Observes DatosAnnoModificados evento) {
+        recalcularDesde(evento.desde());
+    }
+
+    /**
+     * Recalcula los números de Boletín a partir de una fecha modificada y hasta el final de su año.
+     * <p>
+     * Se empieza en el último día laboral anterior a la fecha, porque el cálculo de boletines seguidos en día no
+     * laboral de los días inmediatamente anteriores puede llegar hasta ella. Solo se escriben las filas que cambian.
+     *
+     * @param fecha la primera fecha cuyos datos han cambiado.
+     */
+    public void recalcularDesde(LocalDate fecha) {
+        MultiYearCalendar calendarios = new MultiYearCalendar(this::cargarCalendario);
+        LocalDate desde = calendarios.ultimoDiaLaborableAntesDe(fecha);
+        LocalDate hasta = LocalDate.of(fecha.getYear(), Month.DECEMBER, 31);
+        log.debug("Inicia recálculo de números de Boletín entre {} y {}", desde, hasta);
+        Map<LocalDate, NumeroBoletin> existentes = em
+                .createNamedQuery("NumeroBoletin.buscarEntreFechas", NumeroBoletin.class)
+                .setParameter("desde", desde)
+                .setParameter("hasta", hasta)
+                .getResultStream()
+                .collect(Collectors.toMap(NumeroBoletin::getFecha, Function.identity()));
+        int cambios = 0;
+        for (NumeroBoletin numeroBoletin : calcularNumeros(calendarios, desde, hasta)) {
+            NumeroBoletin existente = existentes.remove(numeroBoletin.getFecha());
+            if (existente == null) {
+                em.persist(numeroBoletin);
+                cambios++;
+            } else if (existente.actualizar(numeroBoletin)) {
+                cambios++;
+            }
+        }
+        existentes.values().forEach(em::remove);
+        log.debug("Finaliza recálculo de números de Boletín entre {} y {}: {} filas nuevas o cambiadas, {} borradas",
+                desde, hasta, cambios, existentes.size());
+    }
+
+    /**
+     * Calcula los números de Boletín de las fechas con publicación de un rango.
+     * <p>
+     * Se omiten los años sin festivos establecidos, y las fechas sin boletín ordinario cuyo número de Boletín es el del
+     * siguiente (ver {@link YearCalendar#getUltimoNumBotPublicado(LocalDate)}). Para esas fechas se calcula el número
+     * en el momento de la consulta.
+     *
+     * @param calendarios los calendarios de publicación.
+     * @param desde la primera fecha del rango, incluida.
+     * @param hasta la última fecha del rango, incluida.
+     * @return los números de Boletín de cada fecha, en orden.
+     */
+    static List<NumeroBoletin> calcularNumeros(MultiYearCalendar calendarios, LocalDate desde, LocalDate hasta) {
+        List<NumeroBoletin> numeros = new ArrayList<>();
+        for (LocalDate fecha = desde; !fecha.isAfter(hasta); fecha = fecha.plusDays(1)) {
+            YearCalendar calendario = calendarios.getCalendario(fecha.getYear());
+            int publicados = calendario.getNumBotsPublicados(fecha);
+            int numBot = calendario.getNumBot(fecha);
+            if (calendario.tieneFestivos() && publicados > 0 && numBot == calendario.getUltimoNumBotPublicado(fecha)) {
+                numeros.add(new NumeroBoletin(fecha, numBot - publicados + 1, numBot,
+                        calendarios.numBotsEnFestivoSeguidos(fecha)));
+            }
+        }
+        return numeros;
+    }
+
+    /**
+     * Carga los extraordinarios y festivos de un año, incluidos los modificados en la transacción en curso, y crea su
+     * calendario de publicación.
+     *
+     * @param anno el año.
+     * @return el calendario del año.
+     */
+    private YearCalendar cargarCalendario(int anno) {
+        return YearCalendar.ofNumeros(anno, extDao.buscarNumerosPorAnno(anno), festDao.buscarFestivosPorAnno(anno));
+    }
+}
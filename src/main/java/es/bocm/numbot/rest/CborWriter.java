@@ -0,0 +1,158 @@
+package es.bocm.numbot.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codificador mínimo de CBOR (RFC 8949) que escribe directamente sobre un flujo de salida.
+ * <p>
+ * Solo incluye los tipos que usan las respuestas: enteros, cadenas de texto, arrays, mapas, booleanos y null. Los
+ * arrays y mapas se escriben con su longitud, salvo {@link #inicioArrayIndefinido()}, que se usa cuando la respuesta
+ * se escribe según se calcula y no se conoce de antemano el número de elementos.
+ * <p>
+ * No es seguro entre hilos. No cierra el flujo de salida.
+ */
+final class CborWriter {
+    private static final int TAMANNO_BUFFER = 1024;
+
+    private static final int TIPO_ENTERO = 0;
+    private static final int TIPO_ENTERO_NEGATIVO = 1;
+    private static final int TIPO_TEXTO = 3;
+    private static final int TIPO_ARRAY = 4;
+    private static final int TIPO_MAPA = 5;
+
+    private static final int FALSO = 0xF4;
+    private static final int VERDADERO = 0xF5;
+    private static final int NULO = 0xF6;
+    private static final int ARRAY_INDEFINIDO = 0x9F;
+    private static final int FIN_INDEFINIDO = 0xFF;
+
+    private final OutputStream output;
+    private final byte[] buffer = new byte[TAMANNO_BUFFER];
+    private int posicion;
+
+    CborWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    CborWriter entero(long valor) throws IOException {
+        if (valor >= 0) {
+            cabecera(TIPO_ENTERO, valor);
+        } else {
+            cabecera(TIPO_ENTERO_NEGATIVO, -1 - valor);
+        }
+        return this;
+    }
+
+    CborWriter texto(String valor) throws IOException {
+        if (esAscii(valor)) {
+            // Caso habitual (fechas, números): un byte por carácter, sin crear un array intermedio.
+            cabecera(TIPO_TEXTO, valor.length());
+            for (int i = 0; i < valor.length(); i++) {
+                reservar(1);
+                buffer[posicion++] = (byte) valor.charAt(i);
+            }
+        } else {
+            byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+            cabecera(TIPO_TEXTO, bytes.length);
+            escribirBytes(bytes);
+        }
+        return this;
+    }
+
+    CborWriter inicioArray(int elementos) throws IOException {
+        cabecera(TIPO_ARRAY, elementos);
+        return this;
+    }
+
+    CborWriter inicioArrayIndefinido() throws IOException {
+        byteSimple(ARRAY_INDEFINIDO);
+        return this;
+    }
+
+    CborWriter finIndefinido() throws IOException {
+        byteSimple(FIN_INDEFINIDO);
+        return this;
+    }
+
+    CborWriter inicioMapa(int pares) throws IOException {
+        cabecera(TIPO_MAPA, pares);
+        return this;
+    }
+
+    CborWriter booleano(boolean valor) throws IOException {
+        byteSimple(valor ? VERDADERO : FALSO);
+        return this;
+    }
+
+    CborWriter nulo() throws IOException {
+        byteSimple(NULO);
+        return this;
+    }
+
+    void flush() throws IOException {
+        output.write(buffer, 0, posicion);
+        posicion = 0;
+        output.flush();
+    }
+
+    private void cabecera(int tipoMayor, long valor) throws IOException {
+        reservar(9);
+        int tipo = tipoMayor << 5;
+        if (valor < 24) {
+            buffer[posicion++] = (byte) (tipo | valor);
+        } else if (valor <= 0xFF) {
+            buffer[posicion++] = (byte) (tipo | 24);
+            buffer[posicion++] = (byte) valor;
+        } else if (valor <= 0xFFFF) {
+            buffer[posicion++] = (byte) (tipo | 25);
+            buffer[posicion++] = (byte) (valor >> 8);
+            buffer[posicion++] = (byte) valor;
+        } else if (valor <= 0xFFFFFFFFL) {
+            buffer[posicion++] = (byte) (tipo | 26);
+            for (int desplazamiento = 24; desplazamiento >= 0; desplazamiento -= 8) {
+                buffer[posicion++] = (byte) (valor >> desplazamiento);
+            }
+        } else {
+            buffer[posicion++] = (byte) (tipo | 27);
+            for (int desplazamiento = 56; desplazamiento >= 0; desplazamiento -= 8) {
+                buffer[posicion++] = (byte) (valor >> desplazamiento);
+            }
+        }
+    }
+
+    private static boolean esAscii(String valor) {
+        for (int i = 0; i < valor.length(); i++) {
+            if (valor.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void byteSimple(int valor) throws IOException {
+        reservar(1);
+        buffer[posicion++] = (byte) valor;
+    }
+
+    private void escribirBytes(byte[] bytes) throws IOException {
+        if (bytes.length > TAMANNO_BUFFER - posicion) {
+            output.write(buffer, 0, posicion);
+            posicion = 0;
+            if (bytes.length > TAMANNO_BUFFER) {
+                output.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, posicion, bytes.length);
+        posicion += bytes.length;
+    }
+
+    private void reservar(int bytes) throws IOException {
+        if (posicion + bytes > TAMANNO_BUFFER) {
+            output.write(buffer, 0, posicion);
+            posicion = 0;
+        }
+    }
+}
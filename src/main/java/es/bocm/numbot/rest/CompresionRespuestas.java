@@ -0,0 +1,248 @@
+package es.bocm.numbot.rest;
+
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Comprime en gzip las respuestas grandes, como las de rangos de fechas o las de un año entero, cuando el cliente lo
+ * admite en la cabecera Accept-Encoding.
+ * <p>
+ * Solo se comprimen las respuestas que llegan a un tamaño mínimo: en las pequeñas la compresión apenas ahorra y cuesta
+ * CPU. Como el tamaño de las respuestas que se escriben según se calculan no se conoce de antemano, se guardan en
+ * memoria los primeros bytes, hasta el umbral, y solo si se llega a él se añade la cabecera Content-Encoding y se
+ * empieza a comprimir.
+ * <p>
+ * Las respuestas que ya llevan Content-Encoding, como las que se guardan comprimidas en la caché
+ * ({@link #comprimir(byte[])}), se envían tal cual. Para estas no se aplica el umbral. Ver
+ * {@link #elegirCopiaComprimida(byte[], Supplier, String)}.
+ * <p>
+ * Las respuestas comprimidas llevan una etiqueta (ETag) distinta de las sin comprimir. Ver
+ * {@link #etiquetaComprimida(EntityTag)}.
+ * <p>
+ * Se configura con la propiedad de sistema {@value #PROPIEDAD_UMBRAL}: tamaño mínimo en bytes de las respuestas que se
+ * comprimen. Por defecto, {@value #UMBRAL_BYTES}.
+ */
+@Provider
+public class CompresionRespuestas implements WriterInterceptor {
+    private static final Logger log = LoggerFactory.getLogger(CompresionRespuestas.class);
+
+    public static final String PROPIEDAD_UMBRAL = "numbot.http.compresion.umbral-bytes";
+    private static final int UMBRAL_BYTES = 1024;
+
+    /**
+     * Valor de la cabecera Content-Encoding de las respuestas comprimidas.
+     */
+    public static final String GZIP = "gzip";
+
+    /**
+     * Sufijo que se añade a la etiqueta (ETag) de las respuestas comprimidas.
+     */
+    public static final String SUFIJO_ETIQUETA = "-" + GZIP;
+
+    private static final int UMBRAL = Integer.getInteger(PROPIEDAD_UMBRAL, UMBRAL_BYTES);
+
+    /**
+     * Cabeceras de la petición en curso.
+     */
+    @Context
+    HttpHeaders peticion;
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        MultivaluedMap<String, Object> cabeceras = context.getHeaders();
+        // La respuesta depende de Accept-Encoding aunque esta vez no se comprima.
+        cabeceras.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (cabeceras.containsKey(HttpHeaders.CONTENT_ENCODING)
+                || !aceptaGzip(peticion.getHeaderString(HttpHeaders.ACCEPT_ENCODING))) {
+            context.proceed();
+            return;
+        }
+        SalidaComprimible salida = new SalidaComprimible(context.getOutputStream(), cabeceras, UMBRAL);
+        context.setOutputStream(salida);
+        try {
+            context.proceed();
+        } finally {
+            salida.terminar();
+        }
+    }
+
+    /**
+     * Elige entre un contenido ya serializado y su copia comprimida guardada en la caché.
+     * <p>
+     * A estas copias no se les aplica el umbral: este evita gastar CPU en comprimir respuestas pequeñas, y la copia
+     * guardada se comprime una sola vez por versión de los datos. Por eso se envía siempre que el cliente admita gzip
+     * y ocupe menos que el contenido, lo que incluye los años con los festivos habituales, de menos de 1 KB en JSON.
+     *
+     * @param contenido el contenido sin comprimir.
+     * @param copiaComprimida obtiene la copia comprimida de la caché. Solo se llama si el cliente admite gzip.
+     * @param acceptEncoding el valor de la cabecera Accept-Encoding de la petición, o null si no se envió.
+     * @return la copia comprimida si se debe enviar, o null si se debe enviar el contenido sin comprimir.
+     */
+    public static byte[] elegirCopiaComprimida(byte[] contenido, Supplier<byte[]> copiaComprimida,
+                                               String acceptEncoding) {
+        if (!aceptaGzip(acceptEncoding)) {
+            return null;
+        }
+        byte[] comprimido = copiaComprimida.get();
+        return comprimido.length < contenido.length ? comprimido : null;
+    }
+
+    /**
+     * Comprueba si el cliente admite respuestas en gzip, según su cabecera Accept-Encoding. Se admite si incluye gzip,
+     * o el comodín y no excluye gzip, con calidad (parámetro q) mayor que cero.
+     *
+     * @param acceptEncoding el valor de la cabecera Accept-Encoding, o null si no se envió.
+     * @return true si admite gzip, false en caso contrario.
+     */
+    public static boolean aceptaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean gzip = null;
+        Boolean comodin = null;
+        for (String codificacion : acceptEncoding.split(",")) {
+            String[] partes = codificacion.split(";");
+            String nombre = partes[0].trim().toLowerCase(Locale.ROOT);
+            boolean aceptada = true;
+            for (int i = 1; i < partes.length; i++) {
+                String parametro = partes[i].trim();
+                if (parametro.startsWith("q=")) {
+                    try {
+                        aceptada = Double.parseDouble(parametro.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        aceptada = false;
+                    }
+                }
+            }
+            if (nombre.equals(GZIP) || nombre.equals("x-gzip")) {
+                gzip = aceptada;
+            } else if (nombre.equals("*")) {
+                comodin = aceptada;
+            }
+        }
+        return gzip != null ? gzip : comodin != null && comodin;
+    }
+
+    /**
+     * Obtiene la etiqueta (ETag) de la versión comprimida de una respuesta: la de la versión sin comprimir con el
+     * sufijo {@value #SUFIJO_ETIQUETA}. Una etiqueta fuerte identifica un contenido concreto, y el comprimido es otro.
+     *
+     * @param etiqueta la etiqueta de la respuesta sin comprimir.
+     * @return la etiqueta de la respuesta comprimida.
+     */
+    public static EntityTag etiquetaComprimida(EntityTag etiqueta) {
+        return new EntityTag(etiqueta.getValue() + SUFIJO_ETIQUETA, etiqueta.isWeak());
+    }
+
+    /**
+     * Comprime un contenido en gzip, para guardarlo comprimido y enviarlo varias veces sin volver a comprimirlo.
+     *
+     * @param contenido el contenido.
+     * @return el contenido comprimido.
+     */
+    public static byte[] comprimir(byte[] contenido) {
+        log.debug("Comprimiendo {} bytes en gzip", contenido.length);
+        ByteArrayOutputStream comprimido = new ByteArrayOutputStream(contenido.length / 4 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(comprimido)) {
+            gzip.write(contenido);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return comprimido.toByteArray();
+    }
+
+    /**
+     * Flujo de salida que guarda en memoria el contenido hasta que llega al umbral y, si llega, pasa a comprimirlo.
+     * <p>
+     * La cabecera Content-Encoding y el sufijo de la etiqueta se añaden antes de escribir nada en el flujo del
+     * contenedor, que es cuando este envía las cabeceras.
+     */
+    static final class SalidaComprimible extends OutputStream {
+        private final OutputStream destino;
+        private final MultivaluedMap<String, Object> cabeceras;
+        private final int umbral;
+        private ByteArrayOutputStream inicio;
+        private GZIPOutputStream gzip;
+
+        SalidaComprimible(OutputStream destino, MultivaluedMap<String, Object> cabeceras, int umbral) {
+            this.destino = destino;
+            this.cabeceras = cabeceras;
+            this.umbral = umbral;
+            this.inicio = new ByteArrayOutputStream(Math.min(umbral, 8192));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (gzip != null) {
+                gzip.write(b, off, len);
+                return;
+            }
+            inicio.write(b, off, len);
+            if (inicio.size() >= umbral) {
+                cabeceras.putSingle(HttpHeaders.CONTENT_ENCODING, GZIP);
+                cabeceras.remove(HttpHeaders.CONTENT_LENGTH);
+                // RestUtils.conCabecerasCache pone siempre la etiqueta como EntityTag.
+                if (cabeceras.getFirst(HttpHeaders.ETAG) instanceof EntityTag etiqueta) {
+                    cabeceras.putSingle(HttpHeaders.ETAG, etiquetaComprimida(etiqueta));
+                }
+                gzip = new GZIPOutputStream(destino, 8192);
+                inicio.writeTo(gzip);
+                inicio = null;
+            }
+        }
+
+        /**
+         * No envía el contenido guardado: hasta que termina no se sabe si se va a comprimir.
+         */
+        @Override
+        public void flush() throws IOException {
+            if (gzip != null) {
+                gzip.flush();
+            }
+        }
+
+        /**
+         * Termina el contenido: lo envía sin comprimir si no llegó al umbral, o termina la compresión si llegó. No
+         * cierra el flujo del contenedor.
+         *
+         * @throws IOException si falla la escritura.
+         */
+        void terminar() throws IOException {
+            if (gzip != null) {
+                gzip.finish();
+            } else if (inicio != null) {
+                inicio.writeTo(destino);
+                inicio = null;
+            }
+            destino.flush();
+        }
+
+        /**
+         * Como {@link #terminar()}: el flujo del contenedor no se cierra.
+         */
+        @Override
+        public void close() throws IOException {
+            terminar();
+        }
+    }
+}
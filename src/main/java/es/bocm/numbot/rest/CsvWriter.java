@@ -0,0 +1,78 @@
+package es.bocm.numbot.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Escribe filas en formato CSV (RFC 4180), codificadas en UTF-8, directamente sobre un flujo de salida.
+ * <p>
+ * Los campos se separan con comas y las filas con CRLF. Solo se entrecomillan los campos que contienen comas,
+ * comillas o saltos de línea.
+ * <p>
+ * No es seguro entre hilos. No cierra el flujo de salida.
+ */
+final class CsvWriter {
+    private final Writer writer;
+    private boolean inicioFila = true;
+
+    CsvWriter(OutputStream output) {
+        this.writer = new Utf8Writer(output);
+    }
+
+    /**
+     * Escribe un campo de la fila actual.
+     *
+     * @param valor el valor del campo. Null se escribe como campo vacío.
+     * @return este writer.
+     * @throws IOException si falla la escritura.
+     */
+    CsvWriter campo(Object valor) throws IOException {
+        if (!inicioFila) {
+            writer.write(',');
+        }
+        inicioFila = false;
+        if (valor == null) {
+            return this;
+        }
+        String texto = valor.toString();
+        if (necesitaComillas(texto)) {
+            writer.write('"');
+            for (int i = 0; i < texto.length(); i++) {
+                char c = texto.charAt(i);
+                if (c == '"') {
+                    writer.write('"');
+                }
+                writer.write(c);
+            }
+            writer.write('"');
+        } else {
+            writer.write(texto);
+        }
+        return this;
+    }
+
+    /**
+     * Termina la fila actual.
+     *
+     * @throws IOException si falla la escritura.
+     */
+    void finFila() throws IOException {
+        writer.write("\r\n");
+        inicioFila = true;
+    }
+
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    private static boolean necesitaComillas(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
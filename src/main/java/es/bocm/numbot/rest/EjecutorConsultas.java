@@ -0,0 +1,231 @@
+package es.bocm.numbot.rest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.core.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta fuera de los hilos del servidor HTTP la parte de las peticiones que accede a la BBDD.
+ * <p>
+ * Los recursos REST devuelven la respuesta como {@link CompletionStage}: mientras se consulta la BBDD, el hilo que
+ * atendió la petición queda libre para otras. Las peticiones que se pueden responder con la caché no pasan por aquí y
+ * se completan en el mismo hilo.
+ * <p>
+ * El número de consultas simultáneas a la BBDD está limitado por un semáforo, y el de peticiones pendientes (en
+ * ejecución o esperando), por un contador. Las que superan ese límite se rechazan en el acto con un 503, en lugar de
+ * acumularse sin límite cuando llega una ráfaga. Si el servidor de aplicaciones tiene factoría de hilos gestionados,
+ * las consultas se ejecutan en un grupo de tantos hilos suyos como consultas simultáneas, para que tengan su contexto
+ * (transacciones, seguridad, nombres JNDI). Si no, y el entorno de ejecución tiene hilos virtuales, cada consulta se
+ * ejecuta en uno; si tampoco, en un grupo de hilos propios.
+ * <p>
+ * Se configura con las propiedades de sistema:
+ * <ul>
+ *     <li>{@value #PROPIEDAD_MAX_CONCURRENTES}: número máximo de consultas simultáneas a la BBDD. Por defecto,
+ *     {@value #MAX_CONCURRENTES}.</li>
+ *     <li>{@value #PROPIEDAD_MAX_EN_ESPERA}: número máximo de peticiones esperando a que quede libre una consulta. Por
+ *     defecto, {@value #MAX_EN_ESPERA}.</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class EjecutorConsultas {
+    private static final Logger log = LoggerFactory.getLogger(EjecutorConsultas.class);
+
+    public static final String PROPIEDAD_MAX_CONCURRENTES = "numbot.consultas.max-concurrentes";
+    public static final String PROPIEDAD_MAX_EN_ESPERA = "numbot.consultas.max-en-espera";
+    private static final int MAX_CONCURRENTES = 8;
+    private static final int MAX_EN_ESPERA = 256;
+
+    /**
+     * Nombre JNDI de la factoría de hilos gestionados del servidor de aplicaciones.
+     */
+    private static final String FACTORIA_GESTIONADA = "java:comp/DefaultManagedThreadFactory";
+
+    private Executor ejecutor;
+
+    private Semaphore consultas;
+
+    private int maxPendientes;
+
+    private final AtomicInteger pendientes = new AtomicInteger();
+
+    /**
+     * Constructor para CDI. El ejecutor se crea en {@link #iniciar()}.
+     */
+    public EjecutorConsultas() {
+    }
+
+    /**
+     * Crea un ejecutor de consultas sobre un ejecutor dado.
+     *
+     * @param ejecutor el ejecutor en que se ejecutan las consultas.
+     * @param maxConcurrentes el número máximo de consultas simultáneas.
+     * @param maxEnEspera el número máximo de peticiones esperando a que quede libre una consulta.
+     */
+    public EjecutorConsultas(Executor ejecutor, int maxConcurrentes, int maxEnEspera) {
+        configurar(ejecutor, maxConcurrentes, maxEnEspera);
+    }
+
+    /**
+     * Crea el ejecutor según la configuración y el entorno de ejecución.
+     */
+    @PostConstruct
+    void iniciar() {
+        int maxConcurrentes = Integer.getInteger(PROPIEDAD_MAX_CONCURRENTES, MAX_CONCURRENTES);
+        int maxEnEspera = Integer.getInteger(PROPIEDAD_MAX_EN_ESPERA, MAX_EN_ESPERA);
+        ThreadFactory factoriaGestionada = buscarFactoriaGestionada();
+        ExecutorService virtual = factoriaGestionada == null ? crearEjecutorVirtual() : null;
+        if (virtual != null) {
+            log.info("Creando ejecutor de consultas con hilos virtuales, {} consultas simultáneas y {} en espera",
+                    maxConcurrentes, maxEnEspera);
+            configurar(virtual, maxConcurrentes, maxEnEspera);
+        } else {
+            ThreadFactory factoria = factoriaGestionada != null ? factoriaGestionada : crearFactoria();
+            log.info("Creando ejecutor de consultas con {} hilos{} y {} consultas en espera", maxConcurrentes,
+                    factoriaGestionada != null ? " gestionados" : "", maxEnEspera);
+            // La cola no necesita límite propio: el contador de pendientes ya lo impone.
+            ThreadPoolExecutor grupo = new ThreadPoolExecutor(maxConcurrentes, maxConcurrentes, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), factoria);
+            grupo.allowCoreThreadTimeOut(true);
+            configurar(grupo, maxConcurrentes, maxEnEspera);
+        }
+    }
+
+    private void configurar(Executor ejecutor, int maxConcurrentes, int maxEnEspera) {
+        if (maxConcurrentes < 1 || maxEnEspera < 0) {
+            throw new IllegalArgumentException("Límites de consultas no válidos: " + maxConcurrentes + " simultáneas y "
+                    + maxEnEspera + " en espera");
+        }
+        this.ejecutor = ejecutor;
+        this.consultas = new Semaphore(maxConcurrentes, true);
+        this.maxPendientes = maxConcurrentes + maxEnEspera;
+    }
+
+    /**
+     * Detiene el ejecutor. Las consultas en curso terminan, pero no se aceptan nuevas.
+     */
+    @PreDestroy
+    void detener() {
+        if (ejecutor instanceof ExecutorService servicio) {
+            log.info("Deteniendo ejecutor de consultas");
+            servicio.shutdown();
+        }
+    }
+
+    /**
+     * Obtiene la respuesta de una petición ejecutando su consulta a la BBDD en el ejecutor.
+     * <p>
+     * Si hay demasiadas peticiones pendientes, se responde en el acto con
+     * {@link RestUtils#crearRespuestaServicioSaturado()}. Si la consulta lanza una excepción, con
+     * {@link RestUtils#crearRespuestaErrorDesconocido()}.
+     *
+     * @param consulta la consulta, que crea la respuesta de la petición.
+     * @return la respuesta, que se completa cuando termina la consulta.
+     */
+    public CompletionStage<Response> ejecutar(Supplier<Response> consulta) {
+        if (pendientes.incrementAndGet() > maxPendientes) {
+            pendientes.decrementAndGet();
+            log.warn("Rechazada consulta por haber {} peticiones pendientes", maxPendientes);
+            return CompletableFuture.completedFuture(RestUtils.crearRespuestaServicioSaturado());
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> consultar(consulta), ejecutor);
+        } catch (RejectedExecutionException e) {
+            pendientes.decrementAndGet();
+            log.warn("Rechazada consulta por ejecutor detenido", e);
+            return CompletableFuture.completedFuture(RestUtils.crearRespuestaServicioSaturado());
+        }
+    }
+
+    /**
+     * Ejecuta una consulta cuando queda libre una de las permitidas.
+     *
+     * @param consulta la consulta.
+     * @return la respuesta de la consulta, o la de error si falla.
+     */
+    private Response consultar(Supplier<Response> consulta) {
+        try {
+            consultas.acquire();
+            try {
+                return consulta.get();
+            } finally {
+                consultas.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrumpida consulta en espera", e);
+            return RestUtils.crearRespuestaErrorDesconocido();
+        } catch (RuntimeException e) {
+            log.error("Finaliza consulta con error desconocido", e);
+            return RestUtils.crearRespuestaErrorDesconocido();
+        } finally {
+            pendientes.decrementAndGet();
+        }
+    }
+
+    /**
+     * Obtiene el número de peticiones pendientes, en ejecución o esperando.
+     *
+     * @return el número de peticiones pendientes.
+     */
+    public int getPendientes() {
+        return pendientes.get();
+    }
+
+    /**
+     * Busca la factoría de hilos gestionados del servidor de aplicaciones. Es un {@code ManagedThreadFactory}, que
+     * extiende {@link ThreadFactory}.
+     *
+     * @return la factoría, o null si no está disponible, como fuera del servidor de aplicaciones.
+     */
+    private static ThreadFactory buscarFactoriaGestionada() {
+        try {
+            return (ThreadFactory) new InitialContext().lookup(FACTORIA_GESTIONADA);
+        } catch (NamingException e) {
+            log.debug("Factoría de hilos gestionados no disponible: {}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Crea un ejecutor con un hilo virtual por tarea, si el entorno de ejecución los tiene (Java 21 o posterior). Se
+     * busca por reflexión porque el servicio se compila para versiones anteriores.
+     *
+     * @return el ejecutor, o null si no hay hilos virtuales.
+     */
+    private static ExecutorService crearEjecutorVirtual() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.debug("Hilos virtuales no disponibles: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static ThreadFactory crearFactoria() {
+        AtomicInteger contador = new AtomicInteger();
+        return tarea -> {
+            Thread hilo = new Thread(tarea, "numbot-consultas-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+}
@@ -0,0 +1,301 @@
+package es.bocm.numbot.rest;
+
+import com.google.gson.stream.JsonWriter;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Variant;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Formatos en que se pueden enviar las respuestas de consulta, según la cabecera Accept de la petición.
+ * <ul>
+ *     <li>JSON: el formato por defecto. Los números se envían como cadenas, como siempre.</li>
+ *     <li>CSV: una fila de cabecera con el nombre de los campos, ordenados alfabéticamente, y una fila por elemento
+ *     de los datos. No incluye el campo {@code exito}: las respuestas de error se envían siempre en JSON.</li>
+ *     <li>CBOR: la misma estructura que JSON, en binario, con los campos numéricos ({@link #CAMPOS_NUMERICOS}) como
+ *     enteros.</li>
+ * </ul>
+ * Todos escriben directamente en el flujo de salida.
+ */
+public enum FormatoRespuesta {
+    JSON(MediaType.APPLICATION_JSON_TYPE.withCharset("UTF-8")) {
+        @Override
+        public void escribir(NumbotApiResponse respuesta, OutputStream output) throws IOException {
+            try (Writer writer = new Utf8Writer(output)) {
+                RestUtils.escribirJson(respuesta, writer);
+            }
+        }
+
+        @Override
+        public Lista abrirLista(OutputStream output, String nombre, String... columnas) throws IOException {
+            JsonWriter writer = RestUtils.GSON.newJsonWriter(new Utf8Writer(output));
+            writer.beginObject().name("exito").value(true).name("data").beginObject().name(nombre).beginArray();
+            return new Lista() {
+                @Override
+                public void fila(Object... valores) throws IOException {
+                    writer.beginObject();
+                    for (int i = 0; i < columnas.length; i++) {
+                        writer.name(columnas[i]).value(String.valueOf(valores[i]));
+                    }
+                    writer.endObject();
+                }
+
+                @Override
+                public void cerrar() throws IOException {
+                    writer.endArray().endObject().endObject();
+                    writer.flush();
+                }
+            };
+        }
+    },
+    CSV(new MediaType("text", "csv", "UTF-8")) {
+        @Override
+        public void escribir(NumbotApiResponse respuesta, OutputStream output) throws IOException {
+            List<Map<?, ?>> filas = new ArrayList<>();
+            for (Object valor : respuesta.data().values()) {
+                if (valor instanceof Collection<?> coleccion) {
+                    for (Object elemento : coleccion) {
+                        filas.add((Map<?, ?>) elemento);
+                    }
+                }
+            }
+            if (filas.isEmpty() && respuesta.data().values().stream().noneMatch(Collection.class::isInstance)) {
+                filas.add(respuesta.data());
+            }
+            Set<String> columnas = new TreeSet<>();
+            for (Map<?, ?> fila : filas) {
+                for (Object columna : fila.keySet()) {
+                    columnas.add((String) columna);
+                }
+            }
+            CsvWriter writer = new CsvWriter(output);
+            for (String columna : columnas) {
+                writer.campo(columna);
+            }
+            writer.finFila();
+            for (Map<?, ?> fila : filas) {
+                for (String columna : columnas) {
+                    writer.campo(fila.get(columna));
+                }
+                writer.finFila();
+            }
+            writer.flush();
+        }
+
+        @Override
+        public Lista abrirLista(OutputStream output, String nombre, String... columnas) throws IOException {
+            CsvWriter writer = new CsvWriter(output);
+            for (String columna : columnas) {
+                writer.campo(columna);
+            }
+            writer.finFila();
+            return new Lista() {
+                @Override
+                public void fila(Object... valores) throws IOException {
+                    for (Object valor : valores) {
+                        writer.campo(valor);
+                    }
+                    writer.finFila();
+                }
+
+                @Override
+                public void cerrar() throws IOException {
+                    writer.flush();
+                }
+            };
+        }
+    },
+    CBOR(new MediaType("application", "cbor")) {
+        @Override
+        public void escribir(NumbotApiResponse respuesta, OutputStream output) throws IOException {
+            CborWriter writer = new CborWriter(output);
+            writer.inicioMapa(2).texto("exito").booleano(respuesta.exito()).texto("data");
+            escribirValorCbor(writer, null, respuesta.data());
+            writer.flush();
+        }
+
+        @Override
+        public Lista abrirLista(OutputStream output, String nombre, String... columnas) throws IOException {
+            CborWriter writer = new CborWriter(output);
+            writer.inicioMapa(2).texto("exito").booleano(true).texto("data").inicioMapa(1).texto(nombre)
+                    .inicioArrayIndefinido();
+            return new Lista() {
+                @Override
+                public void fila(Object... valores) throws IOException {
+                    writer.inicioMapa(columnas.length);
+                    for (int i = 0; i < columnas.length; i++) {
+                        writer.texto(columnas[i]);
+                        escribirValorCbor(writer, columnas[i], valores[i]);
+                    }
+                }
+
+                @Override
+                public void cerrar() throws IOException {
+                    writer.finIndefinido();
+                    writer.flush();
+                }
+            };
+        }
+    };
+
+    /**
+     * Tipo MIME de CSV, para las anotaciones de los recursos.
+     */
+    public static final String TEXT_CSV = "text/csv";
+
+    /**
+     * Tipo MIME de CBOR, para las anotaciones de los recursos.
+     */
+    public static final String APPLICATION_CBOR = "application/cbor";
+
+    /**
+     * Campos de las respuestas que contienen números enteros. En JSON se envían como cadenas, y en CBOR, como enteros.
+     */
+    static final Set<String> CAMPOS_NUMERICOS = Set.of("numero", "numero_boletin", "primer_numero_boletin",
+            "numero_boletines_en_no_laboral_seguidos");
+
+    /**
+     * Variantes de las respuestas para la negociación de contenido, con JSON en primer lugar para que sea el formato
+     * elegido con los comodines.
+     */
+    private static final List<Variant> VARIANTES = Variant.mediaTypes(MediaType.APPLICATION_JSON_TYPE,
+            new MediaType("text", "csv"), new MediaType("application", "cbor")).build();
+
+    private final MediaType tipo;
+
+    FormatoRespuesta(MediaType tipo) {
+        this.tipo = tipo;
+    }
+
+    /**
+     * Obtiene el tipo MIME del formato, para la cabecera Content-Type.
+     *
+     * @return el tipo MIME.
+     */
+    public MediaType getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Escribe una respuesta completa en el formato.
+     *
+     * @param respuesta la respuesta.
+     * @param output el flujo de salida. No se cierra.
+     * @throws IOException si falla la escritura.
+     */
+    public abstract void escribir(NumbotApiResponse respuesta, OutputStream output) throws IOException;
+
+    /**
+     * Empieza a escribir una respuesta exitosa cuyos datos son una lista de elementos con los mismos campos, para
+     * escribir los elementos según se calculan. Ver {@link Lista}.
+     *
+     * @param output el flujo de salida. No se cierra.
+     * @param nombre el nombre de la lista dentro de los datos de la respuesta.
+     * @param columnas el nombre de los campos de cada elemento.
+     * @return la lista abierta.
+     * @throws IOException si falla la escritura.
+     */
+    public abstract Lista abrirLista(OutputStream output, String nombre, String... columnas) throws IOException;
+
+    /**
+     * Lista de elementos de una respuesta que se escribe según se calcula.
+     */
+    public interface Lista {
+        /**
+         * Escribe un elemento.
+         *
+         * @param valores el valor de cada campo, en el orden de las columnas: cadenas o enteros.
+         * @throws IOException si falla la escritura.
+         */
+        void fila(Object... valores) throws IOException;
+
+        /**
+         * Termina la respuesta y vacía el buffer. No cierra el flujo de salida.
+         *
+         * @throws IOException si falla la escritura.
+         */
+        void cerrar() throws IOException;
+    }
+
+    /**
+     * Elige el formato de la respuesta según la cabecera Accept de la petición, con la negociación de contenido de
+     * JAX-RS ({@link Request#selectVariant(List)}). Los comodines se resuelven a JSON.
+     *
+     * @param peticion la petición.
+     * @return el formato elegido, JSON si no se envió la cabecera Accept o no incluye ninguno de los formatos.
+     */
+    public static FormatoRespuesta elegir(Request peticion) {
+        Variant variante = peticion.selectVariant(VARIANTES);
+        return variante == null ? JSON : de(variante.getMediaType());
+    }
+
+    /**
+     * Obtiene el formato que corresponde a un tipo MIME.
+     *
+     * @param tipo el tipo MIME.
+     * @return el formato, JSON si no corresponde a ninguno.
+     */
+    public static FormatoRespuesta de(MediaType tipo) {
+        for (FormatoRespuesta formato : values()) {
+            if (formato.tipo.isCompatible(tipo) && !tipo.isWildcardType() && !tipo.isWildcardSubtype()) {
+                return formato;
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * Escribe en CBOR uno de los valores de los datos de una respuesta.
+     *
+     * @param writer el destino.
+     * @param campo el nombre del campo al que pertenece el valor, o null si no pertenece a ninguno.
+     * @param valor el valor: una cadena, un entero, un mapa con claves de tipo cadena, una colección o null.
+     * @throws IOException si falla la escritura.
+     * @throws IllegalArgumentException si el valor es de otro tipo.
+     */
+    private static void escribirValorCbor(CborWriter writer, String campo, Object valor) throws IOException {
+        if (valor == null) {
+            writer.nulo();
+        } else if (valor instanceof Integer entero) {
+            writer.entero(entero);
+        } else if (valor instanceof String cadena) {
+            Integer entero = CAMPOS_NUMERICOS.contains(campo) ? comoEntero(cadena) : null;
+            if (entero != null) {
+                writer.entero(entero);
+            } else {
+                writer.texto(cadena);
+            }
+        } else if (valor instanceof Map<?, ?> mapa) {
+            writer.inicioMapa(mapa.size());
+            for (Map.Entry<?, ?> entrada : mapa.entrySet()) {
+                String clave = (String) entrada.getKey();
+                writer.texto(clave);
+                escribirValorCbor(writer, clave, entrada.getValue());
+            }
+        } else if (valor instanceof Collection<?> coleccion) {
+            writer.inicioArray(coleccion.size());
+            for (Object elemento : coleccion) {
+                escribirValorCbor(writer, null, elemento);
+            }
+        } else {
+            throw new IllegalArgumentException("Tipo de dato no soportado en una respuesta: " + valor.getClass());
+        }
+    }
+
+    private static Integer comoEntero(String cadena) {
+        try {
+            return Integer.valueOf(cadena);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
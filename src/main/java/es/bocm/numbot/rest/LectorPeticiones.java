@@ -0,0 +1,273 @@
+package es.bocm.numbot.rest;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import es.bocm.numbot.entities.Extraordinario;
+import es.bocm.numbot.entities.Festivo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lee el contenido JSON de las peticiones de actualización de festivos y boletines extraordinarios.
+ * <p>
+ * El contenido se recorre token a token según llega, creando directamente las entidades, sin construir antes el
+ * documento completo ni mapas intermedios. Los errores indican la posición del elemento no válido con su ruta JSON,
+ * por ejemplo {@code $[2].fecha}.
+ * <p>
+ * Como {@link com.google.gson.Gson#fromJson(Reader, Class)}, los valores se aceptan tanto entre comillas como sin
+ * ellas.
+ */
+public final class LectorPeticiones {
+    private static final Logger log = LoggerFactory.getLogger(LectorPeticiones.class);
+
+    private LectorPeticiones() {
+        throw new AssertionError("Clase de utilidades. No instanciar.");
+    }
+
+    /**
+     * Lee los festivos de un año. Formato: {@code [{"descripcion": "descripcion festivo", "fecha": "MM-DD"}]}.
+     *
+     * @param anno el año de los festivos.
+     * @param entrada el contenido de la petición.
+     * @return los festivos, en el orden de entrada.
+     * @throws JsonSyntaxException si el contenido no es válido, con la posición del error.
+     */
+    public static List<Festivo> leerFestivos(int anno, Reader entrada) {
+        log.debug("Inicia lectura de festivos para el año {}", anno);
+        JsonReader reader = crearReader(entrada);
+        List<Festivo> festivos = new ArrayList<>();
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String elemento = reader.getPath();
+                String fecha = null;
+                String descripcion = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "fecha" -> fecha = leerCadena(reader);
+                        case "descripcion" -> descripcion = leerCadena(reader);
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                LocalDate dia = crearFecha(anno, fecha, elemento + ".fecha");
+                try {
+                    festivos.add(new Festivo(null, dia, descripcion));
+                } catch (IllegalArgumentException e) {
+                    throw crearError(elemento, e.getMessage());
+                }
+            }
+            reader.endArray();
+            comprobarFin(reader);
+        } catch (IOException | IllegalStateException e) {
+            throw crearErrorLectura(e);
+        }
+        log.debug("Finaliza lectura de {} festivos para el año {}", festivos.size(), anno);
+        return festivos;
+    }
+
+    /**
+     * Lee los boletines extraordinarios de varias fechas de un año. Formato:
+     * {@code [{"fecha": "MM-DD", "numero": "1"}]}.
+     *
+     * @param anno el año de los boletines extraordinarios.
+     * @param entrada el contenido de la petición.
+     * @return los boletines extraordinarios, en el orden de entrada.
+     * @throws JsonSyntaxException si el contenido no es válido, con la posición del error.
+     */
+    public static List<Extraordinario> leerExtraordinarios(int anno, Reader entrada) {
+        log.debug("Inicia lectura de extraordinarios para el año {}", anno);
+        JsonReader reader = crearReader(entrada);
+        List<Extraordinario> extraordinarios = new ArrayList<>();
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String elemento = reader.getPath();
+                String fecha = null;
+                String numero = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "fecha" -> fecha = leerCadena(reader);
+                        case "numero" -> numero = leerCadena(reader);
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                LocalDate dia = crearFecha(anno, fecha, elemento + ".fecha");
+                extraordinarios.add(crearExtraordinario(dia, numero, elemento, elemento + ".numero"));
+            }
+            reader.endArray();
+            comprobarFin(reader);
+        } catch (IOException | IllegalStateException e) {
+            throw crearErrorLectura(e);
+        }
+        log.debug("Finaliza lectura de {} extraordinarios para el año {}", extraordinarios.size(), anno);
+        return extraordinarios;
+    }
+
+    /**
+     * Lee el número de boletines extraordinarios de una fecha. Formato: {@code {"numero_extraordinarios": "1"}}.
+     *
+     * @param fecha la fecha de los boletines extraordinarios.
+     * @param entrada el contenido de la petición.
+     * @return el boletín extraordinario.
+     * @throws JsonSyntaxException si el contenido no es válido, con la posición del error.
+     */
+    public static Extraordinario leerExtraordinario(LocalDate fecha, Reader entrada) {
+        log.debug("Inicia lectura del número de extraordinarios para la fecha {}", fecha);
+        JsonReader reader = crearReader(entrada);
+        Extraordinario extraordinario;
+        try {
+            String numero = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("numero_extraordinarios")) {
+                    numero = leerCadena(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            extraordinario = crearExtraordinario(fecha, numero, "$", "$.numero_extraordinarios");
+            comprobarFin(reader);
+        } catch (IOException | IllegalStateException e) {
+            throw crearErrorLectura(e);
+        }
+        log.debug("Finaliza lectura del número de extraordinarios para la fecha {}: {}", fecha, extraordinario);
+        return extraordinario;
+    }
+
+    private static JsonReader crearReader(Reader entrada) {
+        JsonReader reader = new JsonReader(entrada);
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /**
+     * Lee un valor como cadena. Los números y booleanos se convierten a cadena.
+     *
+     * @param reader el contenido, situado en el valor.
+     * @return el valor, o null si es null.
+     * @throws IOException si falla la lectura.
+     * @throws JsonSyntaxException si el valor es un objeto o un array.
+     */
+    private static String leerCadena(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        switch (token) {
+            case NULL -> {
+                reader.nextNull();
+                return null;
+            }
+            case BOOLEAN -> {
+                return Boolean.toString(reader.nextBoolean());
+            }
+            case STRING, NUMBER -> {
+                return reader.nextString();
+            }
+            default -> throw crearError(reader.getPath(), "se esperaba un valor simple y se encontró " + token);
+        }
+    }
+
+    /**
+     * Crea una fecha de un año a partir de su mes y día en formato MM-DD.
+     *
+     * @param anno el año.
+     * @param mesDia el mes y día, o null si no se indicó.
+     * @param ruta la posición del valor en el contenido, para el mensaje de error.
+     * @return la fecha.
+     * @throws JsonSyntaxException si falta la fecha, no tiene formato MM-DD o no existe en el año.
+     */
+    private static LocalDate crearFecha(int anno, String mesDia, String ruta) {
+        if (mesDia == null) {
+            throw crearError(ruta, "falta la fecha");
+        }
+        if (mesDia.length() != 5 || mesDia.charAt(2) != '-' || !esDigito(mesDia, 0) || !esDigito(mesDia, 1)
+                || !esDigito(mesDia, 3) || !esDigito(mesDia, 4)) {
+            throw crearError(ruta, "la fecha " + mesDia + " no tiene formato MM-DD");
+        }
+        int mes = (mesDia.charAt(0) - '0') * 10 + mesDia.charAt(1) - '0';
+        int dia = (mesDia.charAt(3) - '0') * 10 + mesDia.charAt(4) - '0';
+        try {
+            return LocalDate.of(anno, mes, dia);
+        } catch (DateTimeException e) {
+            throw crearError(ruta, "la fecha " + mesDia + " no existe en el año " + anno);
+        }
+    }
+
+    private static boolean esDigito(String cadena, int posicion) {
+        char c = cadena.charAt(posicion);
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Crea un boletín extraordinario a partir de su número en formato cadena.
+     *
+     * @param fecha la fecha.
+     * @param numero el número de boletines extraordinarios, o null si no se indicó.
+     * @param elemento la posición del elemento en el contenido, para el mensaje de error.
+     * @param ruta la posición del número en el contenido, para el mensaje de error.
+     * @return el boletín extraordinario.
+     * @throws JsonSyntaxException si falta el número, no es entero o es negativo.
+     */
+    private static Extraordinario crearExtraordinario(LocalDate fecha, String numero, String elemento, String ruta) {
+        if (numero == null) {
+            throw crearError(ruta, "falta el número de boletines extraordinarios");
+        }
+        int valor;
+        try {
+            valor = Integer.parseInt(numero);
+        } catch (NumberFormatException e) {
+            throw crearError(ruta, "el número " + numero + " no es un entero");
+        }
+        try {
+            return new Extraordinario(null, fecha, valor);
+        } catch (IllegalArgumentException e) {
+            throw crearError(elemento, e.getMessage());
+        }
+    }
+
+    /**
+     * Comprueba que no queda contenido después del valor leído.
+     *
+     * @param reader el contenido.
+     * @throws IOException si falla la lectura.
+     * @throws JsonSyntaxException si queda contenido.
+     */
+    private static void comprobarFin(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw crearError(reader.getPath(), "hay contenido después del final del documento");
+        }
+    }
+
+    private static JsonSyntaxException crearError(String ruta, String detalle) {
+        return new JsonSyntaxException("Error en " + ruta + ": " + detalle);
+    }
+
+    /**
+     * Convierte los errores del recorrido del contenido. Los de sintaxis y estructura, que ya indican su posición, se
+     * devuelven como {@link JsonSyntaxException}; el resto de errores de lectura se relanzan.
+     *
+     * @param e el error.
+     * @return el error de contenido no válido.
+     */
+    private static JsonSyntaxException crearErrorLectura(Exception e) {
+        if (e instanceof IOException io && !(e instanceof EOFException)
+                && !(e instanceof MalformedJsonException)) {
+            throw new UncheckedIOException(io);
+        }
+        return new JsonSyntaxException("JSON no válido: " + e.getMessage(), e);
+    }
+}
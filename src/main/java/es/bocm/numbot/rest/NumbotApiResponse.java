@@ -1,7 +1,24 @@
 package es.bocm.numbot.rest;
 
+import java.util.Map;
+
 /**
  * Interfaz que engloba a todos los records de respuesta de recursos REST.
+ * <p>
+ * Todas las respuestas tienen la misma forma, que se serializa sin reflexión con {@link NumbotApiResponseJson}.
  */
 public interface NumbotApiResponse {
+    /**
+     * Indica si la petición se ha procesado con éxito.
+     *
+     * @return true si la petición ha tenido éxito, false en caso contrario.
+     */
+    boolean exito();
+
+    /**
+     * Obtiene los datos de la respuesta. Los valores son cadenas, o listas y mapas de cadenas.
+     *
+     * @return los datos de la respuesta.
+     */
+    Map<String, ?> data();
 }
@@ -0,0 +1,66 @@
+package es.bocm.numbot.rest;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Serializa en JSON las respuestas de los recursos REST ({@link NumbotApiResponse}).
+ * <p>
+ * Escribe los campos a mano, en el mismo orden y formato que la serialización por reflexión de Gson, para no tener que
+ * inspeccionar cada record en cada respuesta. No tiene estado y se puede usar desde varios hilos a la vez.
+ */
+final class NumbotApiResponseJson {
+    private NumbotApiResponseJson() {
+    }
+
+    /**
+     * Escribe una respuesta en JSON.
+     *
+     * @param writer el destino.
+     * @param respuesta la respuesta, o null.
+     * @throws IOException si falla la escritura.
+     */
+    static void write(JsonWriter writer, NumbotApiResponse respuesta) throws IOException {
+        if (respuesta == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginObject().name("exito").value(respuesta.exito()).name("data");
+        escribirValor(writer, respuesta.data());
+        writer.endObject();
+    }
+
+    /**
+     * Escribe uno de los valores de los datos de una respuesta.
+     *
+     * @param writer el destino.
+     * @param valor el valor: una cadena, un mapa con claves de tipo cadena, una colección o null.
+     * @throws IOException si falla la escritura.
+     * @throws IllegalArgumentException si el valor es de otro tipo.
+     */
+    private static void escribirValor(JsonWriter writer, Object valor) throws IOException {
+        if (valor == null) {
+            writer.nullValue();
+        } else if (valor instanceof String cadena) {
+            writer.value(cadena);
+        } else if (valor instanceof Map<?, ?> mapa) {
+            writer.beginObject();
+            for (Map.Entry<?, ?> entrada : mapa.entrySet()) {
+                writer.name((String) entrada.getKey());
+                escribirValor(writer, entrada.getValue());
+            }
+            writer.endObject();
+        } else if (valor instanceof Collection<?> coleccion) {
+            writer.beginArray();
+            for (Object elemento : coleccion) {
+                escribirValor(writer, elemento);
+            }
+            writer.endArray();
+        } else {
+            throw new IllegalArgumentException("Tipo de dato no soportado en una respuesta: " + valor.getClass());
+        }
+    }
+}
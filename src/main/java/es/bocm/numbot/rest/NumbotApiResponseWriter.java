@@ -0,0 +1,34 @@
+package es.bocm.numbot.rest;
+
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Escribe las respuestas de los recursos REST ({@link NumbotApiResponse}) directamente en el flujo de salida, sin
+ * crear antes una cadena con todo el contenido. El formato (JSON en UTF-8, CSV o CBOR) depende del tipo de la
+ * respuesta. Ver {@link FormatoRespuesta}.
+ */
+@Provider
+@Produces({MediaType.APPLICATION_JSON, FormatoRespuesta.TEXT_CSV, FormatoRespuesta.APPLICATION_CBOR})
+public class NumbotApiResponseWriter implements MessageBodyWriter<NumbotApiResponse> {
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return NumbotApiResponse.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void writeTo(NumbotApiResponse respuesta, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream output)
+            throws IOException {
+        // No se cierra el flujo de salida, que pertenece al contenedor.
+        FormatoRespuesta.de(mediaType).escribir(respuesta, output);
+    }
+}
@@ -1,13 +1,28 @@
 package es.bocm.numbot.rest;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import es.bocm.numbot.cache.VersionAnno;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Locale;
+import java.util.stream.Collectors;
 
 /**
  * Agrupa métodos comunes a varios endpoints.
@@ -15,6 +30,36 @@ import java.time.format.DateTimeParseException;
 public final class RestUtils {
     private static final Logger log = LoggerFactory.getLogger(RestUtils.class);
 
+    /**
+     * Mensaje de error cuando una fecha no es válida.
+     */
+    public static final String MENSAJE_FECHA_NO_VALIDA = "Fecha errónea o con formato incorrecto. El formato" +
+            " debe ser YYYY-MM-DD";
+
+    /**
+     * Mensaje de error cuando no existe información para los festivos de un año.
+     */
+    public static final String MENSAJE_FALTAN_FESTIVOS = "Faltan datos en la BBDD para procesar la petición: no " +
+            "están establecidos los festivos de este año.";
+
+    /**
+     * Propiedad de sistema con el tiempo, en segundos, durante el que los clientes y proxies pueden reutilizar una
+     * respuesta sin volver a validarla. Por defecto, cero: se valida siempre, con If-None-Match.
+     */
+    public static final String PROPIEDAD_MAX_AGE = "numbot.http.max-age-segundos";
+
+    /**
+     * Instancia de Gson compartida por todos los recursos. Es segura entre hilos. Las respuestas
+     * ({@link NumbotApiResponse}) no se serializan con ella, sino con {@link #escribirJson(NumbotApiResponse, Writer)}.
+     */
+    public static final Gson GSON = new Gson();
+
+    private static final CacheControl CACHE_CONTROL = crearCacheControl();
+
+    private static final int SEGUNDOS_REINTENTO = 1;
+
+    private static final MediaType TIPO_JSON_UTF8 = MediaType.APPLICATION_JSON_TYPE.withCharset("UTF-8");
+
     private RestUtils() {
         throw new AssertionError("Clase de utilidades. No instanciar.");
     }
@@ -56,13 +101,15 @@ public final class RestUtils {
      */
     public static Response crearRespuestaFechaNoValida() {
         log.debug("Creando respuesta de error de fecha no válida");
-        ErrorResponse response = new ErrorResponse("Fecha errónea o con formato incorrecto. El formato" +
-                " debe ser YYYY-MM-DD");
+        ErrorResponse response = new ErrorResponse(MENSAJE_FECHA_NO_VALIDA);
         return crearRespuestaJson(Response.Status.BAD_REQUEST, response);
     }
 
     /**
      * Crea una respuesta en formato JSON.
+     * <p>
+     * El objeto de respuesta se serializa al enviarlo, directamente en el flujo de salida, con
+     * {@link NumbotApiResponseWriter}.
      *
      * @param estado estado HTTP de la respuesta.
      * @param objeto_respuesta objeto de respuesta a convertir en formato JSON. Consultar {@link NumbotApiResponse}.
@@ -72,11 +119,99 @@ public final class RestUtils {
         log.debug("Creando respuesta JSON con estado {} y objeto:\n{}", estado, objeto_respuesta);
         return Response
                 .status(estado)
-                .entity(new Gson().toJson(objeto_respuesta))
-                .type(MediaType.APPLICATION_JSON)
+                .entity(objeto_respuesta)
+                .type(TIPO_JSON_UTF8)
+                .build();
+    }
+
+    /**
+     * Crea una respuesta en el formato elegido por el cliente. Ver {@link FormatoRespuesta}.
+     * <p>
+     * Como {@link #crearRespuestaJson(Response.Status, NumbotApiResponse)}, el objeto de respuesta se serializa al
+     * enviarlo. La respuesta incluye la cabecera {@code Vary: Accept}, porque su contenido depende de ella.
+     *
+     * @param estado estado HTTP de la respuesta.
+     * @param objeto_respuesta objeto de respuesta. Consultar {@link NumbotApiResponse}.
+     * @param formato el formato de la respuesta.
+     * @return la respuesta.
+     */
+    public static Response crearRespuesta(Response.Status estado, NumbotApiResponse objeto_respuesta,
+                                          FormatoRespuesta formato) {
+        log.debug("Creando respuesta {} con estado {} y objeto:\n{}", formato, estado, objeto_respuesta);
+        return Response
+                .status(estado)
+                .entity(objeto_respuesta)
+                .type(formato.getTipo())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .build();
+    }
+
+    /**
+     * Crea una respuesta en formato JSON a partir de un contenido ya serializado.
+     *
+     * @param estado estado HTTP de la respuesta.
+     * @param json el contenido JSON, en UTF-8. Ver {@link #serializarJson(NumbotApiResponse)}.
+     * @return la respuesta.
+     */
+    public static Response crearRespuestaJson(Response.Status estado, byte[] json) {
+        log.debug("Creando respuesta JSON con estado {} y {} bytes ya serializados", estado, json.length);
+        return Response
+                .status(estado)
+                .entity(json)
+                .type(TIPO_JSON_UTF8)
+                .build();
+    }
+
+    /**
+     * Crea una respuesta en formato JSON a partir de un contenido ya serializado y comprimido en gzip. Ver
+     * {@link CompresionRespuestas}.
+     *
+     * @param estado estado HTTP de la respuesta.
+     * @param gzip el contenido JSON, en UTF-8, comprimido. Ver {@link CompresionRespuestas#comprimir(byte[])}.
+     * @return la respuesta.
+     */
+    public static Response crearRespuestaJsonComprimida(Response.Status estado, byte[] gzip) {
+        log.debug("Creando respuesta JSON con estado {} y {} bytes ya comprimidos", estado, gzip.length);
+        return Response
+                .status(estado)
+                .entity(gzip)
+                .type(TIPO_JSON_UTF8)
+                .encoding(CompresionRespuestas.GZIP)
                 .build();
     }
 
+    /**
+     * Serializa un objeto de respuesta en JSON, codificado en UTF-8, para poder guardarlo y enviarlo varias veces.
+     *
+     * @param objeto_respuesta objeto de respuesta a serializar. Consultar {@link NumbotApiResponse}.
+     * @return el contenido JSON.
+     */
+    public static byte[] serializarJson(NumbotApiResponse objeto_respuesta) {
+        log.debug("Serializando objeto de respuesta:\n{}", objeto_respuesta);
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try (Writer writer = new Utf8Writer(json)) {
+            escribirJson(objeto_respuesta, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toByteArray();
+    }
+
+    /**
+     * Escribe un objeto de respuesta en JSON. Ver {@link NumbotApiResponseJson}.
+     *
+     * @param objeto_respuesta objeto de respuesta a escribir. Consultar {@link NumbotApiResponse}.
+     * @param writer el destino. No se cierra.
+     * @throws IOException si falla la escritura.
+     */
+    public static void escribirJson(NumbotApiResponse objeto_respuesta, Writer writer) throws IOException {
+        JsonWriter jsonWriter = GSON.newJsonWriter(writer);
+        // Como en Gson.toJson, que escapa los caracteres especiales de HTML.
+        jsonWriter.setHtmlSafe(GSON.htmlSafe());
+        NumbotApiResponseJson.write(jsonWriter, objeto_respuesta);
+        jsonWriter.flush();
+    }
+
     /**
      * Crea la respuesta de error cuando se ha producido un error desconocido (fallo en la BBDD, etc.).
      *
@@ -96,9 +231,153 @@ public final class RestUtils {
      */
     public static Response crearRespuestaFaltanFestivos() {
         log.debug("Creando respuesta de error por falta de festivos");
-        ErrorResponse response = new ErrorResponse(
-                "Faltan datos en la BBDD para procesar la petición: no están establecidos los " +
-                        "festivos de este año.");
+        ErrorResponse response = new ErrorResponse(MENSAJE_FALTAN_FESTIVOS);
         return  crearRespuestaJson(Response.Status.NOT_FOUND, response);
     }
+
+    /**
+     * Crea la respuesta de error cuando hay demasiadas peticiones pendientes de consultar la BBDD. Ver
+     * {@link EjecutorConsultas}.
+     *
+     * @return la respuesta.
+     */
+    public static Response crearRespuestaServicioSaturado() {
+        log.debug("Creando respuesta de error por servicio saturado");
+        ErrorResponse response = new ErrorResponse("Servicio saturado. Reintentar la petición en unos segundos.");
+        return Response.fromResponse(crearRespuestaJson(Response.Status.SERVICE_UNAVAILABLE, response))
+                .header(HttpHeaders.RETRY_AFTER, SEGUNDOS_REINTENTO)
+                .build();
+    }
+
+    /**
+     * Comprueba si el cliente ya tiene la versión actual de una respuesta, según su cabecera If-None-Match.
+     *
+     * @param ifNoneMatch valor de la cabecera If-None-Match, o null si no se envió.
+     * @param formato el formato de la respuesta.
+     * @param versiones las versiones de los datos de los que depende la respuesta.
+     * @return true si alguna de las etiquetas de la cabecera coincide con la actual, sin comprimir o comprimida, false
+     * en caso contrario.
+     */
+    public static boolean esVersionVigente(String ifNoneMatch, FormatoRespuesta formato, VersionAnno... versiones) {
+        return buscarEtiquetaVigente(ifNoneMatch, formato, versiones) != null;
+    }
+
+    /**
+     * Crea la respuesta 304 cuando el cliente ya tiene la versión actual. Ver
+     * {@link #esVersionVigente(String, FormatoRespuesta, VersionAnno...)}.
+     *
+     * @param ifNoneMatch valor de la cabecera If-None-Match.
+     * @param formato el formato de la respuesta.
+     * @param versiones las versiones de los datos de los que depende la respuesta.
+     * @return la respuesta, con la etiqueta que coincidió: la de la versión comprimida o la de la sin comprimir.
+     */
+    public static Response crearRespuestaNoModificada(String ifNoneMatch, FormatoRespuesta formato,
+                                                      VersionAnno... versiones) {
+        log.debug("Creando respuesta de no modificado para las versiones {}", Arrays.toString(versiones));
+        EntityTag etiqueta = buscarEtiquetaVigente(ifNoneMatch, formato, versiones);
+        return Response
+                .notModified(etiqueta != null ? etiqueta : crearEtiqueta(formato, versiones))
+                .lastModified(ultimaModificacion(versiones))
+                .cacheControl(CACHE_CONTROL)
+                // Las de 200 llevan Accept-Encoding por CompresionRespuestas, que no interviene sin contenido.
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING)
+                .build();
+    }
+
+    /**
+     * Añade a una respuesta las cabeceras ETag, Last-Modified, Cache-Control y Vary. La etiqueta depende del formato
+     * ({@link FormatoRespuesta}) y, si la respuesta ya va comprimida, lleva el sufijo de
+     * {@link CompresionRespuestas#etiquetaComprimida(EntityTag)}; si la comprime después {@link CompresionRespuestas},
+     * el sufijo lo añade él.
+     *
+     * @param respuesta la respuesta.
+     * @param formato el formato de la respuesta.
+     * @param versiones las versiones de los datos de los que depende la respuesta.
+     * @return la respuesta con las cabeceras.
+     */
+    public static Response conCabecerasCache(Response respuesta, FormatoRespuesta formato, VersionAnno... versiones) {
+        EntityTag etiqueta = crearEtiqueta(formato, versiones);
+        if (CompresionRespuestas.GZIP.equals(respuesta.getHeaderString(HttpHeaders.CONTENT_ENCODING))) {
+            etiqueta = CompresionRespuestas.etiquetaComprimida(etiqueta);
+        }
+        Response.ResponseBuilder builder = Response
+                .fromResponse(respuesta)
+                .tag(etiqueta)
+                .lastModified(ultimaModificacion(versiones))
+                .cacheControl(CACHE_CONTROL);
+        if (respuesta.getHeaderString(HttpHeaders.VARY) == null) {
+            builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Crea la etiqueta (ETag) de una respuesta sin comprimir a partir de las versiones de los datos de los que depende
+     * y de su formato, porque cada formato tiene un contenido distinto.
+     *
+     * @param formato el formato.
+     * @param versiones las versiones.
+     * @return la etiqueta.
+     */
+    private static EntityTag crearEtiqueta(FormatoRespuesta formato, VersionAnno... versiones) {
+        return new EntityTag(Arrays.stream(versiones).map(VersionAnno::etiqueta).collect(Collectors.joining("."))
+                + '-' + formato.name().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Busca en la cabecera If-None-Match la etiqueta actual de una respuesta, sin comprimir o comprimida. Para GET la
+     * comparación es débil: se ignora el prefijo W/.
+     *
+     * @param ifNoneMatch valor de la cabecera If-None-Match, o null si no se envió.
+     * @param formato el formato de la respuesta.
+     * @param versiones las versiones de los datos de los que depende la respuesta.
+     * @return la etiqueta que coincide, la sin comprimir si la cabecera es el comodín, o null si no coincide ninguna.
+     */
+    private static EntityTag buscarEtiquetaVigente(String ifNoneMatch, FormatoRespuesta formato,
+                                                   VersionAnno... versiones) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        EntityTag etiqueta = crearEtiqueta(formato, versiones);
+        EntityTag comprimida = CompresionRespuestas.etiquetaComprimida(etiqueta);
+        for (String candidata : ifNoneMatch.split(",")) {
+            candidata = candidata.trim();
+            if (candidata.startsWith("W/")) {
+                candidata = candidata.substring(2);
+            }
+            if (candidata.equals("*") || candidata.equals('"' + etiqueta.getValue() + '"')) {
+                return etiqueta;
+            }
+            if (candidata.equals('"' + comprimida.getValue() + '"')) {
+                return comprimida;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Obtiene la fecha de la modificación más reciente entre varias versiones.
+     *
+     * @param versiones las versiones.
+     * @return la fecha de la última modificación.
+     */
+    private static Date ultimaModificacion(VersionAnno... versiones) {
+        return Date.from(Arrays.stream(versiones)
+                .map(VersionAnno::modificado)
+                .max(Comparator.naturalOrder())
+                .orElse(Instant.EPOCH));
+    }
+
+    /**
+     * Crea la cabecera Cache-Control de las respuestas que se pueden guardar. Ver {@link #PROPIEDAD_MAX_AGE}.
+     *
+     * @return la cabecera.
+     */
+    private static CacheControl crearCacheControl() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(Integer.getInteger(PROPIEDAD_MAX_AGE, 0));
+        cacheControl.setMustRevalidate(true);
+        cacheControl.setNoTransform(false);
+        return cacheControl;
+    }
 }
@@ -0,0 +1,103 @@
+package es.bocm.numbot.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Writer que codifica en UTF-8 directamente sobre un flujo de salida.
+ * <p>
+ * A diferencia de {@link java.io.OutputStreamWriter}, no reserva un búfer de 8 KB ni crea objetos en cada escritura,
+ * lo que importa cuando se crea uno por respuesta. Los pares sustitutos pueden llegar en escrituras distintas.
+ * <p>
+ * No es seguro entre hilos. Al cerrarlo no se cierra el flujo de salida, que pertenece a quien lo creó.
+ */
+final class Utf8Writer extends Writer {
+    private static final int TAMANNO_BUFFER = 1024;
+
+    private final OutputStream output;
+    private final byte[] buffer = new byte[TAMANNO_BUFFER];
+    private int posicion;
+
+    /**
+     * Primera mitad de un par sustituto pendiente de la segunda, o cero.
+     */
+    private char sustitutoAlto;
+
+    Utf8Writer(OutputStream output) {
+        this.output = output;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        escribirCaracter((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            escribirCaracter(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            escribirCaracter(str.charAt(i));
+        }
+    }
+
+    private void escribirCaracter(char c) throws IOException {
+        if (posicion > TAMANNO_BUFFER - 4) {
+            vaciarBuffer();
+        }
+        if (sustitutoAlto != 0) {
+            char alto = sustitutoAlto;
+            sustitutoAlto = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(alto, c);
+                buffer[posicion++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[posicion++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[posicion++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[posicion++] = (byte) (0x80 | codePoint & 0x3F);
+                return;
+            }
+            // Sustituto alto sin pareja: se reemplaza, como hace el codificador estándar.
+            buffer[posicion++] = '?';
+            escribirCaracter(c);
+        } else if (c < 0x80) {
+            buffer[posicion++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[posicion++] = (byte) (0xC0 | c >> 6);
+            buffer[posicion++] = (byte) (0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c)) {
+            sustitutoAlto = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer[posicion++] = '?';
+        } else {
+            buffer[posicion++] = (byte) (0xE0 | c >> 12);
+            buffer[posicion++] = (byte) (0x80 | c >> 6 & 0x3F);
+            buffer[posicion++] = (byte) (0x80 | c & 0x3F);
+        }
+    }
+
+    private void vaciarBuffer() throws IOException {
+        output.write(buffer, 0, posicion);
+        posicion = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        vaciarBuffer();
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (sustitutoAlto != 0) {
+            sustitutoAlto = 0;
+            buffer[posicion++] = '?';
+        }
+        flush();
+    }
+}
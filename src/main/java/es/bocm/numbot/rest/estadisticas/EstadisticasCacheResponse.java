@@ -0,0 +1,26 @@
+package es.bocm.numbot.rest.estadisticas;
+
+import es.bocm.numbot.rest.NumbotApiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Respuesta exitosa para la consulta de estadísticas de la caché.
+ */
+public record EstadisticasCacheResponse(boolean exito, Map<String, List<Map<String, String>>> data)
+        implements NumbotApiResponse {
+    private static final Logger log = LoggerFactory.getLogger(EstadisticasCacheResponse.class);
+
+    /**
+     * Crea una respuesta a partir de los datos.
+     *
+     * @param data los datos de respuesta, uno por región. Ver formato en {@link EstadisticasResource}.
+     */
+    public EstadisticasCacheResponse(List<Map<String, String>> data) {
+        this(true, Map.of("regiones", data));
+        log.debug("Creado EstadisticasCacheResponse con los datos {}", data);
+    }
+}
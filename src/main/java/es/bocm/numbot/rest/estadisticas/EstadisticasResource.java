@@ -0,0 +1,73 @@
+package es.bocm.numbot.rest.estadisticas;
+
+import es.bocm.numbot.cache.DatosAnnoCache;
+import es.bocm.numbot.cache.EstadisticasRegion;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static es.bocm.numbot.rest.RestUtils.crearRespuestaJson;
+
+/**
+ * <p>Recurso REST para la consulta de las estadísticas de la caché de datos por año ({@link DatosAnnoCache}).<p>
+ *
+ * Se devuelven los datos de cada región de la caché, desde el arranque del servicio.
+ *
+ * Ejemplo de consulta:
+ *
+ * <pre>
+ * GET: /estadisticas/cache
+ *
+ * HTTP/1.1 200 OK
+ * Content-Type: application/json
+ * {
+ *  "exito": true,
+ *  "data": {
+ *      "regiones": [
+ *          {"region": "datos", "aciertos": "120", "fallos": "4", "guardados": "4", "elementos": "3"},
+ *          {"region": "calendarios", "aciertos": "30", "fallos": "2", "guardados": "2", "elementos": "2"},
+ *          ...
+ *      ]
+ *  }
+ * }
+ * </pre>
+ */
+@Path("/estadisticas")
+public class EstadisticasResource {
+    private static final Logger log = LoggerFactory.getLogger(EstadisticasResource.class);
+
+    @Inject
+    DatosAnnoCache cache;
+
+    /**
+     * Obtiene las estadísticas de aciertos, fallos y elementos guardados de la caché de datos por año.
+     *
+     * @return la información solicitada.
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/cache")
+    public Response getEstadisticasCache() {
+        log.info("Inicia petición GET de estadísticas de la caché");
+        List<Map<String, String>> data = new ArrayList<>();
+        for (Map.Entry<String, EstadisticasRegion> region : cache.getEstadisticas().entrySet()) {
+            EstadisticasRegion estadisticas = region.getValue();
+            data.add(Map.of("region", region.getKey(),
+                    "aciertos", Long.toString(estadisticas.aciertos()),
+                    "fallos", Long.toString(estadisticas.fallos()),
+                    "guardados", Long.toString(estadisticas.guardados()),
+                    "elementos", Integer.toString(estadisticas.elementos())));
+        }
+        log.info("Finaliza petición GET de estadísticas de la caché con éxito");
+        return crearRespuestaJson(Response.Status.OK, new EstadisticasCacheResponse(data));
+    }
+}
@@ -1,25 +1,34 @@
 package es.bocm.numbot.rest.extraordinarios;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
-import com.google.gson.reflect.TypeToken;
+import es.bocm.numbot.cache.DatosAnnoCache;
+import es.bocm.numbot.cache.VersionAnno;
 import es.bocm.numbot.entities.Extraordinario;
 import es.bocm.numbot.entities.ExtraordinarioDao;
+import es.bocm.numbot.rest.CompresionRespuestas;
+import es.bocm.numbot.rest.EjecutorConsultas;
 import es.bocm.numbot.rest.ErrorResponse;
+import es.bocm.numbot.rest.FormatoRespuesta;
+import es.bocm.numbot.rest.LectorPeticiones;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Type;
+import java.io.Reader;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import static es.bocm.numbot.rest.RestUtils.*;
 
@@ -64,6 +73,24 @@ import static es.bocm.numbot.rest.RestUtils.*;
  * {"numero_extraordinarios": "0"}
  * </pre>
  *
+ * Ejemplo de actualización de varias fechas de un año en una sola petición. Las fechas no incluidas no cambian, y la
+ * respuesta incluye todos los extraordinarios del año:
+ *
+ * <pre>
+ * PUT: /extraordinarios/anno/2021
+ * [{"fecha": "03-20", "numero": "3"}, {"fecha": "04-16", "numero": "1"}]
+ *
+ * HTTP/1.1 200 OK
+ * Content-Type: application/json
+ * {
+ * 	"exito": "true",
+ * 	"data": {
+ * 		"extraordinarios": "[{"fecha": "01-06", "numero": "1"}, {"fecha": "03-20", "numero": "3"},
+ * 		                     {"fecha": "04-16", "numero": "1"}]"
+ *  }
+ * }
+ * </pre>
+ *
  */
 @Path("/extraordinarios")
 public class ExtraordinarioResource {
@@ -72,31 +99,116 @@ public class ExtraordinarioResource {
     @Inject
     ExtraordinarioDao extDao;
 
+    @Inject
+    DatosAnnoCache cache;
+
+    @Inject
+    EjecutorConsultas ejecutor;
+
     /**
      * Obtiene información sobre los boletines extraordinarios publicados en un año.
+     * <p>
+     * La respuesta incluye las cabeceras ETag y Last-Modified. La etiqueta depende del contenido de los datos del año
+     * ({@link VersionAnno}); si la de If-None-Match coincide con la actual, se responde 304.
+     * <p>
+     * El formato de la respuesta se elige según la cabecera Accept: JSON, CSV o CBOR. Ver {@link FormatoRespuesta}.
+     * <p>
+     * Si los datos del año están en la caché, la respuesta se completa en el acto; si no, también para comprobar la
+     * versión, se consultan en el {@link EjecutorConsultas}.
      *
      * @param anno el año en formato YYYY.
+     * @param ifNoneMatch la cabecera If-None-Match, o null si no se envió.
+     * @param peticion la petición, para elegir el formato según la cabecera Accept. Ver {@link FormatoRespuesta}.
+     * @param acceptEncoding la cabecera Accept-Encoding, o null si no se envió. Ver {@link CompresionRespuestas}.
      * @return la información solicitada o mensaje de error.
      */
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, FormatoRespuesta.TEXT_CSV, FormatoRespuesta.APPLICATION_CBOR})
     @Path("/{anno}")
-    public Response getNumExtraordinarios(@PathParam("anno") String anno) {
+    public CompletionStage<Response> getNumExtraordinarios(
+            @PathParam("anno") String anno,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @Context Request peticion,
+            @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
         log.info("Inicia petición GET para el año {}", anno);
         if (esAnnoNoValido(anno)) {
             log.warn("Finaliza petición GET con año no válido {}", anno);
-            return crearRespuestaAnnoNoValido();
+            return CompletableFuture.completedFuture(crearRespuestaAnnoNoValido());
         } else {
-            List<Extraordinario> extraordinarios;
-            try {
-                extraordinarios = extDao.buscarExtraordinariosPorAnno(Integer.parseInt(anno));
-            } catch (Exception e) {
-                log.error("Finaliza petición GET para el año {} con error desconocido", anno, e);
-                return crearRespuestaErrorDesconocido();
+            int numAnno = Integer.parseInt(anno);
+            FormatoRespuesta formato = FormatoRespuesta.elegir(peticion);
+            if (cache.estaCargado(numAnno)) {
+                return CompletableFuture.completedFuture(responderExtraordinarios(numAnno, ifNoneMatch, formato,
+                        acceptEncoding));
+            }
+            return ejecutor.ejecutar(() -> responderExtraordinarios(numAnno, ifNoneMatch, formato, acceptEncoding));
+        }
+    }
+
+    /**
+     * Crea la respuesta de {@link #getNumExtraordinarios(String, String, Request, String)}: 304 si la etiqueta de
+     * If-None-Match coincide con la de la versión actual de los datos del año y, si no, la de
+     * {@link #consultarExtraordinarios(int, VersionAnno, FormatoRespuesta, String)}.
+     *
+     * @param anno el año.
+     * @param ifNoneMatch la cabecera If-None-Match, o null si no se envió.
+     * @param formato el formato de la respuesta.
+     * @param acceptEncoding la cabecera Accept-Encoding, o null si no se envió.
+     * @return la información solicitada o mensaje de error.
+     */
+    private Response responderExtraordinarios(int anno, String ifNoneMatch, FormatoRespuesta formato,
+                                              String acceptEncoding) {
+        VersionAnno version;
+        try {
+            version = cache.getVersion(anno);
+        } catch (Exception e) {
+            log.error("Finaliza petición GET para el año {} con error desconocido", anno, e);
+            return crearRespuestaErrorDesconocido();
+        }
+        if (esVersionVigente(ifNoneMatch, formato, version)) {
+            log.info("Finaliza petición GET para el año {} sin cambios", anno);
+            return crearRespuestaNoModificada(ifNoneMatch, formato, version);
+        }
+        return consultarExtraordinarios(anno, version, formato, acceptEncoding);
+    }
+
+    /**
+     * Obtiene los boletines extraordinarios de un año y crea la respuesta de
+     * {@link #getNumExtraordinarios(String, String, Request, String)}.
+     * <p>
+     * En JSON, si el cliente admite gzip, se envía la copia comprimida de la caché. Ver
+     * {@link CompresionRespuestas}.
+     *
+     * @param anno el año.
+     * @param version la versión de los datos del año.
+     * @param formato el formato de la respuesta.
+     * @param acceptEncoding la cabecera Accept-Encoding, o null si no se envió.
+     * @return la información solicitada o mensaje de error.
+     */
+    private Response consultarExtraordinarios(int anno, VersionAnno version, FormatoRespuesta formato,
+                                              String acceptEncoding) {
+        Response respuesta;
+        try {
+            // Solo se guarda serializado el formato JSON; el resto se escribe al enviar la respuesta.
+            if (formato == FormatoRespuesta.JSON) {
+                byte[] json = cache.getExtraordinariosSerializados(anno,
+                        ExtraordinarioResource::serializarExtraordinarios);
+                byte[] gzip = CompresionRespuestas.elegirCopiaComprimida(json,
+                        () -> cache.getExtraordinariosComprimidos(anno,
+                                ExtraordinarioResource::serializarExtraordinarios, CompresionRespuestas::comprimir),
+                        acceptEncoding);
+                respuesta = gzip != null ? crearRespuestaJsonComprimida(Response.Status.OK, gzip)
+                        : crearRespuestaJson(Response.Status.OK, json);
+            } else {
+                respuesta = crearRespuesta(Response.Status.OK,
+                        crearExtraordinarioResponse(cache.getExtraordinarios(anno)), formato);
             }
-            log.info("Finaliza petición GET para el año {} con éxito", anno);
-            return crearRespuestaExitosa(extraordinarios);
+        } catch (Exception e) {
+            log.error("Finaliza petición GET para el año {} con error desconocido", anno, e);
+            return crearRespuestaErrorDesconocido();
         }
+        log.info("Finaliza petición GET para el año {} con éxito en formato {}", anno, formato);
+        return conCabecerasCache(respuesta, formato, version);
     }
 
     /**
@@ -107,70 +219,128 @@ public class ExtraordinarioResource {
      */
     private static Response crearRespuestaExitosa(Collection<Extraordinario> extraordinarios) {
         log.debug("Creando respuesta exitosa con los extraordinarios {}", extraordinarios);
+        return crearRespuestaJson(Response.Status.OK, crearExtraordinarioResponse(extraordinarios));
+    }
+
+    /**
+     * Crea el objeto de respuesta exitosa con los boletines extraordinarios.
+     *
+     * @param extraordinarios los boletines extraordinarios a incluir en la respuesta.
+     * @return el objeto de respuesta.
+     */
+    private static ExtraordinarioResponse crearExtraordinarioResponse(Collection<Extraordinario> extraordinarios) {
         List<Map<String, String>> data = extraordinarios.stream().map(Extraordinario::toMap).toList();
-        ExtraordinarioResponse response = new ExtraordinarioResponse(data);
-        return crearRespuestaJson(Response.Status.OK, response);
+        return new ExtraordinarioResponse(data);
+    }
+
+    /**
+     * Serializa los boletines extraordinarios de un año con el formato de la respuesta exitosa, para guardarlos en la
+     * caché.
+     *
+     * @param extraordinarios los boletines extraordinarios a serializar.
+     * @return la respuesta exitosa serializada.
+     */
+    private static byte[] serializarExtraordinarios(Collection<Extraordinario> extraordinarios) {
+        log.debug("Serializando respuesta exitosa con los extraordinarios {}", extraordinarios);
+        return serializarJson(crearExtraordinarioResponse(extraordinarios));
     }
 
     /**
      * Actualiza el número de boletines extraordinarios de una fecha determinada.
+     * <p>
+     * El contenido se lee en el acto; la consulta y la escritura en la BBDD se hacen en el {@link EjecutorConsultas}.
      *
      * @param fecha_str la fecha en formato YYYY-MM-DD.
-     * @param ext_json el nuevo número de boletines extraordinarios para esa fecha.
+     * @param ext_json el nuevo número de boletines extraordinarios para esa fecha. Ver
+     *                 {@link LectorPeticiones#leerExtraordinario(LocalDate, Reader)}.
      * @return la información actualizada o mensaje de error.
      */
     @PUT
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
     @Path("/{fecha}")
-    public Response createOrUpdateNumExtraordinarios(@PathParam("fecha") String fecha_str, String ext_json) {
-        log.info("Inicia petición PUT para la fecha {} con contenido: {}", fecha_str, ext_json);
+    public CompletionStage<Response> createOrUpdateNumExtraordinarios(@PathParam("fecha") String fecha_str,
+                                                                      Reader ext_json) {
+        log.info("Inicia petición PUT para la fecha {}", fecha_str);
         LocalDate fecha;
         try {
             fecha = LocalDate.parse(fecha_str);
         } catch (DateTimeParseException e) {
             log.warn("Finaliza petición PUT con fecha no válida {}", fecha_str, e);
-            return crearRespuestaFechaNoValida();
+            return CompletableFuture.completedFuture(crearRespuestaFechaNoValida());
         }
-        Extraordinario ext;
         Extraordinario ext_candidato;
         try {
-            ext_candidato = crearExtraordinario(fecha, ext_json);
-        } catch (IllegalArgumentException | JsonSyntaxException | NullPointerException e) {
+            ext_candidato = LectorPeticiones.leerExtraordinario(fecha, ext_json);
+        } catch (JsonSyntaxException e) {
             ErrorResponse response = new ErrorResponse("Formato de número de boletines" +
                     " extraordinarios incorrecto. Debe ser un entero mayor o igual que cero. Ejemplo:" +
-                    " {\"numero_extraordinarios\": \"1\"}");
-            log.warn("Finaliza petición PUT con fecha {} con contenido no válido", fecha_str);
-            return crearRespuestaJson(Response.Status.BAD_REQUEST, response);
-        }
-        Optional<Extraordinario> opt_ext = extDao.buscarPorFecha(fecha);
-        if (opt_ext.isPresent()) {
-            ext = opt_ext.get();
-            ext.setNumero(ext_candidato.getNumero());
-        } else {
-            ext = ext_candidato;
-        }
-        try {
-            extDao.crearOActualizar(ext);
-        } catch (Exception e) {
-            log.error("Finaliza petición PUT para la fecha {} con error desconocido", fecha_str, e);
-            return crearRespuestaErrorDesconocido();
+                    " {\"numero_extraordinarios\": \"1\"}. " + e.getMessage());
+            log.warn("Finaliza petición PUT con fecha {} con contenido no válido: {}", fecha_str, e.getMessage());
+            return CompletableFuture.completedFuture(crearRespuestaJson(Response.Status.BAD_REQUEST, response));
         }
-        log.info("Finaliza petición PUT para la fecha {} con éxito", fecha_str);
-        return crearRespuestaExitosa(List.of(ext));
+        return ejecutor.ejecutar(() -> {
+            Extraordinario ext;
+            Optional<Extraordinario> opt_ext = extDao.buscarPorFecha(fecha);
+            if (opt_ext.isPresent()) {
+                ext = opt_ext.get();
+                ext.setNumero(ext_candidato.getNumero());
+            } else {
+                ext = ext_candidato;
+            }
+            try {
+                extDao.crearOActualizar(ext);
+            } catch (Exception e) {
+                log.error("Finaliza petición PUT para la fecha {} con error desconocido", fecha_str, e);
+                return crearRespuestaErrorDesconocido();
+            }
+            log.info("Finaliza petición PUT para la fecha {} con éxito", fecha_str);
+            return crearRespuestaExitosa(List.of(ext));
+        });
     }
 
     /**
-     * Crea un objeto Extraordinario con la información obtenida desde el endpoint.
+     * Crea o actualiza los boletines extraordinarios de varias fechas de un año en una sola operación.
+     * <p>
+     * El contenido se lee en el acto; la escritura en la BBDD se hace en el {@link EjecutorConsultas}.
      *
-     * @param fecha la fecha.
-     * @param ext_json el número de boletines extraordinarios para esa fecha en el formato de entrada del endpoint.
-     * @return el objeto Extraordinario creado.
+     * @param anno el año en formato YYYY.
+     * @param exts_json los boletines extraordinarios de las fechas a crear o actualizar. Se leen según llegan, con
+     *                  {@link LectorPeticiones#leerExtraordinarios(int, Reader)}.
+     * @return todos los boletines extraordinarios del año tras la actualización, o mensaje de error.
      */
-    private Extraordinario crearExtraordinario(LocalDate fecha, String ext_json) {
-        log.debug("Creando Extraordinario con la fecha {} y el contenido {}", fecha, ext_json);
-        Type type = new TypeToken<Map<String, Integer>>() {}.getType();
-        Map<String, Integer> num_ext = new Gson().fromJson(ext_json, type);
-        return new Extraordinario(null, fecha, num_ext.get("numero_extraordinarios"));
+    @PUT
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Path("/anno/{anno}")
+    public CompletionStage<Response> createOrUpdateNumExtraordinariosAnno(@PathParam("anno") String anno,
+                                                                          Reader exts_json) {
+        log.info("Inicia petición PUT para el año {}", anno);
+        if (esAnnoNoValido(anno)) {
+            log.warn("Finaliza petición PUT con año no válido {}", anno);
+            return CompletableFuture.completedFuture(crearRespuestaAnnoNoValido());
+        }
+        List<Extraordinario> exts_nuevos;
+        try {
+            exts_nuevos = LectorPeticiones.leerExtraordinarios(Integer.parseInt(anno), exts_json);
+        } catch (JsonSyntaxException e) {
+            ErrorResponse response = new ErrorResponse("Boletines extraordinarios con formato o fecha no válida. " +
+                    "El formato debe ser [{\"fecha\": \"MM-DD\", \"numero\": \"1\"}, " +
+                    "{\"fecha\": \"MM-DD\", \"numero\": \"2\"}], con números enteros mayores o iguales que cero. " +
+                    e.getMessage());
+            log.warn("Finaliza petición PUT para el año {} con contenido no válido: {}", anno, e.getMessage());
+            return CompletableFuture.completedFuture(crearRespuestaJson(Response.Status.BAD_REQUEST, response));
+        }
+        return ejecutor.ejecutar(() -> {
+            List<Extraordinario> exts_anno;
+            try {
+                exts_anno = extDao.crearOActualizarAnno(Integer.parseInt(anno), exts_nuevos);
+            } catch (Exception e) {
+                log.error("Finaliza petición PUT para el año {} con error desconocido", anno, e);
+                return crearRespuestaErrorDesconocido();
+            }
+            log.info("Finaliza petición PUT para el año {} con éxito", anno);
+            return crearRespuestaExitosa(exts_anno);
+        });
     }
 }
@@ -1,25 +1,31 @@
 package es.bocm.numbot.rest.festivos;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
-import com.google.gson.reflect.TypeToken;
+import es.bocm.numbot.cache.DatosAnnoCache;
+import es.bocm.numbot.cache.VersionAnno;
 import es.bocm.numbot.entities.Festivo;
 import es.bocm.numbot.entities.FestivoDao;
+import es.bocm.numbot.rest.CompresionRespuestas;
+import es.bocm.numbot.rest.EjecutorConsultas;
 import es.bocm.numbot.rest.ErrorResponse;
+import es.bocm.numbot.rest.FormatoRespuesta;
+import es.bocm.numbot.rest.LectorPeticiones;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Type;
-import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
+import java.io.Reader;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import static es.bocm.numbot.rest.RestUtils.*;
 
@@ -62,7 +68,9 @@ import static es.bocm.numbot.rest.RestUtils.*;
  * }
  * </pre>
  *
- * <b>Se borran los festivos anteriores para el año y se reemplazan con los nuevos.</b>
+ * <b>Los festivos del año pasan a ser exactamente los enviados.</b> Solo se escriben las diferencias: se crean los de
+ * fechas nuevas, se borran los de fechas que no se envían y se cambia la descripción de los que la cambian. Ver
+ * {@link FestivoDao#reemplazarFestivos(int, Collection)}.
  *
  */
 @Path("/festivos")
@@ -72,35 +80,119 @@ public class FestivoResource {
     @Inject
     FestivoDao festDao;
 
+    @Inject
+    DatosAnnoCache cache;
+
+    @Inject
+    EjecutorConsultas ejecutor;
+
     /**
      * Obtiene información sobre los festivos de un año.
+     * <p>
+     * La respuesta incluye las cabeceras ETag y Last-Modified. La etiqueta depende del contenido de los datos del año
+     * ({@link VersionAnno}); si la de If-None-Match coincide con la actual, se responde 304.
+     * <p>
+     * El formato de la respuesta se elige según la cabecera Accept: JSON, CSV o CBOR. Ver {@link FormatoRespuesta}.
+     * <p>
+     * Si los datos del año están en la caché, la respuesta se completa en el acto; si no, también para comprobar la
+     * versión, se consultan en el {@link EjecutorConsultas}.
      *
      * @param anno el año en formato YYYY.
+     * @param ifNoneMatch la cabecera If-None-Match, o null si no se envió.
+     * @param peticion la petición, para elegir el formato según la cabecera Accept. Ver {@link FormatoRespuesta}.
+     * @param acceptEncoding la cabecera Accept-Encoding, o null si no se envió. Ver {@link CompresionRespuestas}.
      * @return la información solicitada o mensaje de error.
      */
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, FormatoRespuesta.TEXT_CSV, FormatoRespuesta.APPLICATION_CBOR})
     @Path("/{anno}")
-    public Response getFestivos(@PathParam("anno") String anno) {
+    public CompletionStage<Response> getFestivos(@PathParam("anno") String anno,
+                                                 @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+                                                 @Context Request peticion,
+                                                 @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
         log.info("Inicia petición GET para el año {}", anno);
         if (esAnnoNoValido(anno)) {
             log.warn("Finaliza petición GET con año no válido {}", anno);
-            return crearRespuestaAnnoNoValido();
+            return CompletableFuture.completedFuture(crearRespuestaAnnoNoValido());
         } else {
-            List<Festivo> festivos;
-            try {
-                festivos = festDao.buscarFestivosPorAnno(Integer.parseInt(anno));
-            } catch (Exception e) {
-                log.error("Finaliza petición GET para el año {} con error desconocido", anno, e);
-                return crearRespuestaErrorDesconocido();
+            int numAnno = Integer.parseInt(anno);
+            FormatoRespuesta formato = FormatoRespuesta.elegir(peticion);
+            if (cache.estaCargado(numAnno)) {
+                return CompletableFuture.completedFuture(responderFestivos(numAnno, ifNoneMatch, formato,
+                        acceptEncoding));
             }
-            if (festivos.isEmpty()) {
-                log.warn("Finaliza petición GET para el año {} sin éxito por falta de festivos", anno);
-                return crearRespuestaFaltanFestivos();
-            } else {
-                log.info("Finaliza petición GET para el año {} con éxito", anno);
-                return crearRespuestaExitosa(festivos);
+            return ejecutor.ejecutar(() -> responderFestivos(numAnno, ifNoneMatch, formato, acceptEncoding));
+        }
+    }
+
+    /**
+     * Crea la respuesta de {@link #getFestivos(String, String, Request, String)}: 304 si la etiqueta de
+     * If-None-Match coincide con la de la versión actual de los datos del año y, si no, la de
+     * {@link #consultarFestivos(int, VersionAnno, FormatoRespuesta, String)}.
+     *
+     * @param anno el año.
+     * @param ifNoneMatch la cabecera If-None-Match, o null si no se envió.
+     * @param formato el formato de la respuesta.
+     * @param acceptEncoding la cabecera Accept-Encoding, o null si no se envió.
+     * @return la información solicitada o mensaje de error.
+     */
+    private Response responderFestivos(int anno, String ifNoneMatch, FormatoRespuesta formato,
+                                       String acceptEncoding) {
+        VersionAnno version;
+        try {
+            version = cache.getVersion(anno);
+        } catch (Exception e) {
+            log.error("Finaliza petición GET para el año {} con error desconocido", anno, e);
+            return crearRespuestaErrorDesconocido();
+        }
+        if (esVersionVigente(ifNoneMatch, formato, version)) {
+            log.info("Finaliza petición GET para el año {} sin cambios", anno);
+            return crearRespuestaNoModificada(ifNoneMatch, formato, version);
+        }
+        return consultarFestivos(anno, version, formato, acceptEncoding);
+    }
+
+    /**
+     * Obtiene los festivos de un año y crea la respuesta de {@link #getFestivos(String, String, Request, String)}.
+     * <p>
+     * En JSON, si el cliente admite gzip, se envía la copia comprimida de la caché. Ver
+     * {@link CompresionRespuestas}.
+     *
+     * @param anno el año.
+     * @param version la versión de los datos del año.
+     * @param formato el formato de la respuesta.
+     * @param acceptEncoding la cabecera Accept-Encoding, o null si no se envió.
+     * @return la información solicitada o mensaje de error.
+     */
+    private Response consultarFestivos(int anno, VersionAnno version, FormatoRespuesta formato,
+                                       String acceptEncoding) {
+        Response respuesta = null;
+        try {
+            List<Festivo> festivos = cache.getFestivos(anno);
+            if (!festivos.isEmpty()) {
+                // Solo se guarda serializado el formato JSON; el resto se escribe al enviar la respuesta.
+                if (formato == FormatoRespuesta.JSON) {
+                    byte[] json = cache.getFestivosSerializados(anno, FestivoResource::serializarFestivos);
+                    byte[] gzip = CompresionRespuestas.elegirCopiaComprimida(json,
+                            () -> cache.getFestivosComprimidos(anno, FestivoResource::serializarFestivos,
+                                    CompresionRespuestas::comprimir),
+                            acceptEncoding);
+                    respuesta = gzip != null ? crearRespuestaJsonComprimida(Response.Status.OK, gzip)
+                            : crearRespuestaJson(Response.Status.OK, json);
+                } else {
+                    respuesta = crearRespuesta(Response.Status.OK, crearFestivoResponse(festivos), formato);
+                }
             }
+        } catch (Exception e) {
+            log.error("Finaliza petición GET para el año {} con error desconocido", anno, e);
+            return crearRespuestaErrorDesconocido();
+        }
+        if (respuesta == null) {
+            log.warn("Finaliza petición GET para el año {} sin éxito por falta de festivos", anno);
+            return crearRespuestaFaltanFestivos();
+        } else {
+            log.info("Finaliza petición GET para el año {} con éxito en formato {}", anno, formato);
+            return conCabecerasCache(respuesta, formato, version);
         }
     }
 
@@ -112,69 +204,76 @@ public class FestivoResource {
      */
     private static Response crearRespuestaExitosa(Collection<Festivo> festivos) {
         log.debug("Creando respuesta exitosa con los festivos {}", festivos);
+        return crearRespuestaJson(Response.Status.OK, crearFestivoResponse(festivos));
+    }
+
+    /**
+     * Crea el objeto de respuesta exitosa con los festivos.
+     *
+     * @param festivos los festivos a incluir en la respuesta.
+     * @return el objeto de respuesta.
+     */
+    private static FestivoResponse crearFestivoResponse(Collection<Festivo> festivos) {
         List<Map<String, String>> data = festivos.stream().map(Festivo::toMap).toList();
-        FestivoResponse response = new FestivoResponse(data);
-        return crearRespuestaJson(Response.Status.OK, response);
+        return new FestivoResponse(data);
     }
 
     /**
-     * Actualiza los festivos de un año determinado, borrando los anteriores si existen.
+     * Serializa los festivos de un año con el formato de la respuesta exitosa, para guardarlos en la caché.
+     *
+     * @param festivos los festivos a serializar.
+     * @return la respuesta exitosa serializada.
+     */
+    private static byte[] serializarFestivos(Collection<Festivo> festivos) {
+        log.debug("Serializando respuesta exitosa con los festivos {}", festivos);
+        return serializarJson(crearFestivoResponse(festivos));
+    }
+
+    /**
+     * Actualiza los festivos de un año determinado, sustituyendo los anteriores si existen. Solo se escriben en la
+     * BBDD los festivos que cambian; si no cambia ninguno, no se modifica nada.
+     * <p>
+     * El contenido se lee en el acto; la escritura en la BBDD se hace en el {@link EjecutorConsultas}.
      *
      * @param anno el año en formato YYYY.
-     * @param festivos_json los nuevos festivos para ese año.
+     * @param festivos_json los nuevos festivos para ese año. Se leen según llegan, con
+     *                      {@link LectorPeticiones#leerFestivos(int, Reader)}.
      * @return la información actualizada o mensaje de error.
      */
     @PUT
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
     @Path("/{anno}")
-    public Response createOrUpdateFestivos(@PathParam("anno") String anno, String festivos_json) {
-        log.info("Inicia petición PUT para el año {} con contenido:\n{}", anno, festivos_json);
+    public CompletionStage<Response> createOrUpdateFestivos(@PathParam("anno") String anno, Reader festivos_json) {
+        log.info("Inicia petición PUT para el año {}", anno);
         if (esAnnoNoValido(anno)) {
             log.warn("Finaliza petición PUT con año no válido {}", anno);
-            return crearRespuestaAnnoNoValido();
+            return CompletableFuture.completedFuture(crearRespuestaAnnoNoValido());
         } else {
             List<Festivo> festivos_nuevos;
             try {
-                festivos_nuevos = crearFestivos(anno, festivos_json);
-            } catch (IllegalArgumentException | JsonSyntaxException | NullPointerException | DateTimeParseException e) {
+                festivos_nuevos = LectorPeticiones.leerFestivos(Integer.parseInt(anno), festivos_json);
+            } catch (JsonSyntaxException e) {
                 ErrorResponse response = new ErrorResponse("Festivos con formato o fecha no válida. " +
                         "El formato debe ser [{\"descripcion\": \"descripcion festivo 1\", \"fecha\": \"MM-DD\"}, " +
                         "{\"descripcion\": \"descripcion festivo 2\", \"fecha\": \"MM-DD\"}]. No se deben incluir " +
                         "festivos que caen en sábado ni en domingo, o en los días que no hay boletín " +
-                        "(1 de enero, 25 de diciembre y Viernes Santo)");
-                log.warn("Finaliza petición PUT para el año {} con contenido no válido", anno);
-                return crearRespuestaJson(Response.Status.BAD_REQUEST, response);
-            }
-            try {
-                List<Festivo> festivos_antiguos = festDao.buscarFestivosPorAnno(Integer.parseInt(anno));
-                festDao.borrarFestivos(festivos_antiguos);
-                festDao.crearFestivos(festivos_nuevos);
-            } catch (Exception e) {
-                log.error("Finaliza petición PUT para el año {} con error desconocido", anno, e);
-                return crearRespuestaErrorDesconocido();
+                        "(1 de enero, 25 de diciembre y Viernes Santo). " + e.getMessage());
+                log.warn("Finaliza petición PUT para el año {} con contenido no válido: {}", anno, e.getMessage());
+                return CompletableFuture.completedFuture(crearRespuestaJson(Response.Status.BAD_REQUEST, response));
             }
-            log.info("Finaliza petición PUT para el año {} con éxito", anno);
-            return crearRespuestaExitosa(festivos_nuevos);
-        }
-    }
-
-    /**
-     * Crea los objetos Festivo con la información obtenida desde el endpoint.
-     *
-     * @param anno el año en formato YYYY.
-     * @param festivos_json los festivos para ese año en el formato de entrada del endpoint.
-     * @return los objetos Festivo creados.
-     */
-    private List<Festivo> crearFestivos(String anno, String festivos_json) {
-        log.debug("Creando objetos Festivo con el año {} y el contenido\n{}", anno, festivos_json);
-        List<Festivo> festivos = new ArrayList<>();
-        Type type = new TypeToken<List<Map<String, String>>>(){}.getType();
-        List<Map<String, String>> festivos_map = new Gson().fromJson(festivos_json, type);
-        for (Map<String, String> festivo_map : festivos_map) {
-            LocalDate fecha = LocalDate.parse(anno + '-' + festivo_map.get("fecha"));
-            festivos.add(new Festivo(null, fecha, festivo_map.get("descripcion")));
+            return ejecutor.ejecutar(() -> {
+                boolean cambiados;
+                try {
+                    cambiados = festDao.reemplazarFestivos(Integer.parseInt(anno), festivos_nuevos);
+                } catch (Exception e) {
+                    log.error("Finaliza petición PUT para el año {} con error desconocido", anno, e);
+                    return crearRespuestaErrorDesconocido();
+                }
+                log.info("Finaliza petición PUT para el año {} con éxito {}", anno,
+                        cambiados ? "y festivos modificados" : "y sin cambios");
+                return crearRespuestaExitosa(festivos_nuevos);
+            });
         }
-        return festivos;
     }
 }
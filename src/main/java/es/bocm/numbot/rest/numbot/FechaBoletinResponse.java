@@ -0,0 +1,26 @@
+package es.bocm.numbot.rest.numbot;
+
+import es.bocm.numbot.rest.NumbotApiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Respuesta exitosa para la búsqueda de la fecha de un número de Boletín.
+ */
+public record FechaBoletinResponse(boolean exito, Map<String, String> data) implements NumbotApiResponse {
+    private static final Logger log = LoggerFactory.getLogger(FechaBoletinResponse.class);
+
+    /**
+     * Crea una respuesta a partir de los datos.
+     *
+     * @param numBot el número de boletín.
+     * @param fecha la fecha de publicación del boletín.
+     */
+    public FechaBoletinResponse(int numBot, LocalDate fecha) {
+        this(true, Map.of("numero_boletin", Integer.toString(numBot), "fecha", fecha.toString()));
+        log.debug("Creado FechaBoletinResponse con número de boletín {} y fecha {}", numBot, fecha);
+    }
+}
@@ -0,0 +1,26 @@
+package es.bocm.numbot.rest.numbot;
+
+import es.bocm.numbot.rest.NumbotApiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Respuesta exitosa para la búsqueda en bloque de las fechas de varios números de Boletín.
+ */
+public record FechasBoletinResponse(boolean exito, Map<String, List<Map<String, String>>> data)
+        implements NumbotApiResponse {
+    private static final Logger log = LoggerFactory.getLogger(FechasBoletinResponse.class);
+
+    /**
+     * Crea una respuesta a partir de los datos.
+     *
+     * @param data los datos de respuesta, uno por número de Boletín. Ver formato en {@link NumbotResource}.
+     */
+    public FechasBoletinResponse(List<Map<String, String>> data) {
+        this(true, Map.of("fechas", data));
+        log.debug("Creado FechasBoletinResponse con los datos {}", data);
+    }
+}
@@ -0,0 +1,26 @@
+package es.bocm.numbot.rest.numbot;
+
+import es.bocm.numbot.rest.NumbotApiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Respuesta exitosa para la consulta en bloque de varias fechas del recurso de numero-boletin.
+ */
+public record LoteNumbotResponse(boolean exito, Map<String, List<Map<String, String>>> data)
+        implements NumbotApiResponse {
+    private static final Logger log = LoggerFactory.getLogger(LoteNumbotResponse.class);
+
+    /**
+     * Crea una respuesta a partir de los datos.
+     *
+     * @param data los datos de respuesta, uno por fecha. Ver formato en {@link NumbotResource}.
+     */
+    public LoteNumbotResponse(List<Map<String, String>> data) {
+        this(true, Map.of("resultados", data));
+        log.debug("Creado LoteNumbotResponse con los datos {}", data);
+    }
+}
@@ -1,24 +1,35 @@
 package es.bocm.numbot.rest.numbot;
 
-import es.bocm.numbot.calculations.CalcUtils;
-import es.bocm.numbot.calculations.CalcularNumBot;
-import es.bocm.numbot.entities.Extraordinario;
-import es.bocm.numbot.entities.ExtraordinarioDao;
-import es.bocm.numbot.entities.Festivo;
-import es.bocm.numbot.entities.FestivoDao;
+import com.google.gson.JsonSyntaxException;
+import es.bocm.numbot.cache.DatosAnnoCache;
+import es.bocm.numbot.cache.VersionAnno;
+import es.bocm.numbot.calculations.MultiYearCalendar;
+import es.bocm.numbot.calculations.YearCalendar;
+import es.bocm.numbot.entities.NumeroBoletin;
+import es.bocm.numbot.entities.NumeroBoletinDao;
+import es.bocm.numbot.rest.EjecutorConsultas;
+import es.bocm.numbot.rest.ErrorResponse;
+import es.bocm.numbot.rest.FormatoRespuesta;
 import jakarta.inject.Inject;
-import jakarta.ws.rs.GET;
-import jakarta.ws.rs.Path;
-import jakarta.ws.rs.PathParam;
-import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import static es.bocm.numbot.rest.RestUtils.*;
 
@@ -41,55 +52,588 @@ import static es.bocm.numbot.rest.RestUtils.*;
  *  }
  * }
  * </pre>
+ *
+ * Ejemplo de consulta de un rango de fechas, que devuelve solo las fechas con publicación:
+ *
+ * <pre>
+ * GET: /numero-boletin?desde=2021-12-30&hasta=2022-01-03
+ *
+ * HTTP/1.1 200 OK
+ * Content-Type: application/json
+ * {
+ * 	"exito": "true",
+ * 	"data": {
+ * 		"boletines":
+ * 		    "[{"fecha": "2021-12-30", "primer_numero_boletin": "309", "numero_boletin": "309",
+ * 		    "numero_boletines_en_no_laboral_seguidos": "0"},
+ * 		    {"fecha": "2021-12-31", "primer_numero_boletin": "310", "numero_boletin": "310",
+ * 		    "numero_boletines_en_no_laboral_seguidos": "0"},
+ * 		    {"fecha": "2022-01-03", "primer_numero_boletin": "1", "numero_boletin": "1",
+ * 		    "numero_boletines_en_no_laboral_seguidos": "0"}]"
+ *  }
+ * }
+ * </pre>
+ *
+ * Ejemplo de consulta en bloque de varias fechas, que devuelve los resultados en el mismo orden:
+ *
+ * <pre>
+ * POST: /numero-boletin/lote
+ * ["2021-12-07", "2021-13-01"]
+ *
+ * HTTP/1.1 200 OK
+ * Content-Type: application/json
+ * {
+ * 	"exito": "true",
+ * 	"data": {
+ * 		"resultados":
+ * 		    "[{"fecha": "2021-12-07", "numero_boletin": "301", "numero_boletines_en_no_laboral_seguidos": "1"},
+ * 		    {"fecha": "2021-13-01", "error": "Fecha errónea o con formato incorrecto. El formato debe ser
+ * 		    YYYY-MM-DD"}]"
+ *  }
+ * }
+ * </pre>
+ *
+ * Ejemplo de búsqueda de la fecha de un número de Boletín:
+ *
+ * <pre>
+ * GET: /numero-boletin/2021/numero/301
+ *
+ * HTTP/1.1 200 OK
+ * Content-Type: application/json
+ * {
+ * 	"exito": "true",
+ * 	"data": {
+ * 		"numero_boletin": "301",
+ * 		"fecha": "2021-12-07"
+ *  }
+ * }
+ * </pre>
+ *
+ * Ejemplo de búsqueda en bloque de las fechas de varios números de Boletín:
+ *
+ * <pre>
+ * POST: /numero-boletin/2021/numero
+ * [1, 301, 400]
+ *
+ * HTTP/1.1 200 OK
+ * Content-Type: application/json
+ * {
+ * 	"exito": "true",
+ * 	"data": {
+ * 		"fechas":
+ * 		    "[{"numero_boletin": "1", "fecha": "2021-01-02"},
+ * 		    {"numero_boletin": "301", "fecha": "2021-12-07"},
+ * 		    {"numero_boletin": "400", "error": "No se publica ese número de Boletín en el año"}]"
+ *  }
+ * }
+ * </pre>
+ *
+ * Las consultas también se pueden pedir en CSV o CBOR con la cabecera Accept ({@link FormatoRespuesta}). Por ejemplo,
+ * la consulta de un rango de fechas:
+ *
+ * <pre>
+ * GET: /numero-boletin?desde=2021-12-30&hasta=2022-01-03
+ * Accept: text/csv
+ *
+ * HTTP/1.1 200 OK
+ * Content-Type: text/csv;charset=UTF-8
+ * fecha,primer_numero_boletin,numero_boletin,numero_boletines_en_no_laboral_seguidos
+ * 2021-12-30,309,309,0
+ * 2021-12-31,310,310,0
+ * 2022-01-03,1,1,0
+ * </pre>
  */
 @Path("/numero-boletin")
 public class NumbotResource {
     private static final Logger log = LoggerFactory.getLogger(NumbotResource.class);
 
+    /**
+     * Mensaje de error cuando un número de Boletín no se publica en el año indicado.
+     */
+    private static final String NUMERO_NO_PUBLICADO = "No se publica ese número de Boletín en el año";
+
+    /**
+     * Propiedad de sistema con el número máximo de años que puede abarcar un rango de fechas.
+     */
+    public static final String PROPIEDAD_MAX_ANNOS_RANGO = "numbot.rango.max-annos";
+    private static final int MAX_ANNOS_RANGO = 5;
+
+    /**
+     * Propiedad de sistema con el número máximo de fechas de una petición en bloque.
+     */
+    public static final String PROPIEDAD_MAX_FECHAS_LOTE = "numbot.lote.max-fechas";
+    private static final int MAX_FECHAS_LOTE = 10_000;
+
+    @Inject
+    DatosAnnoCache cache;
+
     @Inject
-    ExtraordinarioDao extDao;
+    NumeroBoletinDao numerosDao;
 
     @Inject
-    FestivoDao festDao;
+    EjecutorConsultas ejecutor;
 
     /**
      * Obtiene información sobre el número de boletín y el número de boletines en no laboral seguidos para una fecha
      * determinada.
+     * <p>
+     * Si los datos del año de la fecha y del siguiente están en la caché, se calcula a partir de los calendarios de
+     * publicación y se responde en el acto. Si no, en el {@link EjecutorConsultas}: si la fecha está en la tabla de
+     * números de Boletín ya calculados ({@link NumeroBoletin}), se responde con una única lectura por clave primaria,
+     * y si no, se calcula a partir de los calendarios.
+     * <p>
+     * La respuesta depende de los datos del año de la fecha y del siguiente, y su ETag, de las versiones de ambos
+     * ({@link VersionAnno}), que se obtienen antes, también en el {@link EjecutorConsultas} si los datos no están en la
+     * caché. Si la etiqueta de If-None-Match coincide con la actual, se responde 304.
      *
      * @param fecha_str la fecha en formato YYYY-MM-DD.
+     * @param ifNoneMatch la cabecera If-None-Match, o null si no se envió.
+     * @param peticion la petición, para elegir el formato según la cabecera Accept. Ver {@link FormatoRespuesta}.
      * @return la información solicitada o mensaje de error.
      */
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, FormatoRespuesta.TEXT_CSV, FormatoRespuesta.APPLICATION_CBOR})
     @Path("/{fecha}")
-    public Response getNumbot(@PathParam("fecha") String fecha_str) {
+    public CompletionStage<Response> getNumbot(@PathParam("fecha") String fecha_str,
+                                               @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+                                               @Context Request peticion) {
         log.info("Inicia petición GET para la fecha {}", fecha_str);
         LocalDate fecha;
         try {
             fecha = LocalDate.parse(fecha_str);
         } catch (DateTimeParseException e) {
             log.warn("Finaliza petición GET con fecha no válida {}", fecha_str, e);
-            return crearRespuestaFechaNoValida();
+            return CompletableFuture.completedFuture(crearRespuestaFechaNoValida());
         }
-        int anno = fecha.getYear();
-        List<Extraordinario> extAnno;
-        List<Festivo> festivosAnno;
+        FormatoRespuesta formato = FormatoRespuesta.elegir(peticion);
+        if (estaCargado(fecha)) {
+            VersionAnno[] versiones = {cache.getVersion(fecha.getYear()), cache.getVersion(fecha.getYear() + 1)};
+            if (esVersionVigente(ifNoneMatch, formato, versiones)) {
+                log.info("Finaliza petición GET para la fecha {} sin cambios", fecha_str);
+                return CompletableFuture.completedFuture(crearRespuestaNoModificada(ifNoneMatch, formato, versiones));
+            }
+            return CompletableFuture.completedFuture(calcularNumbot(fecha_str, fecha, versiones, formato));
+        }
+        return ejecutor.ejecutar(() -> {
+            VersionAnno[] versiones;
+            Optional<NumeroBoletin> numeroBoletin;
+            try {
+                versiones = new VersionAnno[]{cache.getVersion(fecha.getYear()), cache.getVersion(fecha.getYear() + 1)};
+                if (esVersionVigente(ifNoneMatch, formato, versiones)) {
+                    log.info("Finaliza petición GET para la fecha {} sin cambios", fecha_str);
+                    return crearRespuestaNoModificada(ifNoneMatch, formato, versiones);
+                }
+                numeroBoletin = numerosDao.buscarPorFecha(fecha);
+            } catch (Exception e) {
+                log.error("Finaliza petición GET para la fecha {} con error desconocido", fecha_str, e);
+                return crearRespuestaErrorDesconocido();
+            }
+            if (numeroBoletin.isPresent()) {
+                NumbotResponse response = new NumbotResponse(
+                        Integer.toString(numeroBoletin.get().getUltimoNumero()),
+                        Integer.toString(numeroBoletin.get().getNumBotsEnNoLaboralSeguidos()));
+                log.info("Finaliza petición GET para la fecha {} con éxito desde la tabla de números", fecha_str);
+                return conCabecerasCache(crearRespuesta(Response.Status.OK, response, formato), formato, versiones);
+            }
+            return calcularNumbot(fecha_str, fecha, versiones, formato);
+        });
+    }
+
+    /**
+     * Calcula la respuesta de {@link #getNumbot(String, String, Request)} a partir de los calendarios de publicación.
+     *
+     * @param fecha_str la fecha tal como llegó en la petición.
+     * @param fecha la fecha.
+     * @param versiones las versiones de los datos del año de la fecha y del siguiente.
+     * @param formato el formato de la respuesta.
+     * @return la información solicitada o mensaje de error.
+     */
+    private Response calcularNumbot(String fecha_str, LocalDate fecha, VersionAnno[] versiones,
+                                    FormatoRespuesta formato) {
+        MultiYearCalendar calendarios = new MultiYearCalendar(cache::getCalendario);
+        YearCalendar calendario;
+        int numBotsEnFestivoSeguidos;
         try {
-            extAnno = extDao.buscarExtraordinariosPorAnno(anno);
-            festivosAnno = festDao.buscarFestivosPorAnno(anno);
+            calendario = calendarios.getCalendario(fecha.getYear());
+            numBotsEnFestivoSeguidos = calendarios.numBotsEnFestivoSeguidos(fecha);
         } catch (Exception e) {
             log.error("Finaliza petición GET para la fecha {} con error desconocido", fecha_str, e);
             return crearRespuestaErrorDesconocido();
         }
-        if (festivosAnno.isEmpty()) {
+        if (!calendario.tieneFestivos()) {
             log.warn("Finaliza petición GET para la fecha {} sin éxito por falta de festivos", fecha_str);
             return crearRespuestaFaltanFestivos();
         }
-        int numBot = CalcularNumBot.getNumBot(fecha, extAnno);
-        int numBotsEnFestivoSeguidos = CalcUtils.numBotsEnFestivoSeguidos(fecha, festivosAnno);
+        int numBot = calendario.getNumBot(fecha);
         NumbotResponse response = new NumbotResponse(Integer.toString(numBot),
                 Integer.toString(numBotsEnFestivoSeguidos));
         log.info("Finaliza petición GET para la fecha {} con éxito", fecha_str);
-        return crearRespuestaJson(Response.Status.OK, response);
+        return conCabecerasCache(crearRespuesta(Response.Status.OK, response, formato), formato, versiones);
+    }
+
+    /**
+     * Obtiene información sobre el número de boletín y el número de boletines en no laboral seguidos para todas las
+     * fechas con publicación de un rango.
+     * <p>
+     * Los festivos y extraordinarios de cada año del rango se cargan una sola vez, en el {@link EjecutorConsultas} si
+     * alguno no está en la caché, y la respuesta se escribe según se calcula, sin construirla entera en memoria.
+     * <p>
+     * El rango no puede abarcar más años de los indicados en la propiedad de sistema
+     * {@value #PROPIEDAD_MAX_ANNOS_RANGO} (por defecto, {@value #MAX_ANNOS_RANGO}): cada año supone cargar sus datos y
+     * ocupar el {@link EjecutorConsultas} mientras tanto.
+     *
+     * @param desde_str la primera fecha del rango, incluida, en formato YYYY-MM-DD.
+     * @param hasta_str la última fecha del rango, incluida, en formato YYYY-MM-DD.
+     * @param peticion la petición, para elegir el formato según la cabecera Accept. Ver {@link FormatoRespuesta}.
+     * @return la información solicitada o mensaje de error.
+     */
+    @GET
+    @Produces({MediaType.APPLICATION_JSON, FormatoRespuesta.TEXT_CSV, FormatoRespuesta.APPLICATION_CBOR})
+    public CompletionStage<Response> getNumbots(@QueryParam("desde") String desde_str,
+                                                @QueryParam("hasta") String hasta_str,
+                                                @Context Request peticion) {
+        log.info("Inicia petición GET para el rango de fechas {} - {}", desde_str, hasta_str);
+        LocalDate desde;
+        LocalDate hasta;
+        try {
+            desde = LocalDate.parse(desde_str);
+            hasta = LocalDate.parse(hasta_str);
+        } catch (DateTimeParseException | NullPointerException e) {
+            log.warn("Finaliza petición GET con rango de fechas no válido {} - {}", desde_str, hasta_str);
+            return CompletableFuture.completedFuture(crearRespuestaFechaNoValida());
+        }
+        if (hasta.isBefore(desde)) {
+            log.warn("Finaliza petición GET con rango de fechas invertido {} - {}", desde_str, hasta_str);
+            ErrorResponse response = new ErrorResponse("Rango de fechas no válido: la fecha inicial es posterior " +
+                    "a la final");
+            return CompletableFuture.completedFuture(crearRespuestaJson(Response.Status.BAD_REQUEST, response));
+        }
+        int maxAnnos = Integer.getInteger(PROPIEDAD_MAX_ANNOS_RANGO, MAX_ANNOS_RANGO);
+        if (hasta.getYear() - desde.getYear() >= maxAnnos) {
+            log.warn("Finaliza petición GET con rango de fechas demasiado grande {} - {}", desde_str, hasta_str);
+            ErrorResponse response = new ErrorResponse("Rango de fechas no válido: no puede abarcar más de " +
+                    maxAnnos + " años");
+            return CompletableFuture.completedFuture(crearRespuestaJson(Response.Status.BAD_REQUEST, response));
+        }
+        FormatoRespuesta formato = FormatoRespuesta.elegir(peticion);
+        boolean cargados = IntStream.rangeClosed(desde.getYear(), hasta.getYear() + 1).allMatch(cache::estaCargado);
+        return responder(cargados, () -> crearRespuestaRango(desde_str, hasta_str, desde, hasta, formato));
+    }
+
+    /**
+     * Carga los calendarios de un rango de fechas y crea la respuesta de
+     * {@link #getNumbots(String, String, Request)}, que se escribe al enviarla.
+     *
+     * @param desde_str la primera fecha del rango tal como llegó en la petición.
+     * @param hasta_str la última fecha del rango tal como llegó en la petición.
+     * @param desde la primera fecha del rango, incluida.
+     * @param hasta la última fecha del rango, incluida.
+     * @param formato el formato de la respuesta.
+     * @return la información solicitada o mensaje de error.
+     */
+    private Response crearRespuestaRango(String desde_str, String hasta_str, LocalDate desde, LocalDate hasta,
+                                         FormatoRespuesta formato) {
+        MultiYearCalendar calendarios = new MultiYearCalendar(cache::getCalendario);
+        try {
+            for (int anno = desde.getYear(); anno <= hasta.getYear(); anno++) {
+                if (!calendarios.getCalendario(anno).tieneFestivos()) {
+                    log.warn("Finaliza petición GET para el rango de fechas {} - {} sin éxito por falta de " +
+                            "festivos del año {}", desde_str, hasta_str, anno);
+                    return crearRespuestaFaltanFestivos();
+                }
+            }
+            // Si algún recorrido del rango pasa al año siguiente, también lo hace el de la última fecha. Se carga
+            // ahora para no acceder a la BBDD mientras se escribe la respuesta.
+            if (calendarios.necesitaAnnoSiguiente(hasta)) {
+                calendarios.getCalendario(hasta.getYear() + 1);
+            }
+        } catch (Exception e) {
+            log.error("Finaliza petición GET para el rango de fechas {} - {} con error desconocido", desde_str,
+                    hasta_str, e);
+            return crearRespuestaErrorDesconocido();
+        }
+        StreamingOutput salida = output -> escribirRango(output, desde, hasta, calendarios, formato);
+        log.info("Finaliza petición GET para el rango de fechas {} - {} con éxito en formato {}", desde_str,
+                hasta_str, formato);
+        return Response.ok(salida, formato.getTipo()).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+    }
+
+    /**
+     * Escribe la información de todas las fechas con publicación de un rango.
+     *
+     * @param output el flujo de salida de la respuesta.
+     * @param desde la primera fecha del rango, incluida.
+     * @param hasta la última fecha del rango, incluida.
+     * @param calendarios los calendarios, con todos los años que se necesitan ya cargados.
+     * @param formato el formato de la respuesta.
+     * @throws IOException si falla la escritura.
+     */
+    private static void escribirRango(OutputStream output, LocalDate desde, LocalDate hasta,
+                                      MultiYearCalendar calendarios, FormatoRespuesta formato) throws IOException {
+        FormatoRespuesta.Lista boletines = formato.abrirLista(output, "boletines", "fecha", "primer_numero_boletin",
+                "numero_boletin", "numero_boletines_en_no_laboral_seguidos");
+        for (LocalDate fecha = desde; !fecha.isAfter(hasta); fecha = fecha.plusDays(1)) {
+            YearCalendar calendario = calendarios.getCalendario(fecha.getYear());
+            int numBotsPublicados = calendario.getNumBotsPublicados(fecha);
+            if (numBotsPublicados > 0) {
+                int numBot = calendario.getUltimoNumBotPublicado(fecha);
+                boletines.fila(fecha.toString(), numBot - numBotsPublicados + 1, numBot,
+                        calendarios.numBotsEnFestivoSeguidos(fecha));
+            }
+        }
+        boletines.cerrar();
+    }
+
+    /**
+     * Obtiene información sobre el número de boletín y el número de boletines en no laboral seguidos para varias
+     * fechas arbitrarias.
+     * <p>
+     * Los festivos y extraordinarios de cada año se cargan una sola vez, en el {@link EjecutorConsultas} si alguno no
+     * está en la caché. Con los calendarios cargados, cada resultado cuesta muy poco, así que se calculan en el mismo
+     * hilo, sin repartirlos en otros.
+     * <p>
+     * La petición no puede tener más fechas de las indicadas en la propiedad de sistema
+     * {@value #PROPIEDAD_MAX_FECHAS_LOTE} (por defecto, {@value #MAX_FECHAS_LOTE}).
+     *
+     * @param fechas_json las fechas en formato YYYY-MM-DD, como array JSON.
+     * @param peticion la petición, para elegir el formato según la cabecera Accept. Ver {@link FormatoRespuesta}.
+     * @return la información solicitada en el orden de entrada, con un error por cada fecha que no se pudo
+     * procesar, o mensaje de error.
+     */
+    @POST
+    @Produces({MediaType.APPLICATION_JSON, FormatoRespuesta.TEXT_CSV, FormatoRespuesta.APPLICATION_CBOR})
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Path("/lote")
+    public CompletionStage<Response> getNumbotsLote(String fechas_json,
+                                                    @Context Request peticion) {
+        log.info("Inicia petición POST en bloque");
+        String[] fechas_str;
+        try {
+            fechas_str = GSON.fromJson(fechas_json, String[].class);
+            if (fechas_str == null) {
+                throw new JsonSyntaxException("Contenido vacío");
+            }
+        } catch (JsonSyntaxException e) {
+            log.warn("Finaliza petición POST en bloque con contenido no válido");
+            ErrorResponse response = new ErrorResponse("Formato de fechas incorrecto. Debe ser un array JSON de " +
+                    "fechas en formato YYYY-MM-DD. Ejemplo: [\"2021-12-07\", \"2022-01-03\"]");
+            return CompletableFuture.completedFuture(crearRespuestaJson(Response.Status.BAD_REQUEST, response));
+        }
+        int maxFechas = Integer.getInteger(PROPIEDAD_MAX_FECHAS_LOTE, MAX_FECHAS_LOTE);
+        if (fechas_str.length > maxFechas) {
+            log.warn("Finaliza petición POST en bloque con demasiadas fechas: {}", fechas_str.length);
+            ErrorResponse response = new ErrorResponse("Demasiadas fechas en la petición: no puede haber más de " +
+                    maxFechas);
+            return CompletableFuture.completedFuture(crearRespuestaJson(Response.Status.BAD_REQUEST, response));
+        }
+        LocalDate[] fechas = new LocalDate[fechas_str.length];
+        boolean cargados = true;
+        for (int i = 0; i < fechas_str.length; i++) {
+            fechas[i] = parsearFecha(fechas_str[i]);
+            cargados &= fechas[i] == null || estaCargado(fechas[i]);
+        }
+        FormatoRespuesta formato = FormatoRespuesta.elegir(peticion);
+        return responder(cargados, () -> calcularLote(fechas_str, fechas, formato));
+    }
+
+    /**
+     * Calcula la respuesta de {@link #getNumbotsLote(String, Request)}.
+     *
+     * @param fechas_str las fechas tal como llegaron en la petición.
+     * @param fechas las fechas, con nulo en las que no son válidas.
+     * @param formato el formato de la respuesta.
+     * @return la información solicitada o mensaje de error.
+     */
+    private Response calcularLote(String[] fechas_str, LocalDate[] fechas, FormatoRespuesta formato) {
+        MultiYearCalendar calendarios = new MultiYearCalendar(cache::getCalendario);
+        try {
+            for (LocalDate fecha : fechas) {
+                // Se cargan aquí, antes de calcular, todos los años que se van a necesitar.
+                if (fecha != null && calendarios.getCalendario(fecha.getYear()).tieneFestivos()
+                        && calendarios.necesitaAnnoSiguiente(fecha)) {
+                    calendarios.getCalendario(fecha.getYear() + 1);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Finaliza petición POST en bloque con error desconocido", e);
+            return crearRespuestaErrorDesconocido();
+        }
+        List<Map<String, String>> data = IntStream.range(0, fechas.length)
+                .mapToObj(i -> crearResultadoLote(String.valueOf(fechas_str[i]), fechas[i], calendarios))
+                .toList();
+        log.info("Finaliza petición POST en bloque para {} fechas con éxito", fechas.length);
+        return crearRespuesta(Response.Status.OK, new LoteNumbotResponse(data), formato);
+    }
+
+    /**
+     * Convierte una fecha en formato YYYY-MM-DD.
+     *
+     * @param fecha_str la fecha.
+     * @return la fecha, o nulo si no es válida.
+     */
+    private static LocalDate parsearFecha(String fecha_str) {
+        try {
+            return LocalDate.parse(fecha_str);
+        } catch (DateTimeParseException | NullPointerException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Crea el resultado de una fecha de una petición en bloque.
+     *
+     * @param fecha_str la fecha tal como llegó en la petición.
+     * @param fecha la fecha, o nulo si no es válida.
+     * @param calendarios los calendarios, con todos los años que se necesitan ya cargados.
+     * @return el resultado para la fecha. Ver formato en {@link NumbotResource}.
+     */
+    private static Map<String, String> crearResultadoLote(String fecha_str, LocalDate fecha,
+                                                          MultiYearCalendar calendarios) {
+        if (fecha == null) {
+            return Map.of("fecha", fecha_str, "error", MENSAJE_FECHA_NO_VALIDA);
+        }
+        YearCalendar calendario = calendarios.getCalendario(fecha.getYear());
+        if (!calendario.tieneFestivos()) {
+            return Map.of("fecha", fecha_str, "error", MENSAJE_FALTAN_FESTIVOS);
+        }
+        return Map.of("fecha", fecha_str,
+                "numero_boletin", Integer.toString(calendario.getNumBot(fecha)),
+                "numero_boletines_en_no_laboral_seguidos",
+                Integer.toString(calendarios.numBotsEnFestivoSeguidos(fecha)));
+    }
+
+    /**
+     * Obtiene la fecha en que se publicó un número de Boletín de un año determinado.
+     *
+     * @param anno el año en formato YYYY.
+     * @param numero_str el número de Boletín.
+     * @param peticion la petición, para elegir el formato según la cabecera Accept. Ver {@link FormatoRespuesta}.
+     * @return la información solicitada o mensaje de error.
+     */
+    @GET
+    @Produces({MediaType.APPLICATION_JSON, FormatoRespuesta.TEXT_CSV, FormatoRespuesta.APPLICATION_CBOR})
+    @Path("/{anno}/numero/{numero}")
+    public CompletionStage<Response> getFecha(@PathParam("anno") String anno, @PathParam("numero") String numero_str,
+                                              @Context Request peticion) {
+        log.info("Inicia petición GET para el año {} y el número {}", anno, numero_str);
+        if (esAnnoNoValido(anno)) {
+            log.warn("Finaliza petición GET con año no válido {}", anno);
+            return CompletableFuture.completedFuture(crearRespuestaAnnoNoValido());
+        }
+        int numero;
+        try {
+            numero = Integer.parseInt(numero_str);
+        } catch (NumberFormatException e) {
+            log.warn("Finaliza petición GET con número no válido {}", numero_str);
+            return CompletableFuture.completedFuture(crearRespuestaNumeroNoValido());
+        }
+        FormatoRespuesta formato = FormatoRespuesta.elegir(peticion);
+        int numAnno = Integer.parseInt(anno);
+        return responder(cache.estaCargado(numAnno), () -> {
+            YearCalendar calendario;
+            try {
+                calendario = cache.getCalendario(numAnno);
+            } catch (Exception e) {
+                log.error("Finaliza petición GET para el año {} y el número {} con error desconocido", anno,
+                        numero_str, e);
+                return crearRespuestaErrorDesconocido();
+            }
+            Optional<LocalDate> fecha = calendario.getFecha(numero);
+            if (fecha.isEmpty()) {
+                log.warn("Finaliza petición GET para el año {} sin éxito: no existe el número {}", anno, numero_str);
+                ErrorResponse response = new ErrorResponse(NUMERO_NO_PUBLICADO);
+                return crearRespuestaJson(Response.Status.NOT_FOUND, response);
+            }
+            log.info("Finaliza petición GET para el año {} y el número {} con éxito", anno, numero_str);
+            return crearRespuesta(Response.Status.OK, new FechaBoletinResponse(numero, fecha.get()), formato);
+        });
+    }
+
+    /**
+     * Obtiene las fechas en que se publicaron varios números de Boletín de un año determinado.
+     *
+     * @param anno el año en formato YYYY.
+     * @param numeros_json los números de Boletín, como array JSON de enteros.
+     * @param peticion la petición, para elegir el formato según la cabecera Accept. Ver {@link FormatoRespuesta}.
+     * @return la información solicitada, con un error por cada número que no se publica en el año, o mensaje de
+     * error.
+     */
+    @POST
+    @Produces({MediaType.APPLICATION_JSON, FormatoRespuesta.TEXT_CSV, FormatoRespuesta.APPLICATION_CBOR})
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Path("/{anno}/numero")
+    public CompletionStage<Response> getFechas(@PathParam("anno") String anno, String numeros_json,
+                                               @Context Request peticion) {
+        log.info("Inicia petición POST para el año {}", anno);
+        log.debug("Contenido de la petición POST para el año {}:\n{}", anno, numeros_json);
+        if (esAnnoNoValido(anno)) {
+            log.warn("Finaliza petición POST con año no válido {}", anno);
+            return CompletableFuture.completedFuture(crearRespuestaAnnoNoValido());
+        }
+        int[] numeros;
+        try {
+            numeros = GSON.fromJson(numeros_json, int[].class);
+            if (numeros == null) {
+                throw new JsonSyntaxException("Contenido vacío");
+            }
+        } catch (JsonSyntaxException e) {
+            log.warn("Finaliza petición POST para el año {} con contenido no válido", anno);
+            return CompletableFuture.completedFuture(crearRespuestaNumeroNoValido());
+        }
+        FormatoRespuesta formato = FormatoRespuesta.elegir(peticion);
+        int numAnno = Integer.parseInt(anno);
+        return responder(cache.estaCargado(numAnno), () -> {
+            YearCalendar calendario;
+            try {
+                calendario = cache.getCalendario(numAnno);
+            } catch (Exception e) {
+                log.error("Finaliza petición POST para el año {} con error desconocido", anno, e);
+                return crearRespuestaErrorDesconocido();
+            }
+            List<Map<String, String>> data = new ArrayList<>(numeros.length);
+            for (int numero : numeros) {
+                String numero_str = Integer.toString(numero);
+                data.add(calendario.getFecha(numero)
+                        .map(f -> Map.of("numero_boletin", numero_str, "fecha", f.toString()))
+                        .orElseGet(() -> Map.of("numero_boletin", numero_str, "error", NUMERO_NO_PUBLICADO)));
+            }
+            log.info("Finaliza petición POST para el año {} para {} números con éxito", anno, numeros.length);
+            return crearRespuesta(Response.Status.OK, new FechasBoletinResponse(data), formato);
+        });
+    }
+
+    /**
+     * Comprueba si están en la caché los datos de los que depende el resultado de una fecha: los de su año y los del
+     * siguiente.
+     *
+     * @param fecha la fecha.
+     * @return true si están en la caché, false en caso contrario.
+     */
+    private boolean estaCargado(LocalDate fecha) {
+        return cache.estaCargado(fecha.getYear()) && cache.estaCargado(fecha.getYear() + 1);
+    }
+
+    /**
+     * Crea la respuesta de una petición en el acto si se puede calcular con los datos de la caché, o en el
+     * {@link EjecutorConsultas} si hay que consultar la BBDD.
+     *
+     * @param cargado si los datos que se necesitan están en la caché.
+     * @param consulta la creación de la respuesta.
+     * @return la respuesta.
+     */
+    private CompletionStage<Response> responder(boolean cargado, Supplier<Response> consulta) {
+        return cargado ? CompletableFuture.completedFuture(consulta.get()) : ejecutor.ejecutar(consulta);
+    }
+
+    /**
+     * Crea la respuesta de error cuando el número de Boletín indicado no es válido.
+     *
+     * @return la respuesta.
+     */
+    private static Response crearRespuestaNumeroNoValido() {
+        log.debug("Creando respuesta de error de número de Boletín no válido");
+        ErrorResponse response = new ErrorResponse("Número de Boletín con formato incorrecto. Debe ser un " +
+                "entero, o un array JSON de enteros en las peticiones en bloque. Ejemplo: [1, 301]");
+        return crearRespuestaJson(Response.Status.BAD_REQUEST, response);
     }
 }
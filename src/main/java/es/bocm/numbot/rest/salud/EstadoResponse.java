@@ -0,0 +1,24 @@
+package es.bocm.numbot.rest.salud;
+
+import es.bocm.numbot.rest.NumbotApiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * Respuesta exitosa para el recurso de salud.
+ */
+public record EstadoResponse(boolean exito, Map<String, String> data) implements NumbotApiResponse {
+    private static final Logger log = LoggerFactory.getLogger(EstadoResponse.class);
+
+    /**
+     * Crea una respuesta a partir del estado.
+     *
+     * @param estado el estado del servicio. Ver {@link SaludResource}.
+     */
+    public EstadoResponse(String estado) {
+        this(true, Map.of("estado", estado));
+        log.debug("Creado EstadoResponse con el estado {}", estado);
+    }
+}
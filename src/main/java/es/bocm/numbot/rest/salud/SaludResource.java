@@ -0,0 +1,61 @@
+package es.bocm.numbot.rest.salud;
+
+import es.bocm.numbot.arranque.Calentamiento;
+import es.bocm.numbot.rest.ErrorResponse;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static es.bocm.numbot.rest.RestUtils.crearRespuestaJson;
+
+/**
+ * <p>Recurso REST para comprobar si el servicio está preparado para recibir tráfico.<p>
+ *
+ * El servicio está preparado cuando ha terminado el calentamiento tras el despliegue ({@link Calentamiento}). Hasta
+ * entonces se responde 503, para que los balanceadores no le envíen peticiones.
+ *
+ * Ejemplo de consulta:
+ *
+ * <pre>
+ * GET: /salud/preparado
+ *
+ * HTTP/1.1 200 OK
+ * Content-Type: application/json
+ * {
+ *  "exito": true,
+ *  "data": {
+ *      "estado": "preparado"
+ *  }
+ * }
+ * </pre>
+ */
+@Path("/salud")
+public class SaludResource {
+    private static final Logger log = LoggerFactory.getLogger(SaludResource.class);
+
+    @Inject
+    Calentamiento calentamiento;
+
+    /**
+     * Comprueba si el servicio está preparado.
+     *
+     * @return estado preparado, o mensaje de error si aún no lo está.
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/preparado")
+    public Response getPreparado() {
+        if (!calentamiento.estaPreparado()) {
+            log.debug("Petición GET de preparación: calentamiento en curso");
+            ErrorResponse response = new ErrorResponse("Calentamiento del servicio en curso");
+            return crearRespuestaJson(Response.Status.SERVICE_UNAVAILABLE, response);
+        }
+        log.debug("Petición GET de preparación: preparado");
+        return crearRespuestaJson(Response.Status.OK, new EstadoResponse("preparado"));
+    }
+}
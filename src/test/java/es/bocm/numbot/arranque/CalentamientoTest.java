@@ -0,0 +1,55 @@
+package es.bocm.numbot.arranque;
+
+import es.bocm.numbot.cache.DatosAnnoCache;
+import es.bocm.numbot.entities.DatosAnno;
+import es.bocm.numbot.entities.DatosAnnoDao;
+import es.bocm.numbot.entities.NumeroBoletinDao;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CalentamientoTest {
+    @Mock
+    private DatosAnnoDao mockDatosDao;
+    @Mock
+    private NumeroBoletinDao mockNumerosDao;
+
+    @InjectMocks
+    private Calentamiento calentamiento;
+
+    @BeforeEach
+    void setUp() {
+        calentamiento.cache = new DatosAnnoCache(mockDatosDao);
+    }
+
+    @Test
+    void loadsAdjacentYearsAndBecomesReady() {
+        when(mockDatosDao.buscarPorAnno(anyInt()))
+                .thenAnswer(i -> new DatosAnno(i.getArgument(0), List.of(), List.of()));
+        assertFalse(calentamiento.estaPreparado());
+        calentamiento.calentar(2021);
+        assertTrue(calentamiento.estaPreparado());
+        for (int anno = 2020; anno <= 2022; anno++) {
+            verify(mockDatosDao).buscarPorAnno(anno);
+        }
+    }
+
+    @Test
+    void becomesReadyEvenIfWarmUpFails() {
+        when(mockDatosDao.buscarPorAnno(anyInt())).thenThrow(PersistenceException.class);
+        calentamiento.calentar(2021);
+        assertTrue(calentamiento.estaPreparado());
+    }
+}
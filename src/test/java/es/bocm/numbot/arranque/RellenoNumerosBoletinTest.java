@@ -0,0 +1,51 @@
+package es.bocm.numbot.arranque;
+
+import es.bocm.numbot.entities.FestivoDao;
+import es.bocm.numbot.entities.NumeroBoletinDao;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RellenoNumerosBoletinTest {
+    @Mock
+    private FestivoDao mockFestDao;
+    @Mock
+    private NumeroBoletinDao mockNumerosDao;
+
+    @InjectMocks
+    private RellenoNumerosBoletin relleno;
+
+    @Test
+    void recalculatesEveryYearWithFestivosFromJanuaryFirst() {
+        when(mockFestDao.buscarAnnosConFestivos()).thenReturn(List.of(2021, 2022));
+        relleno.rellenar();
+        verify(mockNumerosDao).recalcularDesde(LocalDate.of(2021, 1, 1));
+        verify(mockNumerosDao).recalcularDesde(LocalDate.of(2022, 1, 1));
+        verifyNoMoreInteractions(mockNumerosDao);
+    }
+
+    @Test
+    void continuesWithTheNextYearWhenOneFails() {
+        when(mockFestDao.buscarAnnosConFestivos()).thenReturn(List.of(2021, 2022));
+        doThrow(PersistenceException.class).when(mockNumerosDao).recalcularDesde(LocalDate.of(2021, 1, 1));
+        relleno.rellenar();
+        verify(mockNumerosDao).recalcularDesde(LocalDate.of(2022, 1, 1));
+    }
+
+    @Test
+    void doesNothingIfTheYearsCannotBeRead() {
+        when(mockFestDao.buscarAnnosConFestivos()).thenThrow(PersistenceException.class);
+        relleno.rellenar();
+        verify(mockNumerosDao, never()).recalcularDesde(any());
+    }
+}
@@ -0,0 +1,109 @@
+package es.bocm.numbot.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheAnualTest {
+    private final AtomicLong reloj = new AtomicLong();
+    private final AtomicInteger cargas = new AtomicInteger();
+
+    private String cargar(int anno) {
+        return anno + "-" + cargas.incrementAndGet();
+    }
+
+    @Test
+    void loadsEachYearOnlyOnce() {
+        CacheAnual<String> cache = new CacheAnual<>(10, Duration.ZERO, reloj::get);
+        assertEquals("2021-1", cache.obtener(2021, this::cargar));
+        assertEquals("2021-1", cache.obtener(2021, this::cargar));
+        assertEquals("2022-2", cache.obtener(2022, this::cargar));
+        assertEquals(2, cargas.get());
+    }
+
+    @Test
+    void reloadsInvalidatedYear() {
+        CacheAnual<String> cache = new CacheAnual<>(10, Duration.ZERO, reloj::get);
+        cache.obtener(2021, this::cargar);
+        cache.obtener(2022, this::cargar);
+        cache.invalidar(2021);
+        assertEquals("2021-3", cache.obtener(2021, this::cargar));
+        assertEquals("2022-2", cache.obtener(2022, this::cargar));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedYear() {
+        CacheAnual<String> cache = new CacheAnual<>(2, Duration.ZERO, reloj::get);
+        cache.obtener(2020, this::cargar);
+        cache.obtener(2021, this::cargar);
+        cache.obtener(2020, this::cargar);
+        cache.obtener(2022, this::cargar);
+        assertEquals(2, cache.tamanno());
+        assertEquals("2020-1", cache.obtener(2020, this::cargar));
+        assertEquals("2021-4", cache.obtener(2021, this::cargar));
+    }
+
+    @Test
+    void passesExpiredAndReloadedValuesToTheReloadCallback() {
+        CacheAnual<String> cache = new CacheAnual<>(10, Duration.ofMinutes(1), reloj::get);
+        StringBuilder recargas = new StringBuilder();
+        cache.obtener(2021, this::cargar, (anterior, nuevo) -> recargas.append(anterior).append('>').append(nuevo));
+        cache.invalidar(2021);
+        cache.obtener(2021, this::cargar, (anterior, nuevo) -> recargas.append(anterior).append('>').append(nuevo));
+        assertEquals("", recargas.toString());
+        reloj.addAndGet(Duration.ofMinutes(1).toNanos());
+        cache.obtener(2021, this::cargar, (anterior, nuevo) -> recargas.append(anterior).append('>').append(nuevo));
+        assertEquals("2021-2>2021-3", recargas.toString());
+    }
+
+    @Test
+    void reloadsExpiredYear() {
+        CacheAnual<String> cache = new CacheAnual<>(10, Duration.ofMinutes(1), reloj::get);
+        cache.obtener(2021, this::cargar);
+        reloj.addAndGet(Duration.ofSeconds(59).toNanos());
+        assertEquals("2021-1", cache.obtener(2021, this::cargar));
+        reloj.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals("2021-2", cache.obtener(2021, this::cargar));
+    }
+
+    @Test
+    void doesNotStoreLoadStartedBeforeInvalidation() {
+        CacheAnual<String> cache = new CacheAnual<>(10, Duration.ZERO, reloj::get);
+        assertEquals("2021-1", cache.obtener(2021, anno -> {
+            cache.invalidar(anno);
+            return cargar(anno);
+        }));
+        assertEquals(0, cache.tamanno());
+        assertEquals("2021-2", cache.obtener(2021, this::cargar));
+    }
+
+    @Test
+    void containsOnlyLoadedAndFreshYears() {
+        CacheAnual<String> cache = new CacheAnual<>(10, Duration.ofMinutes(1), reloj::get);
+        assertFalse(cache.contiene(2021));
+        cache.obtener(2021, this::cargar);
+        assertTrue(cache.contiene(2021));
+        reloj.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertFalse(cache.contiene(2021));
+        assertEquals(1, cargas.get());
+    }
+
+    @Test
+    void countsHitsMissesAndStoredLoads() {
+        CacheAnual<String> cache = new CacheAnual<>(10, Duration.ZERO, reloj::get);
+        cache.obtener(2021, this::cargar);
+        cache.obtener(2021, this::cargar);
+        cache.obtener(2021, this::cargar);
+        cache.obtener(2022, anno -> {
+            cache.invalidar(2021);
+            return cargar(anno);
+        });
+        assertEquals(new EstadisticasRegion(2, 2, 1, 0), cache.estadisticas());
+    }
+}
@@ -0,0 +1,167 @@
+package es.bocm.numbot.cache;
+
+import es.bocm.numbot.entities.*;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DatosAnnoCacheTest {
+    @Mock
+    private DatosAnnoDao mockDatosDao;
+
+    private DatosAnnoCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new DatosAnnoCache(mockDatosDao);
+    }
+
+    @Test
+    void readsEachYearFromTheDatabaseOnlyOnce() {
+        List<Festivo> fests = List.of(new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos"));
+        List<Extraordinario> exts = List.of(new Extraordinario(null, LocalDate.of(2021, 1, 6), 2));
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, fests, exts));
+        assertEquals(fests, cache.getFestivos(2021));
+        assertEquals(exts, cache.getExtraordinarios(2021));
+        assertTrue(cache.getCalendario(2021).tieneFestivos());
+        assertSame(cache.getCalendario(2021), cache.getCalendario(2021));
+        assertEquals(fests, cache.getFestivos(2021));
+        verify(mockDatosDao, times(1)).buscarPorAnno(2021);
+    }
+
+    @Test
+    void festivosModificationInvalidatesFestivosAndCalendar() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, List.of(), List.of()),
+                new DatosAnno(2021, List.of(new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos")), List.of()));
+        assertFalse(cache.getCalendario(2021).tieneFestivos());
+        cache.getExtraordinarios(2021);
+        cache.onDatosAnnoModificados(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.FESTIVOS));
+        assertTrue(cache.getCalendario(2021).tieneFestivos());
+        assertEquals(1, cache.getFestivos(2021).size());
+        verify(mockDatosDao, times(2)).buscarPorAnno(2021);
+    }
+
+    @Test
+    void extraordinariosModificationInvalidatesExtraordinariosAndCalendar() {
+        LocalDate fecha = LocalDate.of(2021, 3, 20);
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, List.of(), List.of()),
+                new DatosAnno(2021, List.of(), List.of(new Extraordinario(null, fecha, 3))));
+        assertEquals(1, cache.getCalendario(2021).getNumBotsPublicados(fecha));
+        cache.onDatosAnnoModificados(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.EXTRAORDINARIOS));
+        assertEquals(4, cache.getCalendario(2021).getNumBotsPublicados(fecha));
+        verify(mockDatosDao, times(2)).buscarPorAnno(2021);
+    }
+
+    @Test
+    void modificationOnlyInvalidatesItsYear() {
+        when(mockDatosDao.buscarPorAnno(anyInt())).thenAnswer(i -> datosVacios(i.getArgument(0)));
+        cache.getCalendario(2021);
+        cache.getCalendario(2022);
+        cache.onDatosAnnoModificados(new DatosAnnoModificados(2022, DatosAnnoModificados.Tipo.FESTIVOS));
+        cache.getCalendario(2021);
+        cache.getCalendario(2022);
+        verify(mockDatosDao, times(1)).buscarPorAnno(2021);
+        verify(mockDatosDao, times(2)).buscarPorAnno(2022);
+    }
+
+    @Test
+    void doesNotCacheFailedLoads() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenThrow(PersistenceException.class).thenReturn(datosVacios(2021));
+        assertThrows(PersistenceException.class, () -> cache.getFestivos(2021));
+        assertEquals(List.of(), cache.getFestivos(2021));
+    }
+
+    @Test
+    void serializesEachYearOnlyOnceUntilModified() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(datosVacios(2021));
+        AtomicInteger serializaciones = new AtomicInteger();
+        Function<List<Festivo>, byte[]> serializador = f -> new byte[]{(byte) serializaciones.incrementAndGet()};
+        byte[] json = cache.getFestivosSerializados(2021, serializador);
+        assertSame(json, cache.getFestivosSerializados(2021, serializador));
+        cache.onDatosAnnoModificados(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.EXTRAORDINARIOS));
+        assertSame(json, cache.getFestivosSerializados(2021, serializador));
+        cache.onDatosAnnoModificados(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.FESTIVOS));
+        assertEquals(2, cache.getFestivosSerializados(2021, serializador)[0]);
+        verify(mockDatosDao, times(2)).buscarPorAnno(2021);
+    }
+
+    @Test
+    void compressesEachYearOnlyOnceUntilModified() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(datosVacios(2021));
+        AtomicInteger compresiones = new AtomicInteger();
+        Function<List<Extraordinario>, byte[]> serializador = e -> new byte[]{1};
+        UnaryOperator<byte[]> compresor = b -> new byte[]{b[0], (byte) compresiones.incrementAndGet()};
+        byte[] gzip = cache.getExtraordinariosComprimidos(2021, serializador, compresor);
+        assertSame(gzip, cache.getExtraordinariosComprimidos(2021, serializador, compresor));
+        cache.onDatosAnnoModificados(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.FESTIVOS));
+        assertSame(gzip, cache.getExtraordinariosComprimidos(2021, serializador, compresor));
+        cache.onDatosAnnoModificados(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.EXTRAORDINARIOS));
+        assertArrayEquals(new byte[]{1, 2}, cache.getExtraordinariosComprimidos(2021, serializador, compresor));
+    }
+
+    @Test
+    void changesVersionWhenExpiredDataWasModifiedOutsideTheService() {
+        AtomicLong reloj = new AtomicLong();
+        cache = new DatosAnnoCache(mockDatosDao, 10, Duration.ofMinutes(60), reloj::get);
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(datosVacios(2021), datosVacios(2021),
+                new DatosAnno(2021, List.of(new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos")), List.of()));
+        assertFalse(cache.getCalendario(2021).tieneFestivos());
+        VersionAnno version = cache.getVersion(2021);
+
+        reloj.addAndGet(Duration.ofMinutes(60).toNanos());
+        cache.getDatos(2021);
+        assertEquals(version, cache.getVersion(2021));
+
+        reloj.addAndGet(Duration.ofMinutes(60).toNanos());
+        cache.getDatos(2021);
+        assertNotEquals(version, cache.getVersion(2021));
+        assertTrue(cache.getCalendario(2021).tieneFestivos());
+        verify(mockDatosDao, times(3)).buscarPorAnno(2021);
+    }
+
+    @Test
+    void derivesVersionFromStoredData() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(datosVacios(2021));
+        DatosAnnoCache otroNodo = new DatosAnnoCache(mockDatosDao, 10, Duration.ZERO, System::nanoTime);
+        assertEquals(cache.getVersion(2021).etiqueta(), otroNodo.getVersion(2021).etiqueta());
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(
+                new DatosAnno(2021, List.of(), List.of(new Extraordinario(null, LocalDate.of(2021, 3, 20), 3))));
+        VersionAnno version = cache.getVersion(2021);
+        cache.onDatosAnnoModificados(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.EXTRAORDINARIOS));
+        assertNotEquals(version.etiqueta(), cache.getVersion(2021).etiqueta());
+    }
+
+    @Test
+    void getVersionReadsExpiredDataAgain() {
+        AtomicLong reloj = new AtomicLong();
+        cache = new DatosAnnoCache(mockDatosDao, 10, Duration.ofMinutes(60), reloj::get);
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(datosVacios(2021),
+                new DatosAnno(2021, List.of(new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos")), List.of()));
+        VersionAnno version = cache.getVersion(2021);
+        assertEquals(version, cache.getVersion(2021));
+        verify(mockDatosDao, times(1)).buscarPorAnno(2021);
+
+        reloj.addAndGet(Duration.ofMinutes(60).toNanos());
+        assertNotEquals(version, cache.getVersion(2021));
+        verify(mockDatosDao, times(2)).buscarPorAnno(2021);
+    }
+
+    static DatosAnno datosVacios(int anno) {
+        return new DatosAnno(anno, List.of(), List.of());
+    }
+}
@@ -19,6 +19,9 @@ class CalcUtilsTest {
             "2022, 2022-04-17",
             "2023, 2023-04-09",
             "2050, 2050-04-10",
+            "0, 0000-04-09",
+            "9999, 9999-03-28",
+            "10000, +10000-04-16",
     })
     void getCorrectEasterSundayDate(int year, LocalDate expectedDate) {
         assertEquals(expectedDate, CalcUtils.getEasterSundayDate(year));
@@ -62,6 +65,37 @@ class CalcUtilsTest {
         assertEquals(expected, CalcUtils.numBotsEnFestivoSeguidos(date, nonWorkingDates));
     }
 
+    @ParameterizedTest
+    @CsvSource({
+            "0, 2",
+            "1, 1",
+            "3, 0",
+            "4, 2",
+            "8, -4",
+            "100, -1",
+    })
+    void numBotsEnFestivoSeguidosWithMasks(int epochDay, int expected) {
+        long[] laborables = {0b0001_0001_0001L};
+        long[] conBoletin = {0b1111_1011_1011L};
+        assertEquals(expected, CalcUtils.numBotsEnFestivoSeguidos(epochDay, 0, laborables, conBoletin));
+    }
+
+    @Test
+    void numBotsEnFestivoSeguidosWithMasksAcrossWords() {
+        long[] laborables = {0L, 1L << 3};
+        long[] conBoletin = {-1L, -1L};
+        assertEquals(64 + 3 - 61, CalcUtils.numBotsEnFestivoSeguidos(1060, 1000, laborables, conBoletin));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1583, 2020, 2021, 2024, 2100, 9999, 10000})
+    void esFechaSinBoletinMatchesFechasSinBoletin(int year) {
+        Set<LocalDate> fechas = CalcUtils.fechasSinBoletin(year);
+        for (LocalDate date = LocalDate.of(year, 1, 1); date.getYear() == year; date = date.plusDays(1)) {
+            assertEquals(fechas.contains(date), CalcUtils.esFechaSinBoletin(date), date.toString());
+        }
+    }
+
     @ParameterizedTest
     @CsvSource({
             "2021-04-04, false", // No bulletin on Sundays, but Sundays are taken care of separately
@@ -0,0 +1,83 @@
+package es.bocm.numbot.calculations;
+
+import es.bocm.numbot.entities.Festivo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiYearCalendarTest {
+    final static Map<Integer, List<Festivo>> festivos = Map.of(
+            2021, List.of(new Festivo(null, LocalDate.of(2021, 12, 31), "dummy desc")),
+            2022, List.of(new Festivo(null, LocalDate.of(2022, 1, 3), "dummy desc"),
+                    new Festivo(null, LocalDate.of(2022, 12, 30), "dummy desc")),
+            2023, List.of(new Festivo(null, LocalDate.of(2023, 1, 2), "dummy desc"),
+                    new Festivo(null, LocalDate.of(2023, 1, 3), "dummy desc"))
+    );
+
+    static YearCalendar load(int anno) {
+        return YearCalendar.of(anno, Collections.emptyList(), festivos.getOrDefault(anno, List.of()));
+    }
+
+    @Test
+    void matchesNumBotsEnFestivoSeguidosForEveryDayOfTheYear() {
+        int anno = 2021;
+        MultiYearCalendar calendar = new MultiYearCalendar(a -> YearCalendar.of(a, Collections.emptyList(),
+                CalcUtilsTest.nonWorkingDates));
+        for (LocalDate date = LocalDate.of(anno, 1, 1); date.getYear() == anno; date = date.plusDays(1)) {
+            assertEquals(CalcUtils.numBotsEnFestivoSeguidos(date, CalcUtilsTest.nonWorkingDates),
+                    calendar.numBotsEnFestivoSeguidos(date), date.toString());
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "2021-12-29, 0",
+            "2021-12-30, 2",
+            "2021-12-31, 1",
+            "2022-12-29, 4",
+            "2023-12-29, 1",
+    })
+    void numBotsEnFestivoSeguidosUsesNextYearFestivos(LocalDate date, int expected) {
+        MultiYearCalendar calendar = new MultiYearCalendar(MultiYearCalendarTest::load);
+        assertEquals(expected, calendar.numBotsEnFestivoSeguidos(date));
+    }
+
+    @Test
+    void loadsNextYearOnlyWhenNeededAndOnlyOnce() {
+        List<Integer> loaded = new ArrayList<>();
+        MultiYearCalendar calendar = new MultiYearCalendar(a -> {
+            loaded.add(a);
+            return load(a);
+        });
+        assertFalse(calendar.necesitaAnnoSiguiente(LocalDate.of(2021, 12, 29)));
+        calendar.numBotsEnFestivoSeguidos(LocalDate.of(2021, 12, 29));
+        assertEquals(List.of(2021), loaded);
+        assertTrue(calendar.necesitaAnnoSiguiente(LocalDate.of(2021, 12, 30)));
+        calendar.numBotsEnFestivoSeguidos(LocalDate.of(2021, 12, 30));
+        calendar.numBotsEnFestivoSeguidos(LocalDate.of(2021, 12, 31));
+        assertEquals(List.of(2021, 2022), loaded);
+    }
+
+    @Test
+    void getNumBotUsesTheCalendarOfTheYear() {
+        MultiYearCalendar calendar = new MultiYearCalendar(MultiYearCalendarTest::load);
+        assertEquals(310, calendar.getNumBot(LocalDate.of(2021, 12, 31)));
+        assertEquals(1, calendar.getNumBot(LocalDate.of(2022, 1, 3)));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "2021-03-03, 2021-03-02",
+            "2021-03-08, 2021-03-05",
+            "2022-01-04, 2021-12-30",
+    })
+    void findsLastWorkingDayBefore(LocalDate date, LocalDate expected) {
+        MultiYearCalendar calendar = new MultiYearCalendar(MultiYearCalendarTest::load);
+        assertEquals(expected, calendar.ultimoDiaLaborableAntesDe(date));
+    }
+}
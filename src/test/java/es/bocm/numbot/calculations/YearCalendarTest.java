@@ -0,0 +1,146 @@
+package es.bocm.numbot.calculations;
+
+import es.bocm.numbot.entities.Extraordinario;
+import es.bocm.numbot.entities.ExtraordinarioDia;
+import es.bocm.numbot.entities.Festivo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class YearCalendarTest {
+    static List<Extraordinario> extsForYear(int anno) {
+        return List.of(
+                new Extraordinario(null, LocalDate.of(anno, 1, 1), 1),  // Day without bulletin
+                new Extraordinario(null, LocalDate.of(anno, 1, 6), 2),
+                new Extraordinario(null, LocalDate.of(anno, 3, 21), 1),
+                new Extraordinario(null, CalcUtils.getEasterSundayDate(anno), 1),  // Sunday
+                new Extraordinario(null, CalcUtils.getEasterSundayDate(anno).minusDays(2), 1),  // Good Friday
+                new Extraordinario(null, LocalDate.of(anno, 12, 31), 3)
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "2021-01-07, 5",
+            "2021-12-16, 298",
+            "2021-01-01, 1",
+            "2023-01-01, 0",
+            "2023-01-02, 1"
+    })
+    void getCorrectNumBotNoExts(LocalDate date, int expected) {
+        assertEquals(expected, YearCalendar.of(date.getYear(), Collections.emptyList(),
+                Collections.emptyList()).getNumBot(date));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2020, 2021, 2022, 2023, 2027, 2028})
+    void matchesCalcularNumBotForEveryDayOfTheYear(int anno) {
+        List<Extraordinario> exts = extsForYear(anno);
+        YearCalendar calendar = YearCalendar.of(anno, exts, Collections.emptyList());
+        for (LocalDate date = LocalDate.of(anno, 1, 1); date.getYear() == anno; date = date.plusDays(1)) {
+            assertEquals(CalcularNumBot.getNumBot(date, exts), calendar.getNumBot(date), date.toString());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2020, 2021, 2022})
+    void ofNumerosMatchesOfForEveryDayOfTheYear(int anno) {
+        List<Extraordinario> exts = extsForYear(anno);
+        List<ExtraordinarioDia> numeros = exts.stream()
+                .map(ext -> new ExtraordinarioDia(ext.getFecha(), ext.getNumero())).toList();
+        YearCalendar calendar = YearCalendar.of(anno, exts, Collections.emptyList());
+        YearCalendar calendarNumeros = YearCalendar.ofNumeros(anno, numeros, Collections.emptyList());
+        for (LocalDate date = LocalDate.of(anno, 1, 1); date.getYear() == anno; date = date.plusDays(1)) {
+            assertEquals(calendar.getNumBot(date), calendarNumeros.getNumBot(date), date.toString());
+        }
+    }
+
+    @Test
+    void ofNumerosIgnoresExtraordinariosOfOtherYears() {
+        List<ExtraordinarioDia> numeros = List.of(new ExtraordinarioDia(LocalDate.of(2020, 12, 31), 2),
+                new ExtraordinarioDia(LocalDate.of(2022, 1, 1), 2));
+        YearCalendar calendar = YearCalendar.ofNumeros(2021, numeros, Collections.emptyList());
+        assertEquals(310, calendar.getNumBot(LocalDate.of(2021, 12, 31)));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, 2021-01-02",
+            "5, 2021-01-07",
+            "298, 2021-12-16",
+            "310, 2021-12-31",
+    })
+    void getCorrectFechaNoExts(int numBot, LocalDate expected) {
+        YearCalendar calendar = YearCalendar.of(2021, Collections.emptyList(), Collections.emptyList());
+        assertEquals(Optional.of(expected), calendar.getFecha(numBot));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0, 311})
+    void getFechaOfNumBotNotPublishedIsEmpty(int numBot) {
+        YearCalendar calendar = YearCalendar.of(2021, Collections.emptyList(), Collections.emptyList());
+        assertEquals(Optional.empty(), calendar.getFecha(numBot));
+    }
+
+    @Test
+    void getFechaReturnsTheSameDateForEveryExtraordinario() {
+        List<Extraordinario> exts = List.of(new Extraordinario(null, LocalDate.of(2021, 1, 6), 2));
+        YearCalendar calendar = YearCalendar.of(2021, exts, Collections.emptyList());
+        assertEquals(Optional.of(LocalDate.of(2021, 1, 5)), calendar.getFecha(3));
+        assertEquals(Optional.of(LocalDate.of(2021, 1, 6)), calendar.getFecha(4));
+        assertEquals(Optional.of(LocalDate.of(2021, 1, 6)), calendar.getFecha(5));
+        assertEquals(Optional.of(LocalDate.of(2021, 1, 6)), calendar.getFecha(6));
+        assertEquals(Optional.of(LocalDate.of(2021, 1, 7)), calendar.getFecha(7));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2021, 2022, 2023})
+    void getFechaIsTheInverseOfGetNumBotOnPublicationDays(int anno) {
+        List<Extraordinario> exts = extsForYear(anno);
+        YearCalendar calendar = YearCalendar.of(anno, exts, Collections.emptyList());
+        for (LocalDate date = LocalDate.of(anno, 1, 1); date.getYear() == anno; date = date.plusDays(1)) {
+            if (date.getDayOfWeek() != DayOfWeek.SUNDAY && !CalcUtils.esFechaSinBoletin(date)) {
+                assertEquals(Optional.of(date), calendar.getFecha(calendar.getNumBot(date)), date.toString());
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "2020-12-30, false",
+            "2021-12-31, true",
+    })
+    void tieneFestivosOnlyCountsFestivosOfTheYear(LocalDate festivo, boolean expected) {
+        List<Festivo> festivos = List.of(new Festivo(null, festivo, "dummy desc"));
+        assertEquals(expected, YearCalendar.of(2021, Collections.emptyList(), festivos).tieneFestivos());
+    }
+
+    @Test
+    void rejectsDatesFromOtherYears() {
+        YearCalendar calendar = YearCalendar.of(2021, extsForYear(2021), Collections.emptyList());
+        assertThrows(IllegalArgumentException.class, () -> calendar.getNumBot(LocalDate.of(2022, 1, 3)));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "2021-03-02, true",
+            "2021-03-06, false",  // Saturday
+            "2021-03-07, false",  // Sunday
+            "2021-04-02, false",  // Good Friday
+            "2021-12-31, false",  // Festivo
+    })
+    void esLaborableOnlyForWeekdaysWithBulletinThatAreNotFestivos(LocalDate date, boolean expected) {
+        List<Festivo> festivos = List.of(new Festivo(null, LocalDate.of(2021, 12, 31), "dummy desc"));
+        assertEquals(expected, YearCalendar.of(2021, Collections.emptyList(), festivos).esLaborable(date));
+    }
+}
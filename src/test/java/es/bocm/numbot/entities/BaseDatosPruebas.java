@@ -0,0 +1,103 @@
+package es.bocm.numbot.entities;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+
+import java.lang.reflect.Field;
+
+/**
+ * BBDD HSQLDB en memoria para las pruebas de los DAO, con todas las entidades y las propiedades de Hibernate de
+ * persistence.xml que afectan a las escrituras. Las tablas se crean al abrirla y se borran al cerrarla.
+ */
+final class BaseDatosPruebas implements AutoCloseable {
+    private final SessionFactory sessionFactory;
+    private final EntityManager em;
+
+    /**
+     * Abre una BBDD vacía.
+     *
+     * @param nombre nombre de la BBDD en memoria. Cada clase de pruebas usa el suyo.
+     */
+    BaseDatosPruebas(String nombre) {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(Festivo.class)
+                .addAnnotatedClass(Extraordinario.class)
+                .addAnnotatedClass(NumeroBoletin.class)
+                .setProperty("hibernate.connection.url", url(nombre))
+                .setProperty("hibernate.connection.username", "SA")
+                .setProperty("hibernate.dialect", "org.hibernate.dialect.HSQLDialect")
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                .setProperty("hibernate.jdbc.batch_size", "50")
+                .setProperty("hibernate.id.optimizer.pooled.preferred", "pooled-lo")
+                .buildSessionFactory();
+        em = sessionFactory.createEntityManager();
+    }
+
+    /**
+     * Obtiene la URL JDBC de una BBDD en memoria, para acceder a ella sin Hibernate.
+     *
+     * @param nombre nombre de la BBDD.
+     * @return la URL.
+     */
+    static String url(String nombre) {
+        return "jdbc:hsqldb:mem:" + nombre;
+    }
+
+    /**
+     * Obtiene el EntityManager compartido por las pruebas.
+     *
+     * @return el EntityManager.
+     */
+    EntityManager em() {
+        return em;
+    }
+
+    /**
+     * Crea un EntityManager nuevo, que debe cerrar quien lo usa.
+     *
+     * @return el EntityManager.
+     */
+    EntityManager crearEntityManager() {
+        return sessionFactory.createEntityManager();
+    }
+
+    /**
+     * Ejecuta una acción en una transacción del EntityManager compartido y después lo vacía, para que las siguientes
+     * lecturas vayan a la BBDD.
+     *
+     * @param accion la acción.
+     */
+    void enTransaccion(Runnable accion) {
+        em.getTransaction().begin();
+        accion.run();
+        em.getTransaction().commit();
+        em.clear();
+    }
+
+    /**
+     * Asigna un campo privado de un DAO, como haría el contenedor al inyectarlo.
+     *
+     * @param dao el DAO.
+     * @param campo el nombre del campo.
+     * @param valor el valor.
+     * @param <T> el tipo del DAO.
+     * @return el mismo DAO.
+     */
+    static <T> T inyectar(T dao, String campo, Object valor) {
+        try {
+            Field field = dao.getClass().getDeclaredField(campo);
+            field.setAccessible(true);
+            field.set(dao, valor);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No se puede asignar el campo " + campo, e);
+        }
+        return dao;
+    }
+
+    @Override
+    public void close() {
+        em.close();
+        sessionFactory.close();
+    }
+}
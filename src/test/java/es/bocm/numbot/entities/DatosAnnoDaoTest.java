@@ -0,0 +1,66 @@
+package es.bocm.numbot.entities;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class DatosAnnoDaoTest {
+    private BaseDatosPruebas bd;
+    private EntityManager em;
+    private DatosAnnoDao datosDao;
+
+    @BeforeEach
+    void setUp() {
+        bd = new BaseDatosPruebas("datosAnnoDaoTest");
+        em = bd.em();
+        datosDao = BaseDatosPruebas.inyectar(new DatosAnnoDao(), "em", em);
+
+        bd.enTransaccion(() -> {
+            em.persist(new Festivo(null, LocalDate.of(2020, 12, 31), "dummy desc"));
+            em.persist(new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos"));
+            em.persist(new Festivo(null, LocalDate.of(2021, 12, 31), "dummy desc"));
+            em.persist(new Extraordinario(null, LocalDate.of(2021, 3, 20), 2));
+            em.persist(new Extraordinario(null, LocalDate.of(2022, 1, 1), 1));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        bd.close();
+    }
+
+    @Test
+    void buscarPorAnnoReadsOnlyTheDataOfTheYear() {
+        DatosAnno datos = datosDao.buscarPorAnno(2021);
+        assertEquals(2021, datos.anno());
+        assertEquals(List.of(LocalDate.of(2021, 1, 6), LocalDate.of(2021, 12, 31)),
+                datos.festivos().stream().map(Festivo::getFecha).sorted().toList());
+        assertEquals(List.of(Map.of("fecha", "03-20", "numero", "2")),
+                datos.extraordinarios().stream().map(Extraordinario::toMap).toList());
+    }
+
+    @Test
+    void buscarPorAnnoReturnsStoredRowsThatNoLongerPassValidation() {
+        // Un domingo: el constructor de Festivo ya no lo admite.
+        bd.enTransaccion(() -> em.createNativeQuery("insert into festivos (id, fecha, descripcion) " +
+                "values (1000, date '2021-01-10', 'Festivo antiguo')").executeUpdate());
+        DatosAnno datos = datosDao.buscarPorAnno(2021);
+        assertEquals(List.of(LocalDate.of(2021, 1, 6), LocalDate.of(2021, 1, 10), LocalDate.of(2021, 12, 31)),
+                datos.festivos().stream().map(Festivo::getFecha).sorted().toList());
+    }
+
+    @Test
+    void buscarPorAnnoReturnsObjectsNotManagedByHibernate() {
+        DatosAnno datos = datosDao.buscarPorAnno(2021);
+        datos.festivos().forEach(f -> assertFalse(em.contains(f)));
+        datos.extraordinarios().forEach(e -> assertFalse(em.contains(e)));
+    }
+}
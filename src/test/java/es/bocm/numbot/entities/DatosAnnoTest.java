@@ -0,0 +1,66 @@
+package es.bocm.numbot.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatosAnnoTest {
+    @Test
+    void isNotAffectedByChangesToTheOriginalLists() {
+        List<Festivo> fests = new ArrayList<>(List.of(new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos")));
+        List<Extraordinario> exts = new ArrayList<>();
+        DatosAnno datos = new DatosAnno(2021, fests, exts);
+        fests.clear();
+        exts.add(new Extraordinario(null, LocalDate.of(2021, 1, 6), 2));
+        assertEquals(1, datos.festivos().size());
+        assertEquals(0, datos.extraordinarios().size());
+    }
+
+    @Test
+    void cannotBeModified() {
+        DatosAnno datos = new DatosAnno(2021, List.of(), List.of());
+        assertThrows(UnsupportedOperationException.class,
+                () -> datos.festivos().add(new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos")));
+    }
+
+    @Test
+    void comparesContentIgnoringOrderAndIds() {
+        Festivo reyes = new Festivo(1L, LocalDate.of(2021, 1, 6), "Reyes Magos");
+        Festivo comunidad = new Festivo(2L, LocalDate.of(2021, 5, 3), "Fiesta de la Comunidad");
+        Extraordinario ext = new Extraordinario(3L, LocalDate.of(2021, 1, 6), 2);
+        DatosAnno datos = new DatosAnno(2021, List.of(reyes, comunidad), List.of(ext));
+        assertTrue(datos.mismoContenido(new DatosAnno(2021, List.of(
+                new Festivo(null, LocalDate.of(2021, 5, 3), "Fiesta de la Comunidad"),
+                new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos")),
+                List.of(new Extraordinario(null, LocalDate.of(2021, 1, 6), 2)))));
+        assertFalse(datos.mismoContenido(new DatosAnno(2021, List.of(reyes,
+                new Festivo(null, LocalDate.of(2021, 5, 3), "Fiesta de la Comunidad (cambiado)")), List.of(ext))));
+        assertFalse(datos.mismoContenido(new DatosAnno(2021, List.of(reyes, comunidad),
+                List.of(new Extraordinario(null, LocalDate.of(2021, 1, 6), 3)))));
+        assertFalse(datos.mismoContenido(new DatosAnno(2021, List.of(reyes), List.of(ext))));
+        assertFalse(datos.mismoContenido(new DatosAnno(2022, List.of(reyes, comunidad), List.of(ext))));
+    }
+
+    @Test
+    void fingerprintDependsOnlyOnContent() {
+        Festivo reyes = new Festivo(1L, LocalDate.of(2021, 1, 6), "Reyes Magos");
+        Festivo comunidad = new Festivo(2L, LocalDate.of(2021, 5, 3), "Fiesta de la Comunidad");
+        Extraordinario ext = new Extraordinario(3L, LocalDate.of(2021, 1, 6), 2);
+        String huella = new DatosAnno(2021, List.of(reyes, comunidad), List.of(ext)).huella();
+        assertEquals(huella, new DatosAnno(2021, List.of(
+                new Festivo(null, LocalDate.of(2021, 5, 3), "Fiesta de la Comunidad"),
+                new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos")),
+                List.of(new Extraordinario(null, LocalDate.of(2021, 1, 6), 2))).huella());
+        assertNotEquals(huella, new DatosAnno(2021, List.of(reyes, comunidad),
+                List.of(new Extraordinario(null, LocalDate.of(2021, 1, 6), 3))).huella());
+        assertNotEquals(huella, new DatosAnno(2021, List.of(reyes), List.of(ext)).huella());
+    }
+}
@@ -0,0 +1,114 @@
+package es.bocm.numbot.entities;
+
+import jakarta.enterprise.event.Event;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import es.bocm.numbot.calculations.CalcularNumBot;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ExtraordinarioDaoTest {
+    private BaseDatosPruebas bd;
+    private EntityManager em;
+    private Event<DatosAnnoModificados> mockEventos;
+    private ExtraordinarioDao extDao;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        bd = new BaseDatosPruebas("extraordinarioDaoTest");
+        em = bd.em();
+        mockEventos = mock(Event.class);
+        extDao = BaseDatosPruebas.inyectar(new ExtraordinarioDao(), "em", em);
+        BaseDatosPruebas.inyectar(extDao, "eventos", mockEventos);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bd.close();
+    }
+
+    private List<Map<String, String>> crearOActualizarAnno(int anno, List<Extraordinario> extraordinarios) {
+        em.getTransaction().begin();
+        List<Extraordinario> resultado = extDao.crearOActualizarAnno(anno, extraordinarios);
+        em.getTransaction().commit();
+        em.clear();
+        return resultado.stream().map(Extraordinario::toMap).sorted(Comparator.comparing(m -> m.get("fecha")))
+                .toList();
+    }
+
+    @Test
+    void crearOActualizarAnnoInsertsAndUpdatesAndReturnsTheWholeYear() {
+        crearOActualizarAnno(2021, List.of(new Extraordinario(null, LocalDate.of(2021, 1, 6), 2),
+                new Extraordinario(null, LocalDate.of(2021, 3, 20), 1)));
+        verify(mockEventos).fire(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.EXTRAORDINARIOS,
+                LocalDate.of(2021, 1, 6)));
+
+        List<Map<String, String>> resultado = crearOActualizarAnno(2021, List.of(
+                new Extraordinario(null, LocalDate.of(2021, 1, 6), 2),
+                new Extraordinario(null, LocalDate.of(2021, 3, 20), 3),
+                new Extraordinario(null, LocalDate.of(2021, 5, 15), 1)));
+
+        assertEquals(List.of(Map.of("fecha", "01-06", "numero", "2"), Map.of("fecha", "03-20", "numero", "3"),
+                Map.of("fecha", "05-15", "numero", "1")), resultado);
+        verify(mockEventos).fire(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.EXTRAORDINARIOS,
+                LocalDate.of(2021, 3, 20)));
+    }
+
+    @Test
+    void crearOActualizarAnnoWithoutChangesDoesNotNotify() {
+        List<Extraordinario> exts = List.of(new Extraordinario(null, LocalDate.of(2021, 1, 6), 2));
+        crearOActualizarAnno(2021, exts);
+        clearInvocations(mockEventos);
+        assertEquals(List.of(Map.of("fecha", "01-06", "numero", "2")), crearOActualizarAnno(2021, exts));
+        verifyNoInteractions(mockEventos);
+    }
+
+    @Test
+    void crearOActualizarAnnoRejectsExtraordinariosOfOtherYears() {
+        List<Extraordinario> exts = List.of(new Extraordinario(null, LocalDate.of(2022, 1, 6), 2));
+        assertThrows(IllegalArgumentException.class, () -> extDao.crearOActualizarAnno(2021, exts));
+    }
+
+    private List<Extraordinario> crearVariosAnnos() {
+        List<Extraordinario> exts = List.of(new Extraordinario(null, LocalDate.of(2020, 12, 31), 4),
+                new Extraordinario(null, LocalDate.of(2021, 1, 1), 1),
+                new Extraordinario(null, LocalDate.of(2021, 1, 6), 2),
+                new Extraordinario(null, LocalDate.of(2021, 12, 31), 3),
+                new Extraordinario(null, LocalDate.of(2022, 1, 1), 5));
+        crearOActualizarAnno(2020, exts.subList(0, 1));
+        crearOActualizarAnno(2021, exts.subList(1, 4));
+        crearOActualizarAnno(2022, exts.subList(4, 5));
+        return exts;
+    }
+
+    @Test
+    void buscarNumerosPorAnnoOnlyReturnsTheYear() {
+        crearVariosAnnos();
+        List<ExtraordinarioDia> numeros = extDao.buscarNumerosPorAnno(2021).stream()
+                .sorted(Comparator.comparingInt(ExtraordinarioDia::epochDay)).toList();
+        assertEquals(List.of(new ExtraordinarioDia(LocalDate.of(2021, 1, 1), 1),
+                new ExtraordinarioDia(LocalDate.of(2021, 1, 6), 2),
+                new ExtraordinarioDia(LocalDate.of(2021, 12, 31), 3)), numeros);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2021-01-01", "2021-01-05", "2021-01-06", "2021-06-15", "2021-12-31", "2023-03-01"})
+    void sumarNumerosHastaMatchesCalcularNumBot(LocalDate fecha) {
+        List<Extraordinario> exts = crearVariosAnnos().stream()
+                .filter(ext -> ext.getFecha().getYear() == fecha.getYear()).toList();
+        int suma = extDao.sumarNumerosHasta(fecha);
+        assertEquals(CalcularNumBot.getNumBot(fecha, exts), CalcularNumBot.getNumBot(fecha, suma));
+    }
+}
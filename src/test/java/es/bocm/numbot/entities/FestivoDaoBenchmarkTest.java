@@ -0,0 +1,123 @@
+package es.bocm.numbot.entities;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FestivoDaoBenchmarkTest {
+    static final String BD = "festivosBenchmark";
+    static final int ANNO_CONSULTADO = 2021;
+    static final int FESTIVOS_POR_ANNO = 12;
+    static final int CONSULTAS_POR_MEDIDA = 200;
+    static final int MEDIDAS = 7;
+
+    static BaseDatosPruebas bd;
+    static Connection conexion;
+    static long siguienteId = 1;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        bd = new BaseDatosPruebas(BD);
+        conexion = DriverManager.getConnection(BaseDatosPruebas.url(BD), "SA", "");
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        bd.close();
+        conexion.createStatement().execute("SHUTDOWN");
+        conexion.close();
+    }
+
+    static void cargarFestivos(int desde, int hasta) throws SQLException {
+        try (PreparedStatement insert =
+                     conexion.prepareStatement("insert into festivos (id, fecha, descripcion) values (?, ?, ?)")) {
+            for (int anno = desde; anno <= hasta; anno++) {
+                for (int mes = 1; mes <= FESTIVOS_POR_ANNO; mes++) {
+                    insert.setLong(1, siguienteId++);
+                    insert.setDate(2, Date.valueOf(LocalDate.of(anno, mes, 10)));
+                    insert.setString(3, "dummy desc");
+                    insert.addBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Mediana, en nanosegundos, del tiempo de {@link #CONSULTAS_POR_MEDIDA} búsquedas por año.
+     */
+    static long medirBusquedaPorAnno() {
+        long[] medidas = new long[MEDIDAS];
+        for (int i = 0; i < MEDIDAS; i++) {
+            EntityManager em = bd.crearEntityManager();
+            try {
+                FestivoDao dao = BaseDatosPruebas.inyectar(new FestivoDao(), "em", em);
+                long inicio = System.nanoTime();
+                for (int j = 0; j < CONSULTAS_POR_MEDIDA; j++) {
+                    assertEquals(FESTIVOS_POR_ANNO, dao.buscarFestivosPorAnno(ANNO_CONSULTADO).size());
+                    em.clear();
+                }
+                medidas[i] = System.nanoTime() - inicio;
+            } finally {
+                em.close();
+            }
+        }
+        Arrays.sort(medidas);
+        return medidas[MEDIDAS / 2];
+    }
+
+    /**
+     * Depende de tiempos reales, así que solo se ejecuta a petición: mvn test -Dnumbot.benchmarks=true. La comprobación
+     * del índice, que no depende de la carga de la máquina, se ejecuta siempre.
+     */
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "numbot.benchmarks", matches = "true")
+    void busquedaPorAnnoCostsTheSameWithCenturiesOfData() throws Exception {
+        cargarFestivos(2016, 2025);
+        medirBusquedaPorAnno();  // Warm up
+        long conPocosAnnos = medirBusquedaPorAnno();
+
+        cargarFestivos(1400, 2015);
+        cargarFestivos(2026, 2100);
+        medirBusquedaPorAnno();  // Warm up
+        long conSiglos = medirBusquedaPorAnno();
+
+        // Recorrer toda la tabla sería unas setenta veces más lento; el margen absorbe el ruido de la medida.
+        assertTrue(conSiglos < conPocosAnnos * 5,
+                "10 años: " + conPocosAnnos / 1000 + " µs, 700 años: " + conSiglos / 1000 + " µs");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"festivos", "extraordinarios"})
+    void busquedaPorAnnoUsesTheFechaIndex(String tabla) throws SQLException {
+        try (Statement stmt = conexion.createStatement();
+             ResultSet plan = stmt.executeQuery("explain plan for select * from " + tabla
+                     + " where fecha >= date '2021-01-01' and fecha < date '2022-01-01'")) {
+            StringBuilder texto = new StringBuilder();
+            while (plan.next()) {
+                texto.append(plan.getString(1)).append('\n');
+            }
+            assertTrue(texto.toString().toUpperCase().contains("IDX_" + tabla.toUpperCase() + "_FECHA"),
+                    texto.toString());
+        }
+    }
+}
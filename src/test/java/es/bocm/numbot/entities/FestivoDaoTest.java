@@ -0,0 +1,137 @@
+package es.bocm.numbot.entities;
+
+import jakarta.enterprise.event.Event;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FestivoDaoTest {
+    private BaseDatosPruebas bd;
+    private EntityManager em;
+    private Event<DatosAnnoModificados> mockEventos;
+    private FestivoDao festDao;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        bd = new BaseDatosPruebas("festivoDaoTest");
+        em = bd.em();
+        mockEventos = mock(Event.class);
+        festDao = BaseDatosPruebas.inyectar(new FestivoDao(), "em", em);
+        BaseDatosPruebas.inyectar(festDao, "eventos", mockEventos);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bd.close();
+    }
+
+    private void reemplazar(int anno, List<Festivo> festivos) {
+        bd.enTransaccion(() -> festDao.reemplazarFestivos(anno, festivos));
+    }
+
+    @Test
+    void reemplazarFestivosOnlyReplacesTheFestivosOfTheYear() {
+        reemplazar(2021, List.of(new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos"),
+                new Festivo(null, LocalDate.of(2021, 12, 31), "dummy desc")));
+        reemplazar(2022, List.of(new Festivo(null, LocalDate.of(2022, 1, 6), "Reyes Magos")));
+        reemplazar(2021, List.of(new Festivo(null, LocalDate.of(2021, 12, 6), "Constitución")));
+
+        assertEquals(List.of(LocalDate.of(2021, 12, 6)),
+                festDao.buscarFestivosPorAnno(2021).stream().map(Festivo::getFecha).toList());
+        assertEquals(List.of(LocalDate.of(2022, 1, 6)),
+                festDao.buscarFestivosPorAnno(2022).stream().map(Festivo::getFecha).toList());
+        verify(mockEventos).fire(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.FESTIVOS));
+        verify(mockEventos).fire(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.FESTIVOS,
+                LocalDate.of(2021, 1, 6)));
+        verify(mockEventos).fire(new DatosAnnoModificados(2022, DatosAnnoModificados.Tipo.FESTIVOS));
+    }
+
+    @Test
+    void reemplazarFestivosOfAYearWithoutFestivosModifiesTheWholeYear() {
+        reemplazar(2021, List.of(new Festivo(null, LocalDate.of(2021, 3, 19), "San José")));
+        verify(mockEventos).fire(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.FESTIVOS,
+                LocalDate.of(2021, 1, 1)));
+    }
+
+    @Test
+    void reemplazarFestivosWithNoFestivosModifiesTheWholeYear() {
+        reemplazar(2021, List.of(new Festivo(null, LocalDate.of(2021, 3, 19), "San José")));
+        clearInvocations(mockEventos);
+        reemplazar(2021, List.of());
+        assertEquals(List.of(), festDao.buscarFestivosPorAnno(2021));
+        verify(mockEventos).fire(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.FESTIVOS,
+                LocalDate.of(2021, 1, 1)));
+    }
+
+    @Test
+    void reemplazarFestivosOnlyWritesTheChanges() {
+        reemplazar(2021, List.of(new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos"),
+                new Festivo(null, LocalDate.of(2021, 3, 19), "San José"),
+                new Festivo(null, LocalDate.of(2021, 12, 31), "dummy desc")));
+        Number idReyes = (Number) em.createNativeQuery("select id from festivos where fecha = '2021-01-06'")
+                .getSingleResult();
+
+        em.getTransaction().begin();
+        assertTrue(festDao.reemplazarFestivos(2021, List.of(
+                new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos"),
+                new Festivo(null, LocalDate.of(2021, 3, 19), "San José obrero"),
+                new Festivo(null, LocalDate.of(2021, 12, 6), "Constitución"))));
+        em.getTransaction().commit();
+        em.clear();
+
+        assertEquals(List.of(Map.of("fecha", "01-06", "descripcion", "Reyes Magos"),
+                        Map.of("fecha", "03-19", "descripcion", "San José obrero"),
+                        Map.of("fecha", "12-06", "descripcion", "Constitución")),
+                festDao.buscarFestivosPorAnno(2021).stream().map(Festivo::toMap)
+                        .sorted(Comparator.comparing(m -> m.get("fecha"))).toList());
+        assertEquals(idReyes, em.createNativeQuery("select id from festivos where fecha = '2021-01-06'")
+                .getSingleResult());
+        verify(mockEventos).fire(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.FESTIVOS,
+                LocalDate.of(2021, 3, 19)));
+    }
+
+    @Test
+    void reemplazarFestivosWithTheSameFestivosIsANoOp() {
+        reemplazar(2021, List.of(new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos")));
+        clearInvocations(mockEventos);
+
+        em.getTransaction().begin();
+        assertFalse(festDao.reemplazarFestivos(2021,
+                List.of(new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos"))));
+        em.getTransaction().commit();
+
+        verifyNoInteractions(mockEventos);
+    }
+
+    @Test
+    void buscarAnnosConFestivosReturnsEachYearOnceInOrder() {
+        reemplazar(2022, List.of(new Festivo(null, LocalDate.of(2022, 1, 6), "Reyes Magos")));
+        reemplazar(2020, List.of(new Festivo(null, LocalDate.of(2020, 1, 6), "Reyes Magos"),
+                new Festivo(null, LocalDate.of(2020, 12, 8), "Inmaculada")));
+        assertEquals(List.of(2020, 2022), festDao.buscarAnnosConFestivos());
+    }
+
+    @Test
+    void alinearSecuenciaIdSkipsExistingIds() {
+        em.getTransaction().begin();
+        em.createNativeQuery("insert into festivos (id, fecha, descripcion) values (120, '2020-01-06', 'Reyes')")
+                .executeUpdate();
+        festDao.alinearSecuenciaId();
+        em.getTransaction().commit();
+
+        reemplazar(2021, List.of(new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos")));
+        Number id = (Number) em.createNativeQuery("select id from festivos where fecha = '2021-01-06'")
+                .getSingleResult();
+        assertTrue(id.longValue() > 120);
+    }
+}
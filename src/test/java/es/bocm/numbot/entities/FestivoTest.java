@@ -11,7 +11,9 @@ import java.util.Map;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FestivoTest {
     static Stream<LocalDate> invalidDatesProvider() {
@@ -43,4 +45,12 @@ class FestivoTest {
         Festivo fest = new Festivo(null, LocalDate.of(2021, 1, 12), "desc1");
         assertEquals(ref_map, fest.toMap());
     }
+
+    @Test
+    void actualizarCopiesDescriptionOnlyWhenItChanges() {
+        Festivo fest = new Festivo(null, LocalDate.of(2021, 1, 12), "desc1");
+        assertFalse(fest.actualizar(new Festivo(null, LocalDate.of(2021, 1, 12), "desc1")));
+        assertTrue(fest.actualizar(new Festivo(null, LocalDate.of(2021, 1, 12), "desc2")));
+        assertEquals("desc2", fest.toMap().get("descripcion"));
+    }
 }
@@ -0,0 +1,134 @@
+package es.bocm.numbot.entities;
+
+import es.bocm.numbot.calculations.MultiYearCalendar;
+import es.bocm.numbot.calculations.YearCalendar;
+import jakarta.enterprise.event.Event;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class NumeroBoletinDaoTest {
+    static final List<Extraordinario> exts = List.of(
+            new Extraordinario(null, LocalDate.of(2021, 1, 1), 1),  // Day without bulletin
+            new Extraordinario(null, LocalDate.of(2021, 1, 6), 2),
+            new Extraordinario(null, LocalDate.of(2021, 3, 21), 1)  // Sunday
+    );
+
+    static final List<Festivo> festivos = List.of(
+            new Festivo(null, LocalDate.of(2021, 1, 6), "Reyes Magos"),
+            new Festivo(null, LocalDate.of(2021, 12, 31), "dummy desc")
+    );
+
+    private BaseDatosPruebas bd;
+    private FestivoDao festDao;
+    private NumeroBoletinDao numerosDao;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        bd = new BaseDatosPruebas("numeroBoletinDaoTest");
+        Event<DatosAnnoModificados> eventos = mock(Event.class);
+        festDao = BaseDatosPruebas.inyectar(new FestivoDao(), "em", bd.em());
+        BaseDatosPruebas.inyectar(festDao, "eventos", eventos);
+        ExtraordinarioDao extDao = BaseDatosPruebas.inyectar(new ExtraordinarioDao(), "em", bd.em());
+        BaseDatosPruebas.inyectar(extDao, "eventos", eventos);
+        numerosDao = BaseDatosPruebas.inyectar(new NumeroBoletinDao(), "em", bd.em());
+        BaseDatosPruebas.inyectar(numerosDao, "festDao", festDao);
+        BaseDatosPruebas.inyectar(numerosDao, "extDao", extDao);
+        // Como el observador del contenedor, dentro de la misma transacción que la modificación.
+        doAnswer(i -> {
+            numerosDao.onDatosAnnoModificados(i.getArgument(0));
+            return null;
+        }).when(eventos).fire(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        bd.close();
+    }
+
+    private List<LocalDate> buscarFechasConNumero(int anno) {
+        return bd.em().createNamedQuery("NumeroBoletin.buscarEntreFechas", NumeroBoletin.class)
+                .setParameter("desde", LocalDate.of(anno, 1, 1))
+                .setParameter("hasta", LocalDate.of(anno, 12, 31))
+                .getResultStream()
+                .map(NumeroBoletin::getFecha)
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Copia de {@link #festivos} para guardarla: al guardarlos, los festivos reciben un id y ya no se pueden volver a
+     * guardar.
+     */
+    private static List<Festivo> festivosNuevos() {
+        return festivos.stream().map(f -> new Festivo(null, f.getFecha(), "dummy desc")).toList();
+    }
+
+    static YearCalendar load(int anno) {
+        return anno == 2021 ? YearCalendar.of(anno, exts, festivos) : YearCalendar.of(anno, List.of(), List.of());
+    }
+
+    @Test
+    void calculatesTheSameNumbersAsTheCalendarForEveryPublicationDate() {
+        MultiYearCalendar calendarios = new MultiYearCalendar(NumeroBoletinDaoTest::load);
+        YearCalendar calendario = calendarios.getCalendario(2021);
+        Map<LocalDate, NumeroBoletin> numeros = NumeroBoletinDao.calcularNumeros(calendarios,
+                LocalDate.of(2021, 1, 1), LocalDate.of(2021, 12, 31)).stream()
+                .collect(Collectors.toMap(NumeroBoletin::getFecha, Function.identity()));
+        for (LocalDate date = LocalDate.of(2021, 1, 1); date.getYear() == 2021; date = date.plusDays(1)) {
+            NumeroBoletin numeroBoletin = numeros.get(date);
+            if (numeroBoletin != null) {
+                assertEquals(calendario.getNumBot(date), numeroBoletin.getUltimoNumero(), date.toString());
+                assertEquals(calendario.getNumBotsPublicados(date),
+                        numeroBoletin.getUltimoNumero() - numeroBoletin.getPrimerNumero() + 1, date.toString());
+                assertEquals(calendarios.numBotsEnFestivoSeguidos(date),
+                        numeroBoletin.getNumBotsEnNoLaboralSeguidos(), date.toString());
+            } else {
+                assertTrue(date.getDayOfWeek() == DayOfWeek.SUNDAY || date.equals(LocalDate.of(2021, 1, 1))
+                        || date.equals(LocalDate.of(2021, 4, 2)) || date.equals(LocalDate.of(2021, 12, 25)),
+                        date.toString());
+            }
+        }
+        assertTrue(numeros.containsKey(LocalDate.of(2021, 3, 21)));
+        assertEquals(5, numeros.get(LocalDate.of(2021, 1, 6)).getPrimerNumero());
+    }
+
+    @Test
+    void skipsYearsWithoutFestivos() {
+        MultiYearCalendar calendarios = new MultiYearCalendar(NumeroBoletinDaoTest::load);
+        assertEquals(List.of(), NumeroBoletinDao.calcularNumeros(calendarios, LocalDate.of(2022, 1, 1),
+                LocalDate.of(2022, 12, 31)));
+    }
+
+    @Test
+    void firstFestivosOfAYearCreateTheNumbersBeforeTheFirstFestivo() {
+        bd.enTransaccion(() -> festDao.reemplazarFestivos(2021, festivosNuevos()));
+        List<LocalDate> fechas = buscarFechasConNumero(2021);
+        assertEquals(LocalDate.of(2021, 1, 2), fechas.get(0));
+        assertTrue(fechas.containsAll(List.of(LocalDate.of(2021, 1, 4), LocalDate.of(2021, 1, 5))));
+        assertEquals(1, numerosDao.buscarPorFecha(LocalDate.of(2021, 1, 2)).orElseThrow().getUltimoNumero());
+    }
+
+    @Test
+    void removingAllFestivosOfAYearRemovesAllItsNumbers() {
+        bd.enTransaccion(() -> festDao.reemplazarFestivos(2021, festivosNuevos()));
+        bd.enTransaccion(() -> numerosDao.recalcularDesde(LocalDate.of(2021, 1, 1)));
+        assertEquals(LocalDate.of(2021, 1, 2), buscarFechasConNumero(2021).get(0));
+        bd.enTransaccion(() -> festDao.reemplazarFestivos(2021, List.of()));
+        assertEquals(List.of(), buscarFechasConNumero(2021));
+        assertTrue(numerosDao.buscarPorFecha(LocalDate.of(2021, 1, 2)).isEmpty());
+    }
+}
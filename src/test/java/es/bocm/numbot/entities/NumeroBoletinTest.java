@@ -0,0 +1,37 @@
+package es.bocm.numbot.entities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumeroBoletinTest {
+    @ParameterizedTest
+    @CsvSource({
+            "0, 0",
+            "3, 2",
+    })
+    void createNumeroBoletinWithInvalidNumbersThrowsException(int primero, int ultimo) {
+        assertThrows(IllegalArgumentException.class, () -> new NumeroBoletin(LocalDate.of(2021, 1, 12), primero,
+                ultimo, 0));
+    }
+
+    @Test
+    void createNumeroBoletinWithNullDateThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new NumeroBoletin(null, 1, 1, 0));
+    }
+
+    @Test
+    void actualizarCopiesNumbersOnlyWhenTheyChange() {
+        LocalDate fecha = LocalDate.of(2021, 1, 12);
+        NumeroBoletin numeroBoletin = new NumeroBoletin(fecha, 9, 9, 0);
+        assertFalse(numeroBoletin.actualizar(new NumeroBoletin(fecha, 9, 9, 0)));
+        assertTrue(numeroBoletin.actualizar(new NumeroBoletin(fecha, 9, 10, 1)));
+        assertEquals(9, numeroBoletin.getPrimerNumero());
+        assertEquals(10, numeroBoletin.getUltimoNumero());
+        assertEquals(1, numeroBoletin.getNumBotsEnNoLaboralSeguidos());
+    }
+}
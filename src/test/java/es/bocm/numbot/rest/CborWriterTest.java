@@ -0,0 +1,81 @@
+package es.bocm.numbot.rest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Los valores esperados son los ejemplos del apéndice A de RFC 8949.
+ */
+class CborWriterTest {
+    private static String escribir(CborEscritura escritura) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CborWriter writer = new CborWriter(output);
+        escritura.escribir(writer);
+        writer.flush();
+        return hex(output.toByteArray());
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private interface CborEscritura {
+        void escribir(CborWriter writer) throws IOException;
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "0, 00",
+            "23, 17",
+            "24, 1818",
+            "100, 1864",
+            "1000, 1903e8",
+            "1000000, 1a000f4240",
+            "1000000000000, 1b000000e8d4a51000",
+            "-1, 20",
+            "-100, 3863",
+            "-1000, 3903e7",
+    })
+    void encodesIntegers(long valor, String esperado) throws IOException {
+        assertEquals(esperado, escribir(w -> w.entero(valor)));
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+            "'' | 60",
+            "a | 6161",
+            "IETF | 6449455446",
+            "ü | 62c3bc",
+            "水 | 63e6b0b4",
+    }, delimiter = '|')
+    void encodesText(String valor, String esperado) throws IOException {
+        assertEquals(esperado, escribir(w -> w.texto(valor)));
+    }
+
+    @Test
+    void encodesSimpleValuesAndContainers() throws IOException {
+        assertEquals("f4f5f6", escribir(w -> w.booleano(false).booleano(true).nulo()));
+        assertEquals("83010203", escribir(w -> w.inicioArray(3).entero(1).entero(2).entero(3)));
+        assertEquals("a201020304", escribir(w -> w.inicioMapa(2).entero(1).entero(2).entero(3).entero(4)));
+        assertEquals("9f0102ff", escribir(w -> w.inicioArrayIndefinido().entero(1).entero(2).finIndefinido()));
+    }
+
+    @Test
+    void encodesTextLongerThanTheBuffer() throws IOException {
+        String texto = "ñandú".repeat(500);
+        // 3500 bytes en UTF-8: cabecera 0x79 con la longitud en dos bytes.
+        String esperado = "790dac" + hex(texto.getBytes(StandardCharsets.UTF_8));
+        assertEquals(esperado, escribir(w -> w.texto(texto)));
+    }
+}
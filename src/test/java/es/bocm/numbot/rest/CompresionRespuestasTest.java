@@ -0,0 +1,131 @@
+package es.bocm.numbot.rest;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CompresionRespuestasTest {
+    @ParameterizedTest
+    @CsvSource(value = {
+            "| false",
+            "identity | false",
+            "gzip | true",
+            "GZIP | true",
+            "deflate, gzip;q=0.5 | true",
+            "x-gzip | true",
+            "gzip;q=0 | false",
+            "* | true",
+            "*;q=0 | false",
+            "gzip;q=0, * | false",
+            "br, * | true",
+            "gzip;q=x | false",
+    }, delimiter = '|')
+    void parsesAcceptEncoding(String acceptEncoding, boolean esperado) {
+        assertEquals(esperado, CompresionRespuestas.aceptaGzip(acceptEncoding));
+    }
+
+    @Test
+    void compressesAndDecompressesTheSameContent() throws IOException {
+        byte[] contenido = "{\"fecha\":\"2021-12-30\"}".repeat(100).getBytes(StandardCharsets.UTF_8);
+        byte[] gzip = CompresionRespuestas.comprimir(contenido);
+        assertTrue(gzip.length < contenido.length / 4);
+        assertArrayEquals(contenido, descomprimir(gzip));
+    }
+
+    @Test
+    void compressesLargeResponsesWhenAccepted() throws IOException {
+        byte[] contenido = "2021-12-30,309,311,1\r\n".repeat(200).getBytes(StandardCharsets.UTF_8);
+        MultivaluedMap<String, Object> cabeceras = new MultivaluedHashMap<>();
+        cabeceras.putSingle(HttpHeaders.CONTENT_LENGTH, contenido.length);
+        cabeceras.putSingle(HttpHeaders.ETAG, new EntityTag("2021-0-1-csv"));
+        ByteArrayOutputStream output = escribir("gzip, deflate", cabeceras, contenido);
+        assertEquals("gzip", cabeceras.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(new EntityTag("2021-0-1-csv-gzip"), cabeceras.getFirst(HttpHeaders.ETAG));
+        assertFalse(cabeceras.containsKey(HttpHeaders.CONTENT_LENGTH));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, cabeceras.getFirst(HttpHeaders.VARY));
+        assertArrayEquals(contenido, descomprimir(output.toByteArray()));
+    }
+
+    @Test
+    void sendsSmallResponsesUncompressed() throws IOException {
+        byte[] contenido = "{\"exito\":true}".getBytes(StandardCharsets.UTF_8);
+        MultivaluedMap<String, Object> cabeceras = new MultivaluedHashMap<>();
+        cabeceras.putSingle(HttpHeaders.ETAG, new EntityTag("2021-0-1-json"));
+        ByteArrayOutputStream output = escribir("gzip", cabeceras, contenido);
+        assertNull(cabeceras.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(new EntityTag("2021-0-1-json"), cabeceras.getFirst(HttpHeaders.ETAG));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, cabeceras.getFirst(HttpHeaders.VARY));
+        assertArrayEquals(contenido, output.toByteArray());
+    }
+
+    @Test
+    void sendsResponsesUncompressedWhenNotAccepted() throws IOException {
+        byte[] contenido = "2021-12-30,309,311,1\r\n".repeat(200).getBytes(StandardCharsets.UTF_8);
+        MultivaluedMap<String, Object> cabeceras = new MultivaluedHashMap<>();
+        ByteArrayOutputStream output = escribir(null, cabeceras, contenido);
+        assertNull(cabeceras.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(contenido, output.toByteArray());
+    }
+
+    @Test
+    void doesNotCompressAlreadyEncodedResponses() throws IOException {
+        byte[] gzip = CompresionRespuestas.comprimir("x".repeat(5000).getBytes(StandardCharsets.UTF_8));
+        MultivaluedMap<String, Object> cabeceras = new MultivaluedHashMap<>();
+        cabeceras.putSingle(HttpHeaders.CONTENT_ENCODING, "gzip");
+        ByteArrayOutputStream output = escribir("gzip", cabeceras, gzip);
+        assertArrayEquals(gzip, output.toByteArray());
+    }
+
+    /**
+     * Escribe un contenido a través del interceptor, como lo haría el contenedor.
+     *
+     * @param acceptEncoding la cabecera Accept-Encoding de la petición.
+     * @param cabeceras las cabeceras de la respuesta.
+     * @param contenido el contenido, que se escribe en trozos pequeños, como los escritores de respuestas.
+     * @return lo que llega al flujo del contenedor.
+     */
+    private static ByteArrayOutputStream escribir(String acceptEncoding, MultivaluedMap<String, Object> cabeceras,
+                                                  byte[] contenido) throws IOException {
+        CompresionRespuestas interceptor = new CompresionRespuestas();
+        interceptor.peticion = mock(HttpHeaders.class);
+        when(interceptor.peticion.getHeaderString(HttpHeaders.ACCEPT_ENCODING)).thenReturn(acceptEncoding);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AtomicReference<OutputStream> salida = new AtomicReference<>(output);
+        WriterInterceptorContext context = mock(WriterInterceptorContext.class);
+        when(context.getHeaders()).thenReturn(cabeceras);
+        when(context.getOutputStream()).thenAnswer(i -> salida.get());
+        doAnswer(i -> {
+            salida.set(i.getArgument(0));
+            return null;
+        }).when(context).setOutputStream(any());
+        doAnswer(i -> {
+            for (int desde = 0; desde < contenido.length; desde += 100) {
+                salida.get().write(contenido, desde, Math.min(100, contenido.length - desde));
+            }
+            salida.get().flush();
+            return null;
+        }).when(context).proceed();
+        interceptor.aroundWriteTo(context);
+        return output;
+    }
+
+    private static byte[] descomprimir(byte[] gzip) throws IOException {
+        return new GZIPInputStream(new ByteArrayInputStream(gzip)).readAllBytes();
+    }
+}
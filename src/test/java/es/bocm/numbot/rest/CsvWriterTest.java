@@ -0,0 +1,23 @@
+package es.bocm.numbot.rest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvWriterTest {
+    @Test
+    void quotesOnlyFieldsThatNeedIt() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CsvWriter writer = new CsvWriter(output);
+        writer.campo("fecha").campo("descripcion").campo(null).finFila();
+        writer.campo("01-06").campo("Reyes, \"Magos\"").campo(7).finFila();
+        writer.campo("12-08").campo("Inmaculada\nConcepción").campo("").finFila();
+        writer.flush();
+        assertEquals("fecha,descripcion,\r\n01-06,\"Reyes, \"\"Magos\"\"\",7\r\n" +
+                "12-08,\"Inmaculada\nConcepción\",\r\n", output.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,95 @@
+package es.bocm.numbot.rest;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EjecutorConsultasTest {
+    @Test
+    void runsTheQueryOnTheExecutor() {
+        List<Runnable> tareas = new ArrayList<>();
+        EjecutorConsultas ejecutor = new EjecutorConsultas(tareas::add, 1, 0);
+        CompletableFuture<Response> respuesta = ejecutor.ejecutar(() -> Response.ok().build()).toCompletableFuture();
+        assertFalse(respuesta.isDone());
+        assertEquals(1, ejecutor.getPendientes());
+        tareas.forEach(Runnable::run);
+        assertEquals(Response.Status.OK, respuesta.join().getStatusInfo());
+        assertEquals(0, ejecutor.getPendientes());
+    }
+
+    @Test
+    void rejectsQueriesOverTheLimitWithServiceUnavailable() {
+        List<Runnable> tareas = new ArrayList<>();
+        EjecutorConsultas ejecutor = new EjecutorConsultas(tareas::add, 2, 1);
+        for (int i = 0; i < 3; i++) {
+            ejecutor.ejecutar(() -> Response.ok().build());
+        }
+        Response rechazada = ejecutor.ejecutar(() -> Response.ok().build()).toCompletableFuture().join();
+        assertEquals(Response.Status.SERVICE_UNAVAILABLE, rechazada.getStatusInfo());
+        assertNotNull(rechazada.getHeaderString(HttpHeaders.RETRY_AFTER));
+        assertEquals(3, tareas.size());
+        tareas.forEach(Runnable::run);
+        CompletableFuture<Response> aceptada = ejecutor.ejecutar(() -> Response.ok().build()).toCompletableFuture();
+        tareas.get(3).run();
+        assertEquals(Response.Status.OK, aceptada.join().getStatusInfo());
+        assertEquals(0, ejecutor.getPendientes());
+    }
+
+    @Test
+    void convertsQueryErrorsIntoUnknownErrorResponses() {
+        EjecutorConsultas ejecutor = new EjecutorConsultas(Runnable::run, 1, 0);
+        Response respuesta = ejecutor.ejecutar(() -> {
+            throw new IllegalStateException("Fallo en la BBDD");
+        }).toCompletableFuture().join();
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR, respuesta.getStatusInfo());
+        assertEquals(0, ejecutor.getPendientes());
+    }
+
+    @Test
+    void limitsConcurrentQueries() throws InterruptedException {
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            EjecutorConsultas ejecutor = new EjecutorConsultas(hilos, 2, 16);
+            AtomicInteger enCurso = new AtomicInteger();
+            AtomicInteger maximo = new AtomicInteger();
+            CountDownLatch inicio = new CountDownLatch(1);
+            List<CompletableFuture<Response>> respuestas = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                respuestas.add(ejecutor.ejecutar(() -> {
+                    int actuales = enCurso.incrementAndGet();
+                    maximo.accumulateAndGet(actuales, Math::max);
+                    try {
+                        inicio.await(5, TimeUnit.SECONDS);
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    enCurso.decrementAndGet();
+                    return Response.ok().build();
+                }).toCompletableFuture());
+            }
+            inicio.countDown();
+            respuestas.forEach(r -> assertEquals(Response.Status.OK, r.join().getStatusInfo()));
+            assertTrue(maximo.get() <= 2, "Consultas simultáneas: " + maximo.get());
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new EjecutorConsultas(Runnable::run, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new EjecutorConsultas(Runnable::run, 1, -1));
+    }
+}
@@ -0,0 +1,130 @@
+package es.bocm.numbot.rest;
+
+import es.bocm.numbot.rest.festivos.FestivoResponse;
+import es.bocm.numbot.rest.numbot.NumbotResponse;
+import jakarta.ws.rs.core.MediaType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static es.bocm.numbot.rest.LecturaRespuestas.leerCbor;
+import static es.bocm.numbot.rest.LecturaRespuestas.peticion;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FormatoRespuestaTest {
+    private static final String[] COLUMNAS_RANGO = {"fecha", "primer_numero_boletin", "numero_boletin",
+            "numero_boletines_en_no_laboral_seguidos"};
+
+    @ParameterizedTest
+    @CsvSource(value = {
+            "| JSON",
+            "*/* | JSON",
+            "application/json | JSON",
+            "text/csv | CSV",
+            "application/cbor | CBOR",
+            "text/html, application/xml | JSON",
+            "text/* | CSV",
+            "application/cbor;q=0.5, text/csv | CSV",
+            "application/cbor, text/csv;q=0.9 | CBOR",
+            "*/*;q=0.8, text/csv | CSV",
+            "text/csv;q=0.9, */* | JSON",
+            "text/csv;q=0.5, application/cbor;q=0.5 | CSV",
+            "text/csv;q=0, */* | JSON",
+    }, delimiter = '|')
+    void choosesTheFormatFromTheAcceptHeader(String accept, FormatoRespuesta esperado) {
+        assertEquals(esperado, FormatoRespuesta.elegir(peticion(accept)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(FormatoRespuesta.class)
+    void findsTheFormatOfItsMediaType(FormatoRespuesta formato) {
+        assertEquals(formato, FormatoRespuesta.de(formato.getTipo()));
+        assertEquals(formato, FormatoRespuesta.de(MediaType.valueOf(formato.getTipo().getType() + "/"
+                + formato.getTipo().getSubtype())));
+    }
+
+    @Test
+    void writesOneCsvRowPerElementWithSortedColumns() throws IOException {
+        FestivoResponse respuesta = new FestivoResponse(List.of(
+                Map.of("fecha", "01-06", "descripcion", "Reyes Magos"),
+                Map.of("fecha", "12-08", "descripcion", "Inmaculada, Concepción")));
+        assertEquals("descripcion,fecha\r\nReyes Magos,01-06\r\n\"Inmaculada, Concepción\",12-08\r\n",
+                escribir(FormatoRespuesta.CSV, respuesta));
+    }
+
+    @Test
+    void writesASingleCsvRowForFlatData() throws IOException {
+        NumbotResponse respuesta = new NumbotResponse("301", "1");
+        assertEquals("numero_boletin,numero_boletines_en_no_laboral_seguidos\r\n301,1\r\n",
+                escribir(FormatoRespuesta.CSV, respuesta));
+    }
+
+    @Test
+    void writesCborWithNativeNumbers() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FormatoRespuesta.CBOR.escribir(new NumbotResponse("301", "1"), output);
+        Object esperado = Map.of("exito", true, "data",
+                Map.of("numero_boletin", 301L, "numero_boletines_en_no_laboral_seguidos", 1L));
+        assertEquals(esperado, leerCbor(output.toByteArray()));
+    }
+
+    @Test
+    void keepsNonNumericFieldsAsTextInCbor() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FormatoRespuesta.CBOR.escribir(new ErrorResponse("Número no válido"), output);
+        Object esperado = Map.of("exito", false, "data", Map.of("error", "Número no válido"));
+        assertEquals(esperado, leerCbor(output.toByteArray()));
+    }
+
+    @Test
+    void writesTheSameListInEveryFormat() throws IOException {
+        assertEquals("{\"exito\":true,\"data\":{\"boletines\":[" +
+                        "{\"fecha\":\"2021-12-30\",\"primer_numero_boletin\":\"309\",\"numero_boletin\":\"311\"," +
+                        "\"numero_boletines_en_no_laboral_seguidos\":\"1\"}]}}",
+                escribirLista(FormatoRespuesta.JSON, 1).toString(StandardCharsets.UTF_8));
+        assertEquals("fecha,primer_numero_boletin,numero_boletin,numero_boletines_en_no_laboral_seguidos\r\n" +
+                        "2021-12-30,309,311,1\r\n",
+                escribirLista(FormatoRespuesta.CSV, 1).toString(StandardCharsets.UTF_8));
+        Object esperado = Map.of("exito", true, "data", Map.of("boletines", List.of(Map.of(
+                "fecha", "2021-12-30", "primer_numero_boletin", 309L, "numero_boletin", 311L,
+                "numero_boletines_en_no_laboral_seguidos", 1L))));
+        assertEquals(esperado, leerCbor(escribirLista(FormatoRespuesta.CBOR, 1).toByteArray()));
+    }
+
+    @Test
+    void compactFormatsAreSmallerThanJson() throws IOException {
+        // Un año de consultas de rango.
+        int json = escribirLista(FormatoRespuesta.JSON, 306).size();
+        int csv = escribirLista(FormatoRespuesta.CSV, 306).size();
+        int cbor = escribirLista(FormatoRespuesta.CBOR, 306).size();
+        assertTrue(csv * 4 < json, "JSON: " + json + " bytes, CSV: " + csv + " bytes");
+        // CBOR repite los nombres de los campos en cada elemento: solo ahorra las comillas y los números en texto.
+        assertTrue(cbor * 10 < json * 9, "JSON: " + json + " bytes, CBOR: " + cbor + " bytes");
+    }
+
+    private static String escribir(FormatoRespuesta formato, NumbotApiResponse respuesta) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        formato.escribir(respuesta, output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static ByteArrayOutputStream escribirLista(FormatoRespuesta formato, int filas) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FormatoRespuesta.Lista lista = formato.abrirLista(output, "boletines", COLUMNAS_RANGO);
+        LocalDate fecha = LocalDate.of(2021, 12, 30);
+        for (int i = 0; i < filas; i++) {
+            lista.fila(fecha.plusDays(i).toString(), 309 + i, 311 + i, 1);
+        }
+        lista.cerrar();
+        return output;
+    }
+}
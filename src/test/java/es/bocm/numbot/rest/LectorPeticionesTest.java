@@ -0,0 +1,120 @@
+package es.bocm.numbot.rest;
+
+import com.google.gson.JsonSyntaxException;
+import es.bocm.numbot.entities.Extraordinario;
+import es.bocm.numbot.entities.Festivo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LectorPeticionesTest {
+    @Test
+    void leerFestivosBuildsTheFestivosInOrder() {
+        String json = "[{\"descripcion\": \"Reyes\", \"fecha\": \"01-06\", \"otro\": [1, {\"a\": 2}]}," +
+                " {\"fecha\": \"12-08\", \"descripcion\": \"Inmaculada\"}]";
+        List<Festivo> festivos = LectorPeticiones.leerFestivos(2021, new StringReader(json));
+        assertEquals(List.of(Map.of("fecha", "01-06", "descripcion", "Reyes"),
+                Map.of("fecha", "12-08", "descripcion", "Inmaculada")), festivos.stream().map(Festivo::toMap).toList());
+        assertEquals(LocalDate.of(2021, 1, 6), festivos.get(0).getFecha());
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+            "[{'fecha': '01-06'}]|Error en $[0]: Se debe especificar una descripción",
+            "[{'fecha': '01-06', 'descripcion': 'a'}, {'descripcion': 'b'}]|Error en $[1].fecha: falta la fecha",
+            "[{'fecha': '01-06', 'descripcion': {'es': 'a'}}]|Error en $[0].descripcion: se esperaba un valor " +
+                    "simple y se encontró BEGIN_OBJECT",
+            "[{'fecha': '2021-01-06', 'descripcion': 'a'}]|Error en $[0].fecha: la fecha 2021-01-06 no tiene " +
+                    "formato MM-DD",
+            "[{'fecha': '01-06', 'descripcion': 'a'}|JSON no válido: End of input at line 1 column 40 path $[1]",
+            "null|JSON no válido: Expected BEGIN_ARRAY but was NULL at line 1 column 5 path $"
+    }, delimiter = '|', quoteCharacter = '"')
+    void leerFestivosReportsThePositionOfTheError(String json, String mensaje) {
+        Reader entrada = new StringReader(json.replace('\'', '"'));
+        JsonSyntaxException e = assertThrows(JsonSyntaxException.class,
+                () -> LectorPeticiones.leerFestivos(2021, entrada));
+        assertEquals(mensaje, e.getMessage());
+    }
+
+    @Test
+    void leerExtraordinariosAcceptsNumbersWithAndWithoutQuotes() {
+        String json = "[{\"fecha\": \"03-20\", \"numero\": \"3\"}, {\"numero\": 1, \"fecha\": \"02-28\"}]";
+        List<Extraordinario> exts = LectorPeticiones.leerExtraordinarios(2021, new StringReader(json));
+        assertEquals(List.of(Map.of("fecha", "03-20", "numero", "3"), Map.of("fecha", "02-28", "numero", "1")),
+                exts.stream().map(Extraordinario::toMap).toList());
+    }
+
+    @Test
+    void leerExtraordinariosChecksTheDateAgainstTheYear() {
+        String json = "[{\"fecha\": \"02-29\", \"numero\": \"1\"}]";
+        assertEquals(LocalDate.of(2020, 2, 29),
+                LectorPeticiones.leerExtraordinarios(2020, new StringReader(json)).get(0).getFecha());
+        JsonSyntaxException e = assertThrows(JsonSyntaxException.class,
+                () -> LectorPeticiones.leerExtraordinarios(2021, new StringReader(json)));
+        assertEquals("Error en $[0].fecha: la fecha 02-29 no existe en el año 2021", e.getMessage());
+    }
+
+    @Test
+    void leerExtraordinarioIgnoresOtherFields() {
+        String json = "{\"comentario\": [\"x\"], \"numero_extraordinarios\": 2}";
+        Extraordinario ext = LectorPeticiones.leerExtraordinario(LocalDate.of(2021, 3, 20), new StringReader(json));
+        assertEquals(LocalDate.of(2021, 3, 20), ext.getFecha());
+        assertEquals(2, ext.getNumero());
+    }
+
+    @Test
+    void leerExtraordinariosReadsLargeInputsAsTheyArrive() {
+        // Genera el contenido según se lee, sin tenerlo entero en memoria.
+        int elementos = 100_000;
+        Reader entrada = new Reader() {
+            private int siguiente;
+            private String pendiente = "[";
+
+            @Override
+            public int read(char[] cbuf, int off, int len) {
+                if (pendiente.isEmpty()) {
+                    if (siguiente > elementos) {
+                        return -1;
+                    }
+                    pendiente = siguiente == elementos ? "]"
+                            : (siguiente > 0 ? "," : "") + "{\"fecha\": \"03-20\", \"numero\": \"1\"}";
+                    siguiente++;
+                }
+                int n = Math.min(len, pendiente.length());
+                pendiente.getChars(0, n, cbuf, off);
+                pendiente = pendiente.substring(n);
+                return n;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertEquals(elementos, LectorPeticiones.leerExtraordinarios(2021, entrada).size());
+    }
+
+    @Test
+    void readErrorsAreNotReportedAsInvalidContent() {
+        Reader entrada = new Reader() {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("Conexión cerrada");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertThrows(UncheckedIOException.class, () -> LectorPeticiones.leerFestivos(2021, entrada));
+    }
+}
@@ -0,0 +1,176 @@
+package es.bocm.numbot.rest;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.specimpl.RequestImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Obtiene el contenido de las respuestas de los recursos tal y como lo recibiría el cliente, sin contenedor JAX-RS.
+ */
+public final class LecturaRespuestas {
+    private LecturaRespuestas() {
+        throw new AssertionError("Clase de utilidades. No instanciar.");
+    }
+
+    /**
+     * Crea una petición GET con una cabecera Accept, para la negociación de contenido de los recursos. Usa la
+     * implementación de RESTEasy, la del servidor de aplicaciones.
+     *
+     * @param accept el valor de la cabecera Accept, o null para no enviarla.
+     * @return la petición.
+     */
+    public static Request peticion(String accept) {
+        try {
+            MockHttpRequest peticion = MockHttpRequest.get("/");
+            if (accept != null) {
+                peticion.header(HttpHeaders.ACCEPT, accept);
+            }
+            return new RequestImpl(peticion, new MockHttpResponse());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Espera a que se complete la respuesta asíncrona de un recurso.
+     *
+     * @param respuesta la respuesta asíncrona.
+     * @return la respuesta.
+     */
+    public static Response esperar(CompletionStage<Response> respuesta) {
+        return respuesta.toCompletableFuture().join();
+    }
+
+    /**
+     * Escribe el contenido de una respuesta como lo haría el contenedor.
+     *
+     * @param response la respuesta.
+     * @return el contenido de la respuesta, en UTF-8.
+     */
+    public static String leerJson(Response response) {
+        return new String(leerBytes(response), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escribe el contenido de una respuesta como lo haría el contenedor, en el formato de su tipo MIME.
+     *
+     * @param response la respuesta.
+     * @return el contenido de la respuesta.
+     */
+    public static byte[] leerBytes(Response response) {
+        Object entidad = response.getEntity();
+        if (entidad instanceof String cadena) {
+            return cadena.getBytes(StandardCharsets.UTF_8);
+        }
+        if (entidad instanceof byte[] bytes) {
+            return bytes;
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            if (entidad instanceof NumbotApiResponse respuesta) {
+                MediaType tipo = response.getMediaType() == null ? MediaType.APPLICATION_JSON_TYPE
+                        : response.getMediaType();
+                new NumbotApiResponseWriter().writeTo(respuesta, respuesta.getClass(), respuesta.getClass(),
+                        new Annotation[0], tipo, new MultivaluedHashMap<>(), output);
+            } else {
+                ((StreamingOutput) entidad).write(output);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Lee un contenido CBOR con los tipos que usan las respuestas: enteros, cadenas, arrays (también de longitud
+     * indefinida), mapas, booleanos y null.
+     *
+     * @param cbor el contenido.
+     * @return el valor leído: Long, String, List, Map, Boolean o null.
+     */
+    public static Object leerCbor(byte[] cbor) {
+        ByteBuffer entrada = ByteBuffer.wrap(cbor);
+        Object valor = leerValorCbor(entrada);
+        if (entrada.hasRemaining()) {
+            throw new IllegalArgumentException("Quedan " + entrada.remaining() + " bytes sin leer");
+        }
+        return valor;
+    }
+
+    private static Object leerValorCbor(ByteBuffer entrada) {
+        int inicial = entrada.get() & 0xFF;
+        int tipoMayor = inicial >>> 5;
+        int adicional = inicial & 0x1F;
+        if (tipoMayor == 7) {
+            return switch (adicional) {
+                case 20 -> false;
+                case 21 -> true;
+                case 22 -> null;
+                default -> throw new IllegalArgumentException("Valor simple no soportado: " + adicional);
+            };
+        }
+        if (adicional == 31 && tipoMayor == 4) {
+            List<Object> lista = new ArrayList<>();
+            while ((entrada.get(entrada.position()) & 0xFF) != 0xFF) {
+                lista.add(leerValorCbor(entrada));
+            }
+            entrada.get();
+            return lista;
+        }
+        long argumento = switch (adicional) {
+            case 24 -> entrada.get() & 0xFFL;
+            case 25 -> entrada.getShort() & 0xFFFFL;
+            case 26 -> entrada.getInt() & 0xFFFFFFFFL;
+            case 27 -> entrada.getLong();
+            default -> {
+                if (adicional > 27) {
+                    throw new IllegalArgumentException("Longitud no soportada: " + adicional);
+                }
+                yield adicional;
+            }
+        };
+        switch (tipoMayor) {
+            case 0:
+                return argumento;
+            case 1:
+                return -1 - argumento;
+            case 3:
+                byte[] texto = new byte[(int) argumento];
+                entrada.get(texto);
+                return new String(texto, StandardCharsets.UTF_8);
+            case 4:
+                List<Object> lista = new ArrayList<>();
+                for (long i = 0; i < argumento; i++) {
+                    lista.add(leerValorCbor(entrada));
+                }
+                return lista;
+            case 5:
+                Map<Object, Object> mapa = new LinkedHashMap<>();
+                for (long i = 0; i < argumento; i++) {
+                    mapa.put(leerValorCbor(entrada), leerValorCbor(entrada));
+                }
+                return mapa;
+            default:
+                throw new IllegalArgumentException("Tipo mayor no soportado: " + tipoMayor);
+        }
+    }
+}
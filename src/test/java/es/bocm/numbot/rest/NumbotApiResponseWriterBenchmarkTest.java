@@ -0,0 +1,83 @@
+package es.bocm.numbot.rest;
+
+import com.google.gson.Gson;
+import es.bocm.numbot.rest.festivos.FestivoResponse;
+import es.bocm.numbot.rest.numbot.NumbotResponse;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compara la memoria que reserva cada forma de escribir las respuestas. El resultado depende del JIT y del análisis de
+ * escape, así que solo se ejecuta a petición: mvn test -Dnumbot.benchmarks=true.
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "numbot.benchmarks", matches = "true")
+class NumbotApiResponseWriterBenchmarkTest {
+    static final int RESPUESTAS_POR_MEDIDA = 2000;
+
+    interface Serializacion {
+        void escribir(NumbotApiResponse respuesta, OutputStream output) throws IOException;
+    }
+
+    static Stream<NumbotApiResponse> respuestas() {
+        List<Map<String, String>> festivos = new ArrayList<>();
+        for (int mes = 1; mes <= 12; mes++) {
+            festivos.add(Map.of("fecha", String.format("%02d-10", mes), "descripcion", "Festivo número " + mes));
+        }
+        return Stream.of(new NumbotResponse("298", "2"), new FestivoResponse(festivos));
+    }
+
+    /**
+     * Bytes reservados en memoria por el hilo actual, de media, para escribir una respuesta.
+     */
+    static long medirMemoriaPorRespuesta(NumbotApiResponse respuesta, Serializacion serializacion)
+            throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(16 * 1024);
+        for (int i = 0; i < RESPUESTAS_POR_MEDIDA; i++) {  // Warm up
+            output.reset();
+            serializacion.escribir(respuesta, output);
+        }
+        long antes = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < RESPUESTAS_POR_MEDIDA; i++) {
+            output.reset();
+            serializacion.escribir(respuesta, output);
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - antes) / RESPUESTAS_POR_MEDIDA;
+    }
+
+    @ParameterizedTest
+    @MethodSource("respuestas")
+    void writerAllocatesLessThanAGsonPerResponse(NumbotApiResponse respuesta) throws IOException {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        // Antes: una instancia de Gson y una cadena por respuesta, que después se vuelve a codificar.
+        long conGsonPorRespuesta = medirMemoriaPorRespuesta(respuesta,
+                (r, output) -> output.write(new Gson().toJson(r).getBytes(StandardCharsets.UTF_8)));
+        NumbotApiResponseWriter writer = new NumbotApiResponseWriter();
+        long conWriter = medirMemoriaPorRespuesta(respuesta,
+                (r, output) -> writer.writeTo(r, r.getClass(), r.getClass(), new Annotation[0],
+                        MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), output));
+
+        // Medido: unos 13,7 KB frente a 1,4 KB para NumbotResponse.
+        assertTrue(conWriter * 2 < conGsonPorRespuesta,
+                "Gson: " + conGsonPorRespuesta + " bytes, writer: " + conWriter + " bytes");
+    }
+}
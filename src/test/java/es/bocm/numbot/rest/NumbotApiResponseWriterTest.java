@@ -0,0 +1,73 @@
+package es.bocm.numbot.rest;
+
+import com.google.gson.Gson;
+import es.bocm.numbot.rest.festivos.FestivoResponse;
+import es.bocm.numbot.rest.numbot.NumbotResponse;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumbotApiResponseWriterTest {
+    static Stream<NumbotApiResponse> respuestas() {
+        Map<String, String> conNulo = new LinkedHashMap<>();
+        conNulo.put("fecha", "2021-01-06");
+        conNulo.put("descripcion", null);
+        return Stream.of(
+                new NumbotResponse("5", "0"),
+                new ErrorResponse("Año con formato <incorrecto> & 'comillas' \"dobles\" =  "),
+                new FestivoResponse(List.of(Map.of("fecha", "01-06", "descripcion", "Reyes Magos"), conNulo)),
+                new FestivoResponse(List.of()));
+    }
+
+    static String escribir(NumbotApiResponse respuesta) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new NumbotApiResponseWriter().writeTo(respuesta, respuesta.getClass(), respuesta.getClass(),
+                new Annotation[0], MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    @ParameterizedTest
+    @MethodSource("respuestas")
+    void writesTheSameJsonAsReflectiveGson(NumbotApiResponse respuesta) throws IOException {
+        String esperado = new Gson().toJson(respuesta);
+        assertEquals(esperado, escribir(respuesta));
+        assertEquals(esperado, new String(RestUtils.serializarJson(respuesta), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void onlyWritesApiResponses() {
+        NumbotApiResponseWriter writer = new NumbotApiResponseWriter();
+        assertTrue(writer.isWriteable(NumbotResponse.class, NumbotResponse.class, new Annotation[0],
+                MediaType.APPLICATION_JSON_TYPE));
+        assertFalse(writer.isWriteable(String.class, String.class, new Annotation[0],
+                MediaType.APPLICATION_JSON_TYPE));
+    }
+
+    @Test
+    void rejectsUnsupportedDataTypes() {
+        assertThrows(IllegalArgumentException.class, () -> escribir(new NumbotApiResponse() {
+            @Override
+            public boolean exito() {
+                return false;
+            }
+
+            @Override
+            public Map<String, ?> data() {
+                return Map.of("numero", 1);
+            }
+        }));
+    }
+}
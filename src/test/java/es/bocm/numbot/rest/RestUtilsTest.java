@@ -1,7 +1,15 @@
 package es.bocm.numbot.rest;
 
+import es.bocm.numbot.cache.VersionAnno;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Response;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -15,4 +23,44 @@ class RestUtilsTest {
     void rejectsIncorrectYears() {
         assertTrue(RestUtils.esAnnoNoValido("invalidYear"));
     }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"\"2021-abc-json\"", "W/\"2021-abc-json\"", "\"otra\", \"2021-abc-json\"",
+            "\"2021-abc-json-gzip\"", "*"})
+    void acceptsCurrentVersion(String ifNoneMatch) {
+        assertTrue(RestUtils.esVersionVigente(ifNoneMatch, FormatoRespuesta.JSON,
+                new VersionAnno(2021, "abc", Instant.EPOCH)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"\"2021-abd-json\"", "2021-abc-json", "\"otra\"", "\"2021-abc\"", "\"2021-abc-csv\""})
+    void rejectsOtherVersions(String ifNoneMatch) {
+        assertFalse(RestUtils.esVersionVigente(ifNoneMatch, FormatoRespuesta.JSON,
+                new VersionAnno(2021, "abc", Instant.EPOCH)));
+    }
+
+    @Test
+    void rejectsMissingHeader() {
+        assertFalse(RestUtils.esVersionVigente(null, FormatoRespuesta.JSON,
+                new VersionAnno(2021, "abc", Instant.EPOCH)));
+    }
+
+    @Test
+    void tagsEachFormatAndContentCodingDifferently() {
+        VersionAnno version = new VersionAnno(2021, "abc", Instant.EPOCH);
+        Response csv = RestUtils.conCabecerasCache(Response.ok().build(), FormatoRespuesta.CSV, version);
+        assertEquals(new EntityTag("2021-abc-csv"), csv.getEntityTag());
+        Response gzip = RestUtils.conCabecerasCache(RestUtils.crearRespuestaJsonComprimida(Response.Status.OK,
+                new byte[0]), FormatoRespuesta.JSON, version);
+        assertEquals(new EntityTag("2021-abc-json-gzip"), gzip.getEntityTag());
+    }
+
+    @Test
+    void notModifiedResponseKeepsTheMatchingTag() {
+        VersionAnno version = new VersionAnno(2021, "abc", Instant.EPOCH);
+        assertEquals(new EntityTag("2021-abc-json-gzip"), RestUtils.crearRespuestaNoModificada(
+                "\"2021-abc-json-gzip\"", FormatoRespuesta.JSON, version).getEntityTag());
+        assertEquals(new EntityTag("2021-abc-cbor"),
+                RestUtils.crearRespuestaNoModificada("*", FormatoRespuesta.CBOR, version).getEntityTag());
+    }
 }
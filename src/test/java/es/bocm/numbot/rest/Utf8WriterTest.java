@@ -0,0 +1,56 @@
+package es.bocm.numbot.rest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class Utf8WriterTest {
+    @ParameterizedTest
+    @ValueSource(strings = {"", "ascii", "Año festivo: Día de la Comunidad", "€ 20", "emoji 📰 y más"})
+    void encodesLikeStringGetBytes(String texto) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (Writer writer = new Utf8Writer(output)) {
+            writer.write(texto);
+        }
+        assertArrayEquals(texto.getBytes(StandardCharsets.UTF_8), output.toByteArray());
+    }
+
+    @Test
+    void joinsSurrogatePairsSplitAcrossWrites() throws IOException {
+        String texto = "a📰b";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (Writer writer = new Utf8Writer(output)) {
+            writer.write(texto, 0, 2);
+            writer.write(texto.toCharArray(), 2, 1);
+            writer.write('b');
+        }
+        assertArrayEquals(texto.getBytes(StandardCharsets.UTF_8), output.toByteArray());
+    }
+
+    @Test
+    void encodesTextLongerThanTheBuffer() throws IOException {
+        String texto = "ñandú €".repeat(1000);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (Writer writer = new Utf8Writer(output)) {
+            writer.write(texto);
+        }
+        assertArrayEquals(texto.getBytes(StandardCharsets.UTF_8), output.toByteArray());
+    }
+
+    @Test
+    void replacesUnpairedSurrogates() throws IOException {
+        String texto = "a\uD83Db\uDCF0c\uD83D";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (Writer writer = new Utf8Writer(output)) {
+            writer.write(texto);
+        }
+        assertArrayEquals(texto.getBytes(StandardCharsets.UTF_8), output.toByteArray());
+    }
+}
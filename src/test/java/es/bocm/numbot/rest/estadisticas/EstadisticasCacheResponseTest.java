@@ -0,0 +1,19 @@
+package es.bocm.numbot.rest.estadisticas;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EstadisticasCacheResponseTest {
+    @Test
+    void constructorCreatesCorrectObject() {
+        List<Map<String, String>> data = List.of(Map.of("region", "datos", "aciertos", "3", "fallos", "1",
+                "guardados", "1"));
+        EstadisticasCacheResponse expected = new EstadisticasCacheResponse(true, Map.of("regiones", data));
+        EstadisticasCacheResponse result = new EstadisticasCacheResponse(data);
+        assertEquals(expected, result);
+    }
+}
@@ -0,0 +1,46 @@
+package es.bocm.numbot.rest.estadisticas;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import es.bocm.numbot.cache.DatosAnnoCache;
+import es.bocm.numbot.cache.EstadisticasRegion;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static es.bocm.numbot.rest.LecturaRespuestas.leerJson;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EstadisticasResourceTest {
+    @Mock
+    private DatosAnnoCache mockCache;
+
+    @InjectMocks
+    private EstadisticasResource estadisticasRest;
+
+    @Test
+    void producesCorrectResponseWithData() {
+        Map<String, EstadisticasRegion> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("datos", new EstadisticasRegion(120, 4, 4, 3));
+        estadisticas.put("calendarios", new EstadisticasRegion(30, 2, 1, 1));
+        when(mockCache.getEstadisticas()).thenReturn(estadisticas);
+        String expected_str = "{\"exito\":true,\"data\":{\"regiones\":[" +
+                "{\"region\":\"datos\",\"aciertos\":\"120\",\"fallos\":\"4\",\"guardados\":\"4\"," +
+                "\"elementos\":\"3\"}," +
+                "{\"region\":\"calendarios\",\"aciertos\":\"30\",\"fallos\":\"2\",\"guardados\":\"1\"," +
+                "\"elementos\":\"1\"}]}}";
+        JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
+        Response response = estadisticasRest.getEstadisticasCache();
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        JsonObject res = JsonParser.parseString(leerJson(response)).getAsJsonObject();
+        assertEquals(expected, res);
+    }
+}
@@ -2,25 +2,37 @@ package es.bocm.numbot.rest.extraordinarios;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import es.bocm.numbot.cache.DatosAnnoCache;
+import es.bocm.numbot.entities.DatosAnno;
+import es.bocm.numbot.entities.DatosAnnoDao;
 import es.bocm.numbot.entities.Extraordinario;
 import es.bocm.numbot.entities.ExtraordinarioDao;
+import es.bocm.numbot.rest.EjecutorConsultas;
 import jakarta.persistence.PersistenceException;
 import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
+import static es.bocm.numbot.rest.LecturaRespuestas.esperar;
+import static es.bocm.numbot.rest.LecturaRespuestas.leerJson;
+import static es.bocm.numbot.rest.LecturaRespuestas.peticion;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
@@ -29,37 +41,46 @@ class ExtraordinarioResourceTest {
     @Mock
     private ExtraordinarioDao mockExtDao;
 
+    @Mock
+    private DatosAnnoDao mockDatosDao;
+
     @InjectMocks
     private ExtraordinarioResource extRest;
 
+    @BeforeEach
+    void setUp() {
+        extRest.cache = new DatosAnnoCache(mockDatosDao);
+        extRest.ejecutor = new EjecutorConsultas(Runnable::run, 4, 16);
+    }
+
     @Test
     void producesCorrectInvalidYearResponse() {
         String expected = "{\"exito\":false,\"data\":{\"error\":\"Año con formato incorrecto. " +
                 "El formato debe ser YYYY\"}}";
-        Response response = extRest.getNumExtraordinarios("badYear");
+        Response response = esperar(extRest.getNumExtraordinarios("badYear", null, peticion(null), null));
         assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         assertEquals(expected, json_res);
     }
 
     @Test
     void producesCorrectUnknownErrorGetResponse() {
-        when(mockExtDao.buscarExtraordinariosPorAnno(anyInt())).thenThrow(PersistenceException.class);
+        when(mockDatosDao.buscarPorAnno(anyInt())).thenThrow(PersistenceException.class);
         String expected = "{\"exito\":false,\"data\":{\"error\":\"Error desconocido. Contactar con el administrador " +
                 "de sistemas para que revise la conexión con la BBDD y otras posibles causas.\"}}";
-        Response response = extRest.getNumExtraordinarios("1000");
+        Response response = esperar(extRest.getNumExtraordinarios("1000", null, peticion(null), null));
         assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         assertEquals(expected, json_res);
     }
 
     @Test
     void producesCorrectNoExtsResponse() {
-        when(mockExtDao.buscarExtraordinariosPorAnno(anyInt())).thenReturn(Collections.emptyList());
+        when(mockDatosDao.buscarPorAnno(1000)).thenReturn(new DatosAnno(1000, List.of(), List.of()));
         String expected = "{\"exito\":true,\"data\":{\"extraordinarios\":[]}}";
-        Response response = extRest.getNumExtraordinarios("1000");
+        Response response = esperar(extRest.getNumExtraordinarios("1000", null, peticion(null), null));
         assertEquals(Response.Status.OK, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = new String(response.readEntity(byte[].class), StandardCharsets.UTF_8);
         assertEquals(expected, json_res);
     }
 
@@ -70,37 +91,53 @@ class ExtraordinarioResourceTest {
                 new Extraordinario(null, LocalDate.of(anno, 3, 1), 2),
                 new Extraordinario(null, LocalDate.of(anno, 5, 15), 1)
         );
-        when(mockExtDao.buscarExtraordinariosPorAnno(anno)).thenReturn(exts);
+        when(mockDatosDao.buscarPorAnno(anno)).thenReturn(new DatosAnno(anno, List.of(), exts));
         String expected_str = "{\"exito\":true,\"data\":{\"extraordinarios\":[{\"fecha\":\"03-01\",\"numero\":\"2\"}," +
                 "{\"fecha\":\"05-15\",\"numero\":\"1\"}]}}";
         JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
-        Response response = extRest.getNumExtraordinarios(String.valueOf(anno));
+        Response response = esperar(extRest.getNumExtraordinarios(String.valueOf(anno), null, peticion(null), null));
         assertEquals(Response.Status.OK, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = new String(response.readEntity(byte[].class), StandardCharsets.UTF_8);
         JsonObject res = JsonParser.parseString(json_res).getAsJsonObject();
         assertEquals(expected, res);
     }
 
+    @Test
+    void producesNotModifiedResponseWithoutQueryingDatabaseAgain() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, List.of(), List.of()));
+        String etag = "W/\"" + extRest.cache.getVersion(2021).etiqueta() + "-json\"";
+        Response response = esperar(extRest.getNumExtraordinarios("2021", "\"otra\", " + etag, peticion(null), null));
+        assertEquals(Response.Status.NOT_MODIFIED, response.getStatusInfo());
+        assertEquals(extRest.cache.getVersion(2021).etiqueta() + "-json", response.getEntityTag().getValue());
+        verify(mockDatosDao, times(1)).buscarPorAnno(2021);
+    }
+
     @Test
     void producesCorrectInvalidDateResponse() {
         String expected = "{\"exito\":false,\"data\":{\"error\":\"Fecha errónea o con formato incorrecto. " +
                 "El formato debe ser YYYY-MM-DD\"}}";
-        Response response = extRest.createOrUpdateNumExtraordinarios("badDate", "");
+        Response response = esperar(extRest.createOrUpdateNumExtraordinarios("badDate", new StringReader("")));
         assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         assertEquals(expected, json_res);
     }
 
     @ParameterizedTest
-    @ValueSource(strings = {"asdf", "-1", "-12", ""})
-    void producesCorrectInvalidNumExtsResponse(String numExts) {
-        String json_input = "{\"numero_extraordinarios\": \"" + numExts + "\"}";
+    @CsvSource(value = {
+            "asdf| Error en $.numero_extraordinarios: el número asdf no es un entero",
+            "-1| Error en $: El número de boletines extraordinarios debe ser mayor que cero",
+            "-12| Error en $: El número de boletines extraordinarios debe ser mayor que cero",
+            "| Error en $.numero_extraordinarios: el número  no es un entero"
+    }, delimiter = '|', ignoreLeadingAndTrailingWhitespace = false)
+    void producesCorrectInvalidNumExtsResponse(String numExts, String detalle) {
+        String json_input = "{\"numero_extraordinarios\": \"" + Objects.requireNonNullElse(numExts, "") + "\"}";
         String expected = "{\"exito\":false,\"data\":{\"error\":\"Formato de número de boletines extraordinarios " +
                 "incorrecto. Debe ser un entero mayor o igual que cero. " +
-                "Ejemplo: {\\\"numero_extraordinarios\\\": \\\"1\\\"}\"}}";
-        Response response = extRest.createOrUpdateNumExtraordinarios("1932-03-03", json_input);
+                "Ejemplo: {\\\"numero_extraordinarios\\\": \\\"1\\\"}." + detalle + "\"}}";
+        Response response = esperar(extRest.createOrUpdateNumExtraordinarios("1932-03-03",
+                new StringReader(json_input)));
         assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         assertEquals(expected, json_res);
     }
 
@@ -110,10 +147,12 @@ class ExtraordinarioResourceTest {
         String json_input = "{\"" + key + "\": \"3\"}";
         String expected = "{\"exito\":false,\"data\":{\"error\":\"Formato de número de boletines extraordinarios " +
                 "incorrecto. Debe ser un entero mayor o igual que cero. " +
-                "Ejemplo: {\\\"numero_extraordinarios\\\": \\\"1\\\"}\"}}";
-        Response response = extRest.createOrUpdateNumExtraordinarios("1932-03-03", json_input);
+                "Ejemplo: {\\\"numero_extraordinarios\\\": \\\"1\\\"}. Error en $.numero_extraordinarios: " +
+                "falta el número de boletines extraordinarios\"}}";
+        Response response = esperar(extRest.createOrUpdateNumExtraordinarios("1932-03-03",
+                new StringReader(json_input)));
         assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         assertEquals(expected, json_res);
     }
 
@@ -124,9 +163,10 @@ class ExtraordinarioResourceTest {
         doThrow(PersistenceException.class).when(mockExtDao).crearOActualizar(any(Extraordinario.class));
         String expected = "{\"exito\":false,\"data\":{\"error\":\"Error desconocido. Contactar con el administrador" +
                 " de sistemas para que revise la conexión con la BBDD y otras posibles causas.\"}}";
-        Response response = extRest.createOrUpdateNumExtraordinarios("1932-03-03", json_input);
+        Response response = esperar(extRest.createOrUpdateNumExtraordinarios("1932-03-03",
+                new StringReader(json_input)));
         assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         assertEquals(expected, json_res);
     }
 
@@ -141,10 +181,11 @@ class ExtraordinarioResourceTest {
                 "\"fecha\":\"03-15\"}]}}";
         JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
 
-        Response response = extRest.createOrUpdateNumExtraordinarios("1932-03-15", json_input);
+        Response response = esperar(extRest.createOrUpdateNumExtraordinarios("1932-03-15",
+                new StringReader(json_input)));
         assertEquals(Response.Status.OK, response.getStatusInfo());
 
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         JsonObject res = JsonParser.parseString(json_res).getAsJsonObject();
         assertEquals(expected, res);
     }
@@ -162,12 +203,74 @@ class ExtraordinarioResourceTest {
                 "\"fecha\":\"03-15\"}]}}";
         JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
 
-        Response response = extRest.createOrUpdateNumExtraordinarios(fecha.toString(), json_input);
+        Response response = esperar(extRest.createOrUpdateNumExtraordinarios(fecha.toString(),
+                new StringReader(json_input)));
         assertEquals(3, opt_ext.get().getNumero());
         assertEquals(Response.Status.OK, response.getStatusInfo());
 
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         JsonObject res = JsonParser.parseString(json_res).getAsJsonObject();
         assertEquals(expected, res);
     }
+
+    @Test
+    void producesCorrectInvalidYearPutAnnoResponse() {
+        Response response = esperar(extRest.createOrUpdateNumExtraordinariosAnno("badYear", new StringReader("[]")));
+        assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
+        verifyNoInteractions(mockExtDao);
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+            "| JSON no válido: End of input at line 1 column 1 path $",
+            "{'fecha': '03-20', 'numero': '1'}| JSON no válido: Expected BEGIN_ARRAY but was BEGIN_OBJECT at line 1 " +
+                    "column 2 path $",
+            "[{'fecha': '03-20'}]| Error en $[0].numero: falta el número de boletines extraordinarios",
+            "[{'fecha': '03-20', 'numero': '1'}, {'fecha': '02-30', 'numero': '1'}]| Error en $[1].fecha: la fecha " +
+                    "02-30 no existe en el año 2021",
+            "[{'fecha': '03-20', 'numero': '-1'}]| Error en $[0]: El número de boletines extraordinarios debe ser " +
+                    "mayor que cero",
+            "[{'fecha': '03-20', 'numero': 'uno'}]| Error en $[0].numero: el número uno no es un entero",
+            "[{'fecha': '3-20', 'numero': '1'}]| Error en $[0].fecha: la fecha 3-20 no tiene formato MM-DD",
+            "[{'fecha': '03-20', 'numero': '1'}] []| Error en $: hay contenido después del final del documento"
+    }, delimiter = '|', ignoreLeadingAndTrailingWhitespace = false)
+    void producesCorrectInvalidPutAnnoDataResponse(String json_input, String detalle) {
+        json_input = Objects.requireNonNullElse(json_input, "");
+        String expected = "{\"exito\":false,\"data\":{\"error\":\"Boletines extraordinarios con formato o fecha " +
+                "no válida. El formato debe ser [{\\\"fecha\\\": \\\"MM-DD\\\", \\\"numero\\\": \\\"1\\\"}, " +
+                "{\\\"fecha\\\": \\\"MM-DD\\\", \\\"numero\\\": \\\"2\\\"}], con números enteros mayores o " +
+                "iguales que cero." + detalle + "\"}}";
+        Response response = esperar(extRest.createOrUpdateNumExtraordinariosAnno("2021", new StringReader(json_input)));
+        assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
+        assertEquals(expected, leerJson(response));
+        verifyNoInteractions(mockExtDao);
+    }
+
+    @Test
+    void producesCorrectUnknownErrorPutAnnoResponse() {
+        when(mockExtDao.crearOActualizarAnno(anyInt(), anyCollection())).thenThrow(PersistenceException.class);
+        Response response = esperar(extRest.createOrUpdateNumExtraordinariosAnno("2021",
+                new StringReader("[{\"fecha\": \"03-20\", \"numero\": \"1\"}]")));
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatusInfo());
+    }
+
+    @Test
+    void producesCorrectPutAnnoResponse() {
+        String json_input = "[{\"fecha\": \"03-20\", \"numero\": \"3\"}, {\"fecha\": \"04-16\", \"numero\": \"1\"}]";
+        when(mockExtDao.crearOActualizarAnno(eq(2021), anyCollection())).thenReturn(List.of(
+                new Extraordinario(null, LocalDate.of(2021, 1, 6), 1),
+                new Extraordinario(null, LocalDate.of(2021, 3, 20), 3),
+                new Extraordinario(null, LocalDate.of(2021, 4, 16), 1)));
+
+        String expected_str = "{\"exito\":true,\"data\":{\"extraordinarios\":[{\"fecha\":\"01-06\",\"numero\":\"1\"}," +
+                "{\"fecha\":\"03-20\",\"numero\":\"3\"},{\"fecha\":\"04-16\",\"numero\":\"1\"}]}}";
+        JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
+
+        Response response = esperar(extRest.createOrUpdateNumExtraordinariosAnno("2021", new StringReader(json_input)));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        verify(mockExtDao).crearOActualizarAnno(eq(2021), argThat(exts -> exts.size() == 2));
+
+        JsonObject res = JsonParser.parseString(leerJson(response)).getAsJsonObject();
+        assertEquals(expected, res);
+    }
 }
@@ -2,21 +2,46 @@ package es.bocm.numbot.rest.festivos;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import es.bocm.numbot.cache.DatosAnnoCache;
+import es.bocm.numbot.entities.DatosAnno;
+import es.bocm.numbot.entities.DatosAnnoDao;
+import es.bocm.numbot.entities.DatosAnnoModificados;
 import es.bocm.numbot.entities.Festivo;
 import es.bocm.numbot.entities.FestivoDao;
+import es.bocm.numbot.rest.EjecutorConsultas;
+import es.bocm.numbot.rest.FormatoRespuesta;
 import jakarta.persistence.PersistenceException;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
+import static es.bocm.numbot.rest.LecturaRespuestas.esperar;
+import static es.bocm.numbot.rest.LecturaRespuestas.leerBytes;
+import static es.bocm.numbot.rest.LecturaRespuestas.leerCbor;
+import static es.bocm.numbot.rest.LecturaRespuestas.leerJson;
+import static es.bocm.numbot.rest.LecturaRespuestas.peticion;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
@@ -26,40 +51,49 @@ class FestivoResourceTest {
     @Mock
     private FestivoDao mockFestDao;
 
+    @Mock
+    private DatosAnnoDao mockDatosDao;
+
     @InjectMocks
     private FestivoResource festRest;
 
+    @BeforeEach
+    void setUp() {
+        festRest.cache = new DatosAnnoCache(mockDatosDao);
+        festRest.ejecutor = new EjecutorConsultas(Runnable::run, 4, 16);
+    }
+
     @Test
     void producesCorrectInvalidYearResponse() {
         String expected = "{\"exito\":false,\"data\":{\"error\":\"Año con formato incorrecto. " +
                 "El formato debe ser YYYY\"}}";
-        Response response = festRest.getFestivos("badYear");
+        Response response = esperar(festRest.getFestivos("badYear", null, peticion(null), null));
         assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         assertEquals(expected, json_res);
     }
 
     @Test
     void producesCorrectUnknownErrorGetResponse() {
-        when(mockFestDao.buscarFestivosPorAnno(anyInt())).thenThrow(PersistenceException.class);
+        when(mockDatosDao.buscarPorAnno(anyInt())).thenThrow(PersistenceException.class);
         String expected = "{\"exito\":false,\"data\":{\"error\":\"Error desconocido. Contactar con el administrador " +
                 "de sistemas para que revise la conexión con la BBDD y otras posibles causas.\"}}";
-        Response response = festRest.getFestivos("2021");
+        Response response = esperar(festRest.getFestivos("2021", null, peticion(null), null));
         assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         assertEquals(expected, json_res);
     }
 
     @Test
     void producesCorrectResponseWithNoData() {
         int anno = 2021;
-        when(mockFestDao.buscarFestivosPorAnno(anno)).thenReturn(Collections.emptyList());
+        when(mockDatosDao.buscarPorAnno(anno)).thenReturn(new DatosAnno(anno, List.of(), List.of()));
         String expected_str = "{\"exito\":false,\"data\":{\"error\":\"Faltan datos en la BBDD para procesar " +
                 "la petición: no están establecidos los festivos de este año.\"}}";
         JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
-        Response response = festRest.getFestivos(String.valueOf(anno));
+        Response response = esperar(festRest.getFestivos(String.valueOf(anno), null, peticion(null), null));
         assertEquals(Response.Status.NOT_FOUND, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         JsonObject res = JsonParser.parseString(json_res).getAsJsonObject();
         assertEquals(expected, res);
     }
@@ -71,24 +105,135 @@ class FestivoResourceTest {
                 new Festivo(null, LocalDate.of(anno, 3, 1), "desc1"),
                 new Festivo(null, LocalDate.of(anno, 5, 14), "desc2")
         );
-        when(mockFestDao.buscarFestivosPorAnno(anno)).thenReturn(fests);
+        when(mockDatosDao.buscarPorAnno(anno)).thenReturn(new DatosAnno(anno, fests, List.of()));
         String expected_str = "{\"exito\":true,\"data\":{\"festivos\":[{\"fecha\":\"03-01\"," +
                 "\"descripcion\":\"desc1\"},{\"fecha\":\"05-14\",\"descripcion\":\"desc2\"}]}}";
         JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
-        Response response = festRest.getFestivos(String.valueOf(anno));
+        Response response = esperar(festRest.getFestivos(String.valueOf(anno), null, peticion(null), null));
         assertEquals(Response.Status.OK, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = new String(response.readEntity(byte[].class), StandardCharsets.UTF_8);
         JsonObject res = JsonParser.parseString(json_res).getAsJsonObject();
         assertEquals(expected, res);
     }
 
+    @Test
+    void producesCacheHeadersWithData() {
+        int anno = 2021;
+        when(mockDatosDao.buscarPorAnno(anno)).thenReturn(new DatosAnno(anno, List.of(
+                new Festivo(null, LocalDate.of(anno, 3, 1), "desc1")), List.of()));
+        Response response = esperar(festRest.getFestivos(String.valueOf(anno), null, peticion(null), null));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        assertEquals(festRest.cache.getVersion(anno).etiqueta() + "-json", response.getEntityTag().getValue());
+        assertNotNull(response.getLastModified());
+        assertNotNull(response.getHeaderString(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    void sendsTheCachedGzipCopyOfLargeYearsWhenAccepted() throws IOException {
+        int anno = 2021;
+        List<Festivo> fests = Stream.iterate(LocalDate.of(anno, 1, 4), f -> f.plusDays(1))
+                .filter(f -> f.getDayOfWeek().getValue() <= 5 && !f.equals(LocalDate.of(anno, 4, 2)))
+                .limit(40)
+                .map(f -> new Festivo(null, f, "Festivo de prueba del " + f))
+                .toList();
+        when(mockDatosDao.buscarPorAnno(anno)).thenReturn(new DatosAnno(anno, fests, List.of()));
+        byte[] json = leerBytes(esperar(festRest.getFestivos(String.valueOf(anno), null, peticion(null), null)));
+        Response response = esperar(festRest.getFestivos(String.valueOf(anno), null, peticion(null), "gzip, deflate"));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        assertEquals("gzip", response.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(festRest.cache.getVersion(anno).etiqueta() + "-json-gzip", response.getEntityTag().getValue());
+        byte[] gzip = leerBytes(response);
+        assertTrue(gzip.length < json.length, "JSON: " + json.length + " bytes, gzip: " + gzip.length + " bytes");
+        assertArrayEquals(json, new GZIPInputStream(new ByteArrayInputStream(gzip)).readAllBytes());
+        assertSame(response.getEntity(),
+                esperar(festRest.getFestivos(String.valueOf(anno), null, peticion(null), "gzip")).getEntity());
+        assertNull(esperar(festRest.getFestivos(String.valueOf(anno), null, peticion(null), "gzip;q=0"))
+                .getHeaderString(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void compressesCachedYearsBelowTheThreshold() throws IOException {
+        int anno = 2021;
+        List<Festivo> fests = Stream.iterate(LocalDate.of(anno, 1, 4), f -> f.plusDays(7))
+                .limit(14)
+                .map(f -> new Festivo(null, f, "Fiesta local"))
+                .toList();
+        when(mockDatosDao.buscarPorAnno(anno)).thenReturn(new DatosAnno(anno, fests, List.of()));
+        byte[] json = leerBytes(esperar(festRest.getFestivos(String.valueOf(anno), null, peticion(null), null)));
+        assertTrue(json.length < 1024, "JSON: " + json.length + " bytes");
+        Response response = esperar(festRest.getFestivos(String.valueOf(anno), null, peticion(null), "gzip"));
+        assertEquals("gzip", response.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(json, new GZIPInputStream(new ByteArrayInputStream(leerBytes(response))).readAllBytes());
+    }
+
+    @Test
+    void doesNotCompressYearsThatGzipDoesNotShrink() {
+        int anno = 2021;
+        when(mockDatosDao.buscarPorAnno(anno)).thenReturn(new DatosAnno(anno, List.of(
+                new Festivo(null, LocalDate.of(anno, 3, 1), "desc1")), List.of()));
+        Response response = esperar(festRest.getFestivos(String.valueOf(anno), null, peticion(null), "gzip"));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        assertNull(response.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void producesCborWhenAccepted() {
+        int anno = 2021;
+        when(mockDatosDao.buscarPorAnno(anno)).thenReturn(new DatosAnno(anno, List.of(
+                new Festivo(null, LocalDate.of(anno, 3, 1), "desc1")), List.of()));
+        Response response = esperar(festRest.getFestivos(String.valueOf(anno), null, peticion("application/cbor"),
+                null));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        assertEquals(FormatoRespuesta.CBOR.getTipo(), response.getMediaType());
+        assertEquals(HttpHeaders.ACCEPT, response.getHeaderString(HttpHeaders.VARY));
+        assertNotNull(response.getEntityTag());
+        Object expected = Map.of("exito", true, "data", Map.of("festivos", List.of(
+                Map.of("fecha", "03-01", "descripcion", "desc1"))));
+        assertEquals(expected, leerCbor(leerBytes(response)));
+    }
+
+    @Test
+    void producesNotModifiedResponseWithoutQueryingDatabaseAgain() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, List.of(), List.of()));
+        String etag = '"' + festRest.cache.getVersion(2021).etiqueta() + "-json\"";
+        Response response = esperar(festRest.getFestivos("2021", etag, peticion(null), null));
+        assertEquals(Response.Status.NOT_MODIFIED, response.getStatusInfo());
+        assertEquals(HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING,
+                response.getHeaderString(HttpHeaders.VARY));
+        verify(mockDatosDao, times(1)).buscarPorAnno(2021);
+    }
+
+    @Test
+    void tagsEachFormatDifferently() {
+        int anno = 2021;
+        when(mockDatosDao.buscarPorAnno(anno)).thenReturn(new DatosAnno(anno, List.of(
+                new Festivo(null, LocalDate.of(anno, 3, 1), "desc1")), List.of()));
+        Response json = esperar(festRest.getFestivos(String.valueOf(anno), null, peticion(null), null));
+        Response csv = esperar(festRest.getFestivos(String.valueOf(anno), null, peticion("text/csv"), null));
+        assertNotEquals(json.getEntityTag(), csv.getEntityTag());
+        String etagJson = '"' + json.getEntityTag().getValue() + '"';
+        assertEquals(Response.Status.OK,
+                esperar(festRest.getFestivos(String.valueOf(anno), etagJson, peticion("text/csv"), null))
+                        .getStatusInfo());
+    }
+
+    @Test
+    void producesDataWhenVersionChanged() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, List.of(), List.of()),
+                new DatosAnno(2021, List.of(new Festivo(null, LocalDate.of(2021, 3, 1), "desc1")), List.of()));
+        String etag = '"' + festRest.cache.getVersion(2021).etiqueta() + "-json\"";
+        festRest.cache.onDatosAnnoModificados(new DatosAnnoModificados(2021, DatosAnnoModificados.Tipo.FESTIVOS));
+        Response response = esperar(festRest.getFestivos("2021", etag, peticion(null), null));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+    }
+
     @Test
     void producesCorrectInvalidYearPutResponse() {
         String expected = "{\"exito\":false,\"data\":{\"error\":\"Año con formato incorrecto. " +
                 "El formato debe ser YYYY\"}}";
-        Response response = festRest.createOrUpdateFestivos("badYear", "");
+        Response response = esperar(festRest.createOrUpdateFestivos("badYear", new StringReader("")));
         assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         assertEquals(expected, json_res);
     }
 
@@ -99,23 +244,22 @@ class FestivoResourceTest {
                 "El formato debe ser [{\\\"descripcion\\\": \\\"descripcion festivo 1\\\", \\\"fecha\\\":" +
                 " \\\"MM-DD\\\"}, {\\\"descripcion\\\": \\\"descripcion festivo 2\\\", \\\"fecha\\\": \\\"MM-DD\\\"}]" +
                 ". No se deben incluir festivos que caen en sábado ni en domingo, o en los días que no hay boletín " +
-                "(1 de enero, 25 de diciembre y Viernes Santo)\"}}";
-        Response response = festRest.createOrUpdateFestivos("1921", json_input);
+                "(1 de enero, 25 de diciembre y Viernes Santo). Error en $[0]: No es una fecha válida\"}}";
+        Response response = esperar(festRest.createOrUpdateFestivos("1921", new StringReader(json_input)));
         assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         assertEquals(expected, json_res);
     }
 
     @Test
     void producesCorrectUnknownErrorPutResponse() {
         String json_input = "[{\"descripcion\": \"Festivo en fecha correcta\",  \"fecha\": \"12-06\"}]";
-        when(mockFestDao.buscarFestivosPorAnno(anyInt())).thenReturn(Collections.emptyList());
-        doThrow(PersistenceException.class).when(mockFestDao).borrarFestivos(anyCollection());
+        doThrow(PersistenceException.class).when(mockFestDao).reemplazarFestivos(anyInt(), anyCollection());
         String expected = "{\"exito\":false,\"data\":{\"error\":\"Error desconocido. Contactar con el administrador " +
                 "de sistemas para que revise la conexión con la BBDD y otras posibles causas.\"}}";
-        Response response = festRest.createOrUpdateFestivos("2021", json_input);
+        Response response = esperar(festRest.createOrUpdateFestivos("2021", new StringReader(json_input)));
         assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         assertEquals(expected, json_res);
     }
 
@@ -123,24 +267,18 @@ class FestivoResourceTest {
     void producesCorrectPutResponse() {
         int anno = 2021;
         String json_input = "[{\"descripcion\": \"Festivo en fecha correcta\",  \"fecha\": \"12-06\"}]";
-        Festivo fest = new Festivo(null, LocalDate.of(anno, 12, 6), "descripcion");
-        List<Festivo> festivos = List.of(fest);
-
-        when(mockFestDao.buscarFestivosPorAnno(anyInt())).thenReturn(festivos);
-        doNothing().when(mockFestDao).borrarFestivos(anyCollection());
-        doNothing().when(mockFestDao).crearFestivos(anyCollection());
+        when(mockFestDao.reemplazarFestivos(anyInt(), anyCollection())).thenReturn(true);
 
         String expected_str = "{\"exito\":true,\"data\":{\"festivos\":[{\"descripcion\":" +
                 "\"Festivo en fecha correcta\",\"fecha\":\"12-06\"}]}}";
         JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
 
-        Response response = festRest.createOrUpdateFestivos(String.valueOf(anno), json_input);
+        Response response = esperar(festRest.createOrUpdateFestivos(String.valueOf(anno),
+                new StringReader(json_input)));
         assertEquals(Response.Status.OK, response.getStatusInfo());
-        verify(mockFestDao).buscarFestivosPorAnno(anno);
-        verify(mockFestDao).borrarFestivos(festivos);
-        verify(mockFestDao).crearFestivos(anyCollection());
+        verify(mockFestDao).reemplazarFestivos(eq(anno), argThat(festivos -> festivos.size() == 1));
 
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         JsonObject res = JsonParser.parseString(json_res).getAsJsonObject();
         assertEquals(expected, res);
     }
@@ -0,0 +1,18 @@
+package es.bocm.numbot.rest.numbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FechaBoletinResponseTest {
+    @Test
+    void constructorCreatesCorrectObject() {
+        FechaBoletinResponse expected = new FechaBoletinResponse(true,
+                Map.of("numero_boletin", "42", "fecha", "2021-02-19"));
+        FechaBoletinResponse result = new FechaBoletinResponse(42, LocalDate.of(2021, 2, 19));
+        assertEquals(expected, result);
+    }
+}
@@ -0,0 +1,18 @@
+package es.bocm.numbot.rest.numbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FechasBoletinResponseTest {
+    @Test
+    void constructorCreatesCorrectObject() {
+        List<Map<String, String>> data = List.of(Map.of("numero_boletin", "42", "fecha", "2021-02-19"));
+        FechasBoletinResponse expected = new FechasBoletinResponse(true, Map.of("fechas", data));
+        FechasBoletinResponse result = new FechasBoletinResponse(data);
+        assertEquals(expected, result);
+    }
+}
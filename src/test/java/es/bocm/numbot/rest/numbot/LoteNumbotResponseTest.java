@@ -0,0 +1,19 @@
+package es.bocm.numbot.rest.numbot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LoteNumbotResponseTest {
+    @Test
+    void constructorCreatesCorrectObject() {
+        List<Map<String, String>> data = List.of(Map.of("fecha", "2021-01-07", "numero_boletin", "5",
+                "numero_boletines_en_no_laboral_seguidos", "0"));
+        LoteNumbotResponse expected = new LoteNumbotResponse(true, Map.of("resultados", data));
+        LoteNumbotResponse result = new LoteNumbotResponse(data);
+        assertEquals(expected, result);
+    }
+}
@@ -2,67 +2,98 @@ package es.bocm.numbot.rest.numbot;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import es.bocm.numbot.cache.DatosAnnoCache;
+import es.bocm.numbot.entities.DatosAnno;
+import es.bocm.numbot.entities.DatosAnnoDao;
+import es.bocm.numbot.entities.DatosAnnoModificados;
 import es.bocm.numbot.entities.Extraordinario;
-import es.bocm.numbot.entities.ExtraordinarioDao;
 import es.bocm.numbot.entities.Festivo;
-import es.bocm.numbot.entities.FestivoDao;
+import es.bocm.numbot.entities.NumeroBoletin;
+import es.bocm.numbot.entities.NumeroBoletinDao;
+import es.bocm.numbot.rest.EjecutorConsultas;
+import es.bocm.numbot.rest.FormatoRespuesta;
 import jakarta.persistence.PersistenceException;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+import static es.bocm.numbot.rest.LecturaRespuestas.esperar;
+import static es.bocm.numbot.rest.LecturaRespuestas.leerBytes;
+import static es.bocm.numbot.rest.LecturaRespuestas.leerCbor;
+import static es.bocm.numbot.rest.LecturaRespuestas.leerJson;
+import static es.bocm.numbot.rest.LecturaRespuestas.peticion;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class NumbotResourceTest {
     @Mock
-    private FestivoDao mockFestDao;
+    private DatosAnnoDao mockDatosDao;
     @Mock
-    private ExtraordinarioDao mockExtDao;
+    private NumeroBoletinDao mockNumerosDao;
 
     @InjectMocks
     private NumbotResource numRest;
 
+    @BeforeEach
+    void setUp() {
+        numRest.cache = new DatosAnnoCache(mockDatosDao);
+        numRest.ejecutor = new EjecutorConsultas(Runnable::run, 4, 16);
+        lenient().when(mockDatosDao.buscarPorAnno(anyInt()))
+                .thenAnswer(i -> new DatosAnno(i.getArgument(0), List.of(), List.of()));
+    }
+
     @Test
     void producesCorrectInvalidDateResponse() {
         String expected = "{\"exito\":false,\"data\":{\"error\":\"Fecha errónea o con formato incorrecto. " +
                 "El formato debe ser YYYY-MM-DD\"}}";
-        Response response = numRest.getNumbot("badYear");
+        Response response = esperar(numRest.getNumbot("badYear", null, peticion(null)));
         assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         assertEquals(expected, json_res);
     }
 
     @Test
     void producesCorrectUnknownErrorResponse() {
-        when(mockExtDao.buscarExtraordinariosPorAnno(anyInt())).thenThrow(PersistenceException.class);
+        when(mockDatosDao.buscarPorAnno(anyInt())).thenThrow(PersistenceException.class);
         String expected = "{\"exito\":false,\"data\":{\"error\":\"Error desconocido. Contactar con el administrador " +
                 "de sistemas para que revise la conexión con la BBDD y otras posibles causas.\"}}";
-        Response response = numRest.getNumbot("2021-03-03");
+        Response response = esperar(numRest.getNumbot("2021-03-03", null, peticion(null)));
         assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         assertEquals(expected, json_res);
     }
 
     @Test
     void producesCorrectResponseWithNoData() {
         int anno = 2021;
-        when(mockFestDao.buscarFestivosPorAnno(anno)).thenReturn(Collections.emptyList());
         String expected_str = "{\"exito\":false,\"data\":{\"error\":\"Faltan datos en la BBDD para procesar " +
                 "la petición: no están establecidos los festivos de este año.\"}}";
         JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
-        Response response = numRest.getNumbot("2021-03-03");
+        Response response = esperar(numRest.getNumbot("2021-03-03", null, peticion(null)));
         assertEquals(Response.Status.NOT_FOUND, response.getStatusInfo());
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
         JsonObject res = JsonParser.parseString(json_res).getAsJsonObject();
         assertEquals(expected, res);
     }
@@ -76,19 +107,324 @@ class NumbotResourceTest {
         List<Extraordinario> exts = List.of(
                 new Extraordinario(null, LocalDate.of(anno, 1, 4), 1)
         );
-        when(mockFestDao.buscarFestivosPorAnno(anno)).thenReturn(fests);
-        when(mockExtDao.buscarExtraordinariosPorAnno(anno)).thenReturn(exts);
+        when(mockDatosDao.buscarPorAnno(anno)).thenReturn(new DatosAnno(anno, fests, exts));
 
         String expected_str = "{\"exito\":true,\"data\":{\"numero_boletin\":\"6\",\"" +
                 "numero_boletines_en_no_laboral_seguidos\":\"2\"}}";
         JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
 
-        Response response = numRest.getNumbot("2021-01-07");
+        Response response = esperar(numRest.getNumbot("2021-01-07", null, peticion(null)));
         assertEquals(Response.Status.OK, response.getStatusInfo());
 
-        String json_res = response.readEntity(String.class);
+        String json_res = leerJson(response);
+        JsonObject res = JsonParser.parseString(json_res).getAsJsonObject();
+
+        assertEquals(expected, res);
+    }
+
+    @Test
+    void producesResponseFromMaterializedNumbersWithoutLoadingCalendars() {
+        LocalDate fecha = LocalDate.of(2021, 1, 7);
+        when(mockNumerosDao.buscarPorFecha(fecha)).thenReturn(Optional.of(new NumeroBoletin(fecha, 5, 6, 2)));
+        String expected_str = "{\"exito\":true,\"data\":{\"numero_boletin\":\"6\",\"" +
+                "numero_boletines_en_no_laboral_seguidos\":\"2\"}}";
+        JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
+        Response response = esperar(numRest.getNumbot("2021-01-07", null, peticion(null)));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        JsonObject res = JsonParser.parseString(leerJson(response)).getAsJsonObject();
+        assertEquals(expected, res);
+        assertEquals(0, numRest.cache.getEstadisticas().get("calendarios").fallos());
+    }
+
+    @Test
+    void producesCorrectResponseAcrossYearEnd() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, List.of(
+                new Festivo(null, LocalDate.of(2021, 12, 31), "viernes")), List.of()));
+        when(mockDatosDao.buscarPorAnno(2022)).thenReturn(new DatosAnno(2022, List.of(
+                new Festivo(null, LocalDate.of(2022, 1, 3), "lunes")), List.of()));
+
+        String expected_str = "{\"exito\":true,\"data\":{\"numero_boletin\":\"309\",\"" +
+                "numero_boletines_en_no_laboral_seguidos\":\"2\"}}";
+        JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
+
+        Response response = esperar(numRest.getNumbot("2021-12-30", null, peticion(null)));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        JsonObject res = JsonParser.parseString(leerJson(response)).getAsJsonObject();
+        assertEquals(expected, res);
+    }
+
+    @Test
+    void answersInlineFromCalendarsWhenYearsAreCached() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, List.of(
+                new Festivo(null, LocalDate.of(2021, 12, 31), "viernes")), List.of()));
+        numRest.cache.getDatos(2021);
+        numRest.cache.getDatos(2022);
+        numRest.ejecutor = mock(EjecutorConsultas.class);
+        CompletableFuture<Response> respuesta = numRest.getNumbot("2021-12-30", null, peticion(null))
+                .toCompletableFuture();
+        assertTrue(respuesta.isDone());
+        assertEquals(Response.Status.OK, respuesta.join().getStatusInfo());
+        verifyNoInteractions(numRest.ejecutor, mockNumerosDao);
+    }
+
+    @Test
+    void queriesThroughTheExecutorWhenYearsAreNotCached() {
+        numRest.cache.getDatos(2021);
+        numRest.ejecutor = mock(EjecutorConsultas.class);
+        when(numRest.ejecutor.ejecutar(any())).thenReturn(CompletableFuture.completedFuture(Response.ok().build()));
+        numRest.getNumbot("2021-12-30", null, peticion(null));
+        verify(numRest.ejecutor).ejecutar(any());
+        verifyNoInteractions(mockNumerosDao);
+    }
+
+    @Test
+    void doesNotBuildNextYearCalendarWhenNotNeeded() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, List.of(
+                new Festivo(null, LocalDate.of(2021, 12, 31), "viernes")), List.of()));
+        Response response = esperar(numRest.getNumbot("2021-12-29", null, peticion(null)));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        assertEquals(1, numRest.cache.getEstadisticas().get("calendarios").elementos());
+    }
+
+    @Test
+    void etagDependsOnTheNextYear() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, List.of(
+                new Festivo(null, LocalDate.of(2021, 12, 31), "viernes")), List.of()));
+        Response response = esperar(numRest.getNumbot("2021-12-29", null, peticion(null)));
+        String etag = '"' + response.getEntityTag().getValue() + '"';
+        assertEquals(Response.Status.NOT_MODIFIED,
+                esperar(numRest.getNumbot("2021-12-29", etag, peticion(null))).getStatusInfo());
+        when(mockDatosDao.buscarPorAnno(2022)).thenReturn(new DatosAnno(2022, List.of(
+                new Festivo(null, LocalDate.of(2022, 1, 3), "lunes")), List.of()));
+        numRest.cache.onDatosAnnoModificados(new DatosAnnoModificados(2022, DatosAnnoModificados.Tipo.FESTIVOS));
+        assertEquals(Response.Status.OK,
+                esperar(numRest.getNumbot("2021-12-29", etag, peticion(null))).getStatusInfo());
+    }
+
+    @Test
+    void producesCorrectFechaResponse() {
+        int anno = 2021;
+        List<Extraordinario> exts = List.of(
+                new Extraordinario(null, LocalDate.of(anno, 1, 4), 1)
+        );
+        when(mockDatosDao.buscarPorAnno(anno)).thenReturn(new DatosAnno(anno, List.of(), exts));
+        String expected_str = "{\"exito\":true,\"data\":{\"numero_boletin\":\"3\",\"fecha\":\"2021-01-04\"}}";
+        JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
+        Response response = esperar(numRest.getFecha("2021", "3", peticion(null)));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        String json_res = leerJson(response);
+        JsonObject res = JsonParser.parseString(json_res).getAsJsonObject();
+        assertEquals(expected, res);
+    }
+
+    @Test
+    void producesCorrectFechaNotPublishedResponse() {
+        String expected = "{\"exito\":false,\"data\":{\"error\":\"No se publica ese número de Boletín en el año\"}}";
+        Response response = esperar(numRest.getFecha("2021", "311", peticion(null)));
+        assertEquals(Response.Status.NOT_FOUND, response.getStatusInfo());
+        assertEquals(expected, leerJson(response));
+    }
+
+    @Test
+    void producesCorrectInvalidNumeroResponse() {
+        String expected = "{\"exito\":false,\"data\":{\"error\":\"Número de Boletín con formato incorrecto. " +
+                "Debe ser un entero, o un array JSON de enteros en las peticiones en bloque. Ejemplo: [1, 301]\"}}";
+        Response response = esperar(numRest.getFecha("2021", "uno", peticion(null)));
+        assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
+        assertEquals(expected, leerJson(response));
+    }
+
+    @Test
+    void producesCorrectFechaInvalidYearResponse() {
+        Response response = esperar(numRest.getFecha("badYear", "1", peticion(null)));
+        assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
+    }
+
+    @Test
+    void producesCorrectFechaUnknownErrorResponse() {
+        when(mockDatosDao.buscarPorAnno(anyInt())).thenThrow(PersistenceException.class);
+        Response response = esperar(numRest.getFecha("2021", "1", peticion(null)));
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatusInfo());
+    }
+
+    @Test
+    void producesCorrectFechasResponse() {
+        int anno = 2021;
+        List<Extraordinario> exts = List.of(
+                new Extraordinario(null, LocalDate.of(anno, 1, 4), 2)
+        );
+        when(mockDatosDao.buscarPorAnno(anno)).thenReturn(new DatosAnno(anno, List.of(), exts));
+        String expected_str = "{\"exito\":true,\"data\":{\"fechas\":[" +
+                "{\"numero_boletin\":\"1\",\"fecha\":\"2021-01-02\"}," +
+                "{\"numero_boletin\":\"3\",\"fecha\":\"2021-01-04\"}," +
+                "{\"numero_boletin\":\"4\",\"fecha\":\"2021-01-04\"}," +
+                "{\"numero_boletin\":\"0\",\"error\":\"No se publica ese número de Boletín en el año\"}]}}";
+        JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
+        Response response = esperar(numRest.getFechas("2021", "[1, 3, 4, 0]", peticion(null)));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        String json_res = leerJson(response);
         JsonObject res = JsonParser.parseString(json_res).getAsJsonObject();
+        assertEquals(expected, res);
+    }
 
+    @ParameterizedTest
+    @ValueSource(strings = {"", "{\"numero\": 1}", "[\"uno\"]"})
+    void producesCorrectInvalidFechasDataResponse(String json_input) {
+        Response response = esperar(numRest.getFechas("2021", json_input, peticion(null)));
+        assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
+    }
+
+    @Test
+    void producesCorrectRangeResponse() throws IOException {
+        List<Festivo> fests2021 = List.of(new Festivo(null, LocalDate.of(2021, 12, 31), "viernes"));
+        List<Festivo> fests2022 = List.of(new Festivo(null, LocalDate.of(2022, 1, 6), "jueves"));
+        List<Extraordinario> exts2021 = List.of(new Extraordinario(null, LocalDate.of(2021, 12, 30), 2));
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, fests2021, exts2021));
+        when(mockDatosDao.buscarPorAnno(2022)).thenReturn(new DatosAnno(2022, fests2022, List.of()));
+
+        String expected_str = "{\"exito\":true,\"data\":{\"boletines\":[" +
+                "{\"fecha\":\"2021-12-30\",\"primer_numero_boletin\":\"309\",\"numero_boletin\":\"311\"," +
+                "\"numero_boletines_en_no_laboral_seguidos\":\"1\"}," +
+                "{\"fecha\":\"2021-12-31\",\"primer_numero_boletin\":\"312\",\"numero_boletin\":\"312\"," +
+                "\"numero_boletines_en_no_laboral_seguidos\":\"0\"}," +
+                "{\"fecha\":\"2022-01-03\",\"primer_numero_boletin\":\"1\",\"numero_boletin\":\"1\"," +
+                "\"numero_boletines_en_no_laboral_seguidos\":\"0\"}]}}";
+        JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
+
+        Response response = esperar(numRest.getNumbots("2021-12-30", "2022-01-03", peticion(null)));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        verify(mockDatosDao, times(1)).buscarPorAnno(2021);
+        verify(mockDatosDao, times(1)).buscarPorAnno(2022);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+        JsonObject res = JsonParser.parseString(output.toString(StandardCharsets.UTF_8)).getAsJsonObject();
         assertEquals(expected, res);
     }
+
+    @Test
+    void producesCsvRangeResponseWhenAccepted() throws IOException {
+        List<Festivo> fests2021 = List.of(new Festivo(null, LocalDate.of(2021, 12, 31), "viernes"));
+        List<Extraordinario> exts2021 = List.of(new Extraordinario(null, LocalDate.of(2021, 12, 30), 2));
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, fests2021, exts2021));
+        when(mockDatosDao.buscarPorAnno(2022)).thenReturn(new DatosAnno(2022, List.of(
+                new Festivo(null, LocalDate.of(2022, 1, 6), "jueves")), List.of()));
+
+        Response response = esperar(numRest.getNumbots("2021-12-30", "2022-01-03",
+                peticion("text/csv, application/json;q=0.5")));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        assertEquals(FormatoRespuesta.CSV.getTipo(), response.getMediaType());
+        assertEquals(HttpHeaders.ACCEPT, response.getHeaderString(HttpHeaders.VARY));
+        String expected = "fecha,primer_numero_boletin,numero_boletin,numero_boletines_en_no_laboral_seguidos\r\n" +
+                "2021-12-30,309,311,1\r\n" +
+                "2021-12-31,312,312,0\r\n" +
+                "2022-01-03,1,1,0\r\n";
+        assertEquals(expected, new String(leerBytes(response), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void producesCborWithNativeNumbersWhenAccepted() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, List.of(
+                new Festivo(null, LocalDate.of(2021, 1, 8), "viernes")), List.of()));
+        Response response = esperar(numRest.getNumbot("2021-01-07", null, peticion("application/cbor")));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        assertEquals(FormatoRespuesta.CBOR.getTipo(), response.getMediaType());
+        Object expected = Map.of("exito", true, "data",
+                Map.of("numero_boletin", 5L, "numero_boletines_en_no_laboral_seguidos", 2L));
+        assertEquals(expected, leerCbor(leerBytes(response)));
+    }
+
+    @Test
+    void producesJsonErrorsWhateverTheAcceptHeader() {
+        Response response = esperar(numRest.getFecha("2021", "uno", peticion("text/csv")));
+        assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
+        assertEquals(FormatoRespuesta.JSON.getTipo(), response.getMediaType());
+    }
+
+    @ParameterizedTest
+    @CsvSource(value = {
+            "badDate, 2021-01-01",
+            "2021-01-01, null",
+            "2021-01-02, 2021-01-01",
+            "2021-01-01, 2026-01-01",
+            "0000-01-01, 9999-12-31",
+    }, nullValues = "null")
+    void producesCorrectInvalidRangeResponse(String desde, String hasta) {
+        Response response = esperar(numRest.getNumbots(desde, hasta, peticion(null)));
+        assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
+        verifyNoInteractions(mockDatosDao);
+    }
+
+    @Test
+    void acceptsRangesUpToTheMaximumNumberOfYears() {
+        Response response = esperar(numRest.getNumbots("2021-01-01", "2025-12-31", peticion(null)));
+        assertEquals(Response.Status.NOT_FOUND, response.getStatusInfo());
+    }
+
+    @Test
+    void producesCorrectRangeResponseWithNoData() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, List.of(
+                new Festivo(null, LocalDate.of(2021, 1, 8), "viernes")), List.of()));
+        Response response = esperar(numRest.getNumbots("2021-12-01", "2022-01-31", peticion(null)));
+        assertEquals(Response.Status.NOT_FOUND, response.getStatusInfo());
+    }
+
+    @Test
+    void producesCorrectLoteResponse() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, List.of(
+                new Festivo(null, LocalDate.of(2021, 1, 8), "viernes")),
+                List.of(new Extraordinario(null, LocalDate.of(2021, 1, 4), 1))));
+
+        String expected_str = "{\"exito\":true,\"data\":{\"resultados\":[" +
+                "{\"fecha\":\"2021-01-07\",\"numero_boletin\":\"6\"," +
+                "\"numero_boletines_en_no_laboral_seguidos\":\"2\"}," +
+                "{\"fecha\":\"2021-13-01\",\"error\":\"Fecha errónea o con formato incorrecto. El formato debe " +
+                "ser YYYY-MM-DD\"}," +
+                "{\"fecha\":\"2022-01-07\",\"error\":\"Faltan datos en la BBDD para procesar la petición: no " +
+                "están establecidos los festivos de este año.\"}," +
+                "{\"fecha\":\"2021-01-04\",\"numero_boletin\":\"3\"," +
+                "\"numero_boletines_en_no_laboral_seguidos\":\"0\"}]}}";
+        JsonObject expected = JsonParser.parseString(expected_str).getAsJsonObject();
+
+        Response response = esperar(numRest.getNumbotsLote("[\"2021-01-07\", \"2021-13-01\", \"2022-01-07\", " +
+                "\"2021-01-04\"]", peticion(null)));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        verify(mockDatosDao, times(1)).buscarPorAnno(2021);
+
+        String json_res = leerJson(response);
+        JsonObject res = JsonParser.parseString(json_res).getAsJsonObject();
+        assertEquals(expected, res);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "{\"fecha\": \"2021-01-07\"}", "2021-01-07"})
+    void producesCorrectInvalidLoteDataResponse(String json_input) {
+        Response response = esperar(numRest.getNumbotsLote(json_input, peticion(null)));
+        assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
+    }
+
+    @Test
+    void acceptsLotesOfSeveralThousandDates() {
+        when(mockDatosDao.buscarPorAnno(2021)).thenReturn(new DatosAnno(2021, List.of(
+                new Festivo(null, LocalDate.of(2021, 1, 8), "viernes")), List.of()));
+        String fechas = "[" + String.join(",", Collections.nCopies(5000, "\"2021-01-07\"")) + "]";
+        Response response = esperar(numRest.getNumbotsLote(fechas, peticion(null)));
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        verify(mockDatosDao, times(1)).buscarPorAnno(2021);
+    }
+
+    @Test
+    void rejectsLotesWithTooManyDates() {
+        String fechas = "[" + String.join(",", Collections.nCopies(10_001, "\"2021-01-07\"")) + "]";
+        Response response = esperar(numRest.getNumbotsLote(fechas, peticion(null)));
+        assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
+        verifyNoInteractions(mockDatosDao);
+    }
+
+    @Test
+    void producesCorrectLoteUnknownErrorResponse() {
+        when(mockDatosDao.buscarPorAnno(anyInt())).thenThrow(PersistenceException.class);
+        Response response = esperar(numRest.getNumbotsLote("[\"2021-01-07\"]", peticion(null)));
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatusInfo());
+    }
 }
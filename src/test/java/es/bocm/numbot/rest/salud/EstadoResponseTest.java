@@ -0,0 +1,16 @@
+package es.bocm.numbot.rest.salud;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EstadoResponseTest {
+    @Test
+    void constructorCreatesCorrectObject() {
+        EstadoResponse expected = new EstadoResponse(true, Map.of("estado", "preparado"));
+        EstadoResponse result = new EstadoResponse("preparado");
+        assertEquals(expected, result);
+    }
+}
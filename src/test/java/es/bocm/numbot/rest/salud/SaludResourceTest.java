@@ -0,0 +1,40 @@
+package es.bocm.numbot.rest.salud;
+
+import es.bocm.numbot.arranque.Calentamiento;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static es.bocm.numbot.rest.LecturaRespuestas.leerJson;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SaludResourceTest {
+    @Mock
+    private Calentamiento mockCalentamiento;
+
+    @InjectMocks
+    private SaludResource saludRest;
+
+    @Test
+    void producesServiceUnavailableResponseWhileWarmingUp() {
+        when(mockCalentamiento.estaPreparado()).thenReturn(false);
+        String expected = "{\"exito\":false,\"data\":{\"error\":\"Calentamiento del servicio en curso\"}}";
+        Response response = saludRest.getPreparado();
+        assertEquals(Response.Status.SERVICE_UNAVAILABLE, response.getStatusInfo());
+        assertEquals(expected, leerJson(response));
+    }
+
+    @Test
+    void producesCorrectResponseWhenReady() {
+        when(mockCalentamiento.estaPreparado()).thenReturn(true);
+        String expected = "{\"exito\":true,\"data\":{\"estado\":\"preparado\"}}";
+        Response response = saludRest.getPreparado();
+        assertEquals(Response.Status.OK, response.getStatusInfo());
+        assertEquals(expected, leerJson(response));
+    }
+}